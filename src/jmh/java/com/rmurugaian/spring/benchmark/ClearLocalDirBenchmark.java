@@ -0,0 +1,74 @@
+package com.rmurugaian.spring.benchmark;
+
+import com.rmurugaian.spring.util.FileUtils;
+import com.rmurugaian.spring.util.LocalDirCleaner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link FileUtils#clearLocalDir(String)} to delete a download directory holding
+ * {@code fileCount} small files spread over {@code directories} subdirectories, and for a
+ * {@link LocalDirCleaner} with four threads to finish deleting it in the background. The tree is
+ * rebuilt before every invocation, so each measurement is a single cold delete.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClearLocalDirBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int fileCount;
+
+    @Param({"1", "100"})
+    public int directories;
+
+    private Path root;
+    private Path localDir;
+    private LocalDirCleaner localDirCleaner;
+
+    @Setup(Level.Trial)
+    public void createRoot() throws IOException {
+        root = Files.createTempDirectory("clear-local-dir-benchmark");
+        localDirCleaner = new LocalDirCleaner(4, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void createTree() throws IOException {
+        localDir = TestFiles.createTree(root.resolve("incoming"), fileCount, directories);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRoot() throws IOException {
+        localDirCleaner.destroy();
+        FileUtils.clearLocalDir(root.toString());
+    }
+
+    @Benchmark
+    public void clearLocalDir() throws IOException {
+        FileUtils.clearLocalDir(localDir.toString());
+    }
+
+    @Benchmark
+    public void clearLocalDirInBackground() throws Exception {
+        localDirCleaner.clear(localDir.toString()).get();
+    }
+}
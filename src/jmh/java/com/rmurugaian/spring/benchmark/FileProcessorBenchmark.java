@@ -0,0 +1,93 @@
+package com.rmurugaian.spring.benchmark;
+
+import com.rmurugaian.spring.service.DefaultFileProcessor;
+import com.rmurugaian.spring.service.FileProcessor;
+import com.rmurugaian.spring.service.ParallelFileProcessor;
+import com.rmurugaian.spring.service.RecordHandler;
+import com.rmurugaian.spring.service.StreamingFileProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to process one generated update file with each {@link FileProcessor}. Records are handed to
+ * a {@link Blackhole} instead of the logging handler, so the numbers reflect reading and splitting
+ * only. Run with {@code ./gradlew jmh}; the gc profiler adds the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileProcessorBenchmark {
+
+    @Param({"default", "streaming", "parallel"})
+    public String processor;
+
+    @Param({"1048576", "104857600", "1073741824"})
+    public long fileSize;
+
+    @Param({"80", "1024"})
+    public int lineLength;
+
+    private Path directory;
+    private File file;
+    private FileProcessor fileProcessor;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) throws IOException {
+        directory = Files.createTempDirectory("file-processor-benchmark");
+        file = TestFiles.writeLines(directory.resolve("update.txt"), fileSize, lineLength).toFile();
+
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("recordHandler", (RecordHandler) blackhole::consume);
+        switch (processor) {
+            case "default":
+                fileProcessor = new DefaultFileProcessor();
+                break;
+            case "streaming":
+                fileProcessor = new StreamingFileProcessor(beanFactory.getBeanProvider(RecordHandler.class), 65536);
+                break;
+            case "parallel":
+                fileProcessor = new ParallelFileProcessor(
+                    beanFactory.getBeanProvider(RecordHandler.class), 65536, 8388608, 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown processor " + processor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (fileProcessor instanceof DisposableBean) {
+            ((DisposableBean) fileProcessor).destroy();
+        }
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void handleUpdate() {
+        fileProcessor.handleUpdate(file);
+    }
+}
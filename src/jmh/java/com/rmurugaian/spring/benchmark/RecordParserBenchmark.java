@@ -0,0 +1,95 @@
+package com.rmurugaian.spring.benchmark;
+
+import com.rmurugaian.spring.service.LineRecordReader;
+import com.rmurugaian.spring.service.ParsedRecordHandler;
+import com.rmurugaian.spring.service.RecordHandler;
+import com.rmurugaian.spring.service.RecordParser;
+import com.rmurugaian.spring.service.RecordSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read the typed fields of one generated delimited file, once by splitting each decoded
+ * line into strings and parsing those, once with a {@link RecordParser} working on the read buffer.
+ * Run with {@code ./gradlew jmh -PjmhInclude=RecordParserBenchmark}; compare the allocation rates
+ * reported by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecordParserBenchmark {
+
+    @Param({"104857600"})
+    public long fileSize;
+
+    private Path directory;
+    private Path file;
+    private LineRecordReader reader;
+    private RecordParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("record-parser-benchmark");
+        file = TestFiles.writeRecords(directory.resolve("update.txt"), fileSize);
+        reader = new LineRecordReader(65536, StandardCharsets.UTF_8);
+        parser = new RecordParser(RecordSchema.delimited('|')
+            .field("id", RecordSchema.FieldType.LONG)
+            .field("code", RecordSchema.FieldType.TEXT)
+            .field("amount", RecordSchema.FieldType.DOUBLE)
+            .build(), StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long split(final Blackhole blackhole) throws IOException {
+        final RecordHandler handler = record -> {
+            final String[] fields = record.toString().split("\\|");
+            blackhole.consume(Long.parseLong(fields[0]));
+            blackhole.consume(fields[1]);
+            blackhole.consume(Double.parseDouble(fields[2]));
+        };
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return reader.read(channel, handler);
+        }
+    }
+
+    @Benchmark
+    public long parsed(final Blackhole blackhole) throws IOException {
+        final ParsedRecordHandler handler = record -> {
+            blackhole.consume(record.getLong(0));
+            blackhole.consume(record.getText(1));
+            blackhole.consume(record.getDouble(2));
+        };
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return reader.read(channel, parser, handler);
+        }
+    }
+}
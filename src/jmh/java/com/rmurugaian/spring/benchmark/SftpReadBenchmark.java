@@ -0,0 +1,108 @@
+package com.rmurugaian.spring.benchmark;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.rmurugaian.spring.EmbeddedSftpServer;
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory;
+import com.rmurugaian.spring.sftp.PipelinedSftpSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to download one file from an {@link EmbeddedSftpServer} into a local file the way the
+ * inbound synchronizer does, with the plain {@code SftpSession} stream copy and with a
+ * {@link PipelinedSftpSessionFactory} session, each with JSch's default 16 and with 64 read requests
+ * in flight. The session is opened once per trial, as the pool would. The server runs on loopback,
+ * so the numbers mostly show the cost of the read path; the request window matters more the longer
+ * the round trip to a real server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SftpReadBenchmark {
+
+    private static final String REMOTE_FILE = "/incoming/update.dat";
+
+    @Param({"stream", "pipelined"})
+    public String read;
+
+    @Param({"16", "64"})
+    public int bulkRequests;
+
+    @Param({"1048576", "33554432"})
+    public int fileSize;
+
+    private EmbeddedSftpServer server;
+    private Session<ChannelSftp.LsEntry> session;
+    private Path localFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JSchException {
+        server = new EmbeddedSftpServer(0);
+        final InMemoryFileSystemViewFactory fileSystemFactory =
+            (InMemoryFileSystemViewFactory) server.getFileSystemFactory();
+        fileSystemFactory.setUserDir("b2s", "/");
+        final byte[] content = new byte[fileSize];
+        new Random(7).nextBytes(content);
+        fileSystemFactory.createFile(REMOTE_FILE, content);
+        server.start();
+
+        final DefaultSftpSessionFactory sessionFactory = new DefaultSftpSessionFactory();
+        sessionFactory.setHost("localhost");
+        sessionFactory.setPort(server.getPort());
+        sessionFactory.setUser("b2s");
+        sessionFactory.setPassword("b2s");
+        sessionFactory.setAllowUnknownKeys(true);
+        switch (read) {
+            case "stream":
+                session = sessionFactory.getSession();
+                ((ChannelSftp) session.getClientInstance()).setBulkRequests(bulkRequests);
+                break;
+            case "pipelined":
+                session = new PipelinedSftpSessionFactory(sessionFactory, bulkRequests, 262144).getSession();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown read " + read);
+        }
+        localFile = Files.createTempFile("sftp-read-benchmark", ".dat");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        session.close();
+        server.stop();
+        Files.deleteIfExists(localFile);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(localFile))) {
+            session.read(REMOTE_FILE, out);
+        }
+        return Files.size(localFile);
+    }
+}
@@ -0,0 +1,78 @@
+package com.rmurugaian.spring.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates the input files of the benchmarks. Content is derived from a fixed seed, so every run
+ * measures the same bytes.
+ */
+final class TestFiles {
+
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789|,;".getBytes();
+    private static final String[] CODES = {"SRC-ALPHA", "SRC-BETA", "SRC-GAMMA", "SRC-DELTA"};
+
+    private TestFiles() {
+    }
+
+    /**
+     * Writes {@code size} bytes of LF-terminated lines, each {@code lineLength} bytes long including
+     * the line feed; the last line is cut short when the size is not a multiple of the length.
+     */
+    static Path writeLines(final Path file, final long size, final int lineLength) throws IOException {
+        final Random random = new Random(42);
+        final byte[] line = new byte[lineLength];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long remaining = size;
+            while (remaining > 0) {
+                for (int i = 0; i < lineLength - 1; i++) {
+                    line[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+                }
+                line[lineLength - 1] = '\n';
+                final int length = (int) Math.min(lineLength, remaining);
+                out.write(line, 0, length);
+                remaining -= length;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes {@code size} bytes of pipe-delimited records of the form {@code id|code|amount}, the
+     * layout read by {@link RecordParserBenchmark}.
+     */
+    static Path writeRecords(final Path file, final long size) throws IOException {
+        final Random random = new Random(42);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            long written = 0;
+            for (long id = 1; written < size; id++) {
+                final byte[] record = (id + "|" + CODES[random.nextInt(CODES.length)] + "|"
+                    + random.nextInt(1_000_000) / 100.0 + "\n").getBytes(StandardCharsets.US_ASCII);
+                out.write(record);
+                written += record.length;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Creates {@code fileCount} one-line files spread round-robin over {@code directories}
+     * subdirectories of {@code root}.
+     */
+    static Path createTree(final Path root, final int fileCount, final int directories) throws IOException {
+        final Path[] subdirectories = new Path[directories];
+        for (int i = 0; i < directories; i++) {
+            subdirectories[i] = Files.createDirectories(root.resolve("dir" + i));
+        }
+        final byte[] content = "20191017|update\n".getBytes();
+        for (int i = 0; i < fileCount; i++) {
+            Files.write(subdirectories[i % directories].resolve("update" + i + ".txt"), content);
+        }
+        return root;
+    }
+}
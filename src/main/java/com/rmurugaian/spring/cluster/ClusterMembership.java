@@ -0,0 +1,206 @@
+package com.rmurugaian.spring.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The live instances of a cluster, tracked through heartbeat files in a shared directory, and the
+ * partition each of them owns.
+ * <p>
+ * Every {@code heartbeatInterval} this instance touches its own file and re-reads the others;
+ * instances whose file is older than {@code memberTimeout} are considered gone, and their
+ * partitions move to the survivors. A key belongs to the member with the highest hash of member
+ * and key (rendezvous hashing), so a member joining or leaving only moves its own share of the
+ * keys. Members briefly disagree while a change propagates, so partitions spread the work but do
+ * not guarantee exclusive access on their own. Clocks must be synchronized to well within
+ * {@code memberTimeout}.
+ * <p>
+ * The number of live members is published as {@code sftp.cluster.members}.
+ */
+public class ClusterMembership implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMembership.class);
+
+    private static final int STALE_MEMBER_FACTOR = 10;
+
+    private final Path directory;
+    private final String nodeId;
+    private final long heartbeatInterval;
+    private final long memberTimeout;
+    private final ScheduledExecutorService heartbeats;
+
+    private volatile List<String> members;
+
+    public ClusterMembership(
+        final Path directory,
+        final String nodeId,
+        final long heartbeatInterval,
+        final long memberTimeout) {
+
+        Assert.isTrue(nodeId.matches("[A-Za-z0-9._-]+"), "nodeId must be a plain file name.");
+        Assert.isTrue(heartbeatInterval > 0, "heartbeatInterval must be positive.");
+        Assert.isTrue(memberTimeout > heartbeatInterval, "memberTimeout must exceed heartbeatInterval.");
+
+        this.directory = directory;
+        this.nodeId = nodeId;
+        this.heartbeatInterval = heartbeatInterval;
+        this.memberTimeout = memberTimeout;
+        this.members = Collections.singletonList(nodeId);
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sftp-cluster-"));
+    }
+
+    /**
+     * A node id made of host name and process id, unique per running instance.
+     */
+    public static String defaultNodeId() {
+        // The runtime name has the form pid@hostname.
+        final String[] runtime = ManagementFactory.getRuntimeMXBean().getName().split("@", 2);
+        final String id = runtime.length == 2 ? runtime[1] + "-" + runtime[0] : runtime[0];
+        return id.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Files.createDirectories(directory);
+        heartbeat();
+        heartbeats.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat();
+            } catch (final IOException | RuntimeException e) {
+                logger.warn("Cluster heartbeat in {} failed: {}", directory, e.getMessage());
+            }
+        }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leaves the cluster, so the others take over this member's partitions without waiting for
+     * its heartbeat to time out.
+     */
+    @Override
+    public void destroy() throws IOException {
+        heartbeats.shutdownNow();
+        Files.deleteIfExists(directory.resolve(nodeId));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * The live members, sorted by node id.
+     */
+    public List<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Whether {@code key} belongs to this member's partition.
+     */
+    public boolean owns(final String key) {
+        return nodeId.equals(owner(key));
+    }
+
+    public String owner(final String key) {
+        String owner = null;
+        long highest = 0;
+        for (final String member : members) {
+            final long weight = weight(member, key);
+            if (owner == null || weight > highest) {
+                owner = member;
+                highest = weight;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Touches this member's heartbeat file and re-reads the live members.
+     */
+    public void heartbeat() throws IOException {
+        final long now = System.currentTimeMillis();
+        final Path own = directory.resolve(nodeId);
+        Files.write(own, Long.toString(now).getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(own, FileTime.fromMillis(now));
+
+        final List<String> live = new ArrayList<>();
+        try (DirectoryStream<Path> heartbeatFiles = Files.newDirectoryStream(directory)) {
+            for (final Path heartbeatFile : heartbeatFiles) {
+                final String member = heartbeatFile.getFileName().toString();
+                final long lastHeartbeat = lastHeartbeat(heartbeatFile);
+                if (member.equals(nodeId) || lastHeartbeat >= now - memberTimeout) {
+                    live.add(member);
+                } else if (lastHeartbeat < now - memberTimeout * STALE_MEMBER_FACTOR) {
+                    // Long gone without leaving, e.g. killed; node ids include the pid and do not come back.
+                    Files.deleteIfExists(heartbeatFile);
+                }
+            }
+        }
+        Collections.sort(live);
+        if (!live.equals(members)) {
+            logger.info("Cluster members changed to {}", live);
+        }
+        members = Collections.unmodifiableList(live);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("sftp.cluster.members", this, membership -> membership.getMembers().size())
+            .description("Live instances sharing the SFTP inbound work")
+            .register(registry);
+    }
+
+    private static long lastHeartbeat(final Path heartbeatFile) {
+        try {
+            return Files.getLastModifiedTime(heartbeatFile).toMillis();
+        } catch (final IOException e) {
+            // Left the cluster while being listed.
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over member and key, finished with the MurmurHash3 mixer so that similar
+     * names still spread evenly.
+     */
+    private static long weight(final String member, final String key) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, member);
+        hash = (hash ^ 0xff) * 0x100000001b3L;
+        hash = fnv(hash, key);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long fnv(final long seed, final String text) {
+        long hash = seed;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
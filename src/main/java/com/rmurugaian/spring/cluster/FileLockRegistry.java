@@ -0,0 +1,191 @@
+package com.rmurugaian.spring.cluster;
+
+import org.springframework.integration.support.locks.LockRegistry;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link LockRegistry} whose locks are exclusive across the processes sharing a directory, e.g. for
+ * a {@link org.springframework.integration.support.leader.LockRegistryLeaderInitiator}.
+ * <p>
+ * Each key maps to a lock file, locked with {@link FileChannel#tryLock()} by the first hold of a
+ * reentrant lock and released with the last. The operating system drops the lock when its process
+ * dies, so a crashed holder never blocks the others. Waiting for a lock polls its file every
+ * 100 ms. The file system must support {@code fcntl} locks, as local file systems and NFSv4 do.
+ */
+public class FileLockRegistry implements LockRegistry {
+
+    private static final long RETRY_INTERVAL = 100;
+
+    private final Path directory;
+    private final ConcurrentMap<String, FileBackedLock> locks = new ConcurrentHashMap<>();
+
+    public FileLockRegistry(final Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public Lock obtain(final Object lockKey) {
+        Assert.isInstanceOf(String.class, lockKey);
+        final String key = (String) lockKey;
+        Assert.isTrue(key.matches("[A-Za-z0-9._-]+"), "lockKey must be a plain file name.");
+        return locks.computeIfAbsent(key, name -> new FileBackedLock(directory.resolve(name + ".lock")));
+    }
+
+    private static final class FileBackedLock implements Lock {
+
+        private final Path lockFile;
+        private final ReentrantLock localLock = new ReentrantLock();
+
+        private FileChannel channel;
+        private FileLock fileLock;
+
+        private FileBackedLock(final Path lockFile) {
+            this.lockFile = lockFile;
+        }
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    lockInterruptibly();
+                    break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            localLock.lockInterruptibly();
+            while (!lockFile()) {
+                try {
+                    Thread.sleep(RETRY_INTERVAL);
+                } catch (final InterruptedException e) {
+                    localLock.unlock();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!localLock.tryLock()) {
+                return false;
+            }
+            if (lockFile()) {
+                return true;
+            }
+            localLock.unlock();
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            if (!localLock.tryLock(time, unit)) {
+                return false;
+            }
+            try {
+                while (!lockFile()) {
+                    final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        localLock.unlock();
+                        return false;
+                    }
+                    Thread.sleep(Math.min(remaining, RETRY_INTERVAL));
+                }
+                return true;
+            } catch (final InterruptedException e) {
+                localLock.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public void unlock() {
+            Assert.state(localLock.isHeldByCurrentThread(), "The lock on " + lockFile + " is not held.");
+            try {
+                if (localLock.getHoldCount() == 1) {
+                    releaseFile();
+                }
+            } finally {
+                localLock.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported across processes.");
+        }
+
+        /**
+         * Takes the file lock on the first hold of the local lock; later holds already have it.
+         */
+        private boolean lockFile() {
+            if (fileLock != null) {
+                return true;
+            }
+            try {
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                try {
+                    fileLock = channel.tryLock();
+                } catch (final OverlappingFileLockException e) {
+                    // Held through another registry of this process.
+                }
+                if (fileLock == null) {
+                    channel.close();
+                    channel = null;
+                    return false;
+                }
+                return true;
+            } catch (final IOException e) {
+                closeQuietly();
+                localLock.unlock();
+                throw new UncheckedIOException("Failed to lock " + lockFile, e);
+            }
+        }
+
+        private void closeQuietly() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException ignored) {
+                    // Already failing.
+                }
+                channel = null;
+            }
+        }
+
+        private void releaseFile() {
+            try {
+                // Closing the channel releases the lock.
+                channel.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Failed to unlock " + lockFile, e);
+            } finally {
+                channel = null;
+                fileLock = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.rmurugaian.spring.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * First-in first-out queue of work items kept as files in a directory that several processes
+ * share, so one instance can hand work to all instances of a cluster without a broker.
+ * <p>
+ * {@link #offer} publishes an item under {@code pending}, named after its enqueue time. An instance
+ * takes it by creating the item's entry under {@code taken} with a hard link, which fails
+ * atomically for all but one taker, and then removing it from {@code pending}. Completing an item
+ * deletes its entry; releasing it returns it to {@code pending}. Items taken longer than
+ * {@code leaseTimeout} ago are presumed lost with a crashed instance and returned by whichever
+ * instance runs out of pending items first, so the lease must exceed the longest an item is worked on.
+ * <p>
+ * Queue depths are published as {@code sftp.queue.size}, tagged with the state.
+ */
+public class SharedWorkQueue implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedWorkQueue.class);
+
+    private final Path pending;
+    private final Path taken;
+    private final Path temporary;
+    private final long leaseTimeout;
+    private final Deque<String> candidates = new ArrayDeque<>();
+
+    public SharedWorkQueue(final Path directory, final long leaseTimeout) throws IOException {
+        this.pending = Files.createDirectories(directory.resolve("pending"));
+        this.taken = Files.createDirectories(directory.resolve("taken"));
+        this.temporary = Files.createDirectories(directory.resolve("tmp"));
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Appends an item to the queue.
+     */
+    public void offer(final String item) {
+        final String name = String.format("%013d-%s",
+            System.currentTimeMillis(), DigestUtils.md5DigestAsHex(item.getBytes(StandardCharsets.UTF_8)));
+        try {
+            publish(pending.resolve(name), item);
+        } catch (final FileAlreadyExistsException e) {
+            // Offered twice within a millisecond.
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to enqueue into " + pending, e);
+        }
+    }
+
+    /**
+     * Takes the oldest item no other instance has taken.
+     *
+     * @return {@code null} when the queue is empty
+     */
+    public synchronized WorkItem take() {
+        try {
+            if (candidates.isEmpty()) {
+                requeueExpired();
+                candidates.addAll(list(pending));
+            }
+            String name;
+            while ((name = candidates.poll()) != null) {
+                final String item = read(pending.resolve(name));
+                if (item != null && claim(name, item)) {
+                    return new WorkItem(name, item);
+                }
+            }
+            return null;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to take from " + pending, e);
+        }
+    }
+
+    /**
+     * Removes a taken item for good.
+     */
+    public void complete(final WorkItem item) {
+        try {
+            Files.deleteIfExists(taken.resolve(item.name));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to complete " + item.name + " in " + taken, e);
+        }
+    }
+
+    /**
+     * Returns a taken item to the queue. It keeps its place for the other instances; this one only
+     * gets back to it after the items it has listed already, so a failing item does not hold up the
+     * rest.
+     */
+    public void release(final WorkItem item) {
+        try {
+            release(item.name);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to release " + item.name + " in " + taken, e);
+        }
+    }
+
+    /**
+     * Returns the items whose lease ran out to the queue.
+     *
+     * @return the number of items returned
+     */
+    public int requeueExpired() throws IOException {
+        final long expired = System.currentTimeMillis() - leaseTimeout;
+        int requeued = 0;
+        for (final String name : list(taken)) {
+            try {
+                if (Files.getLastModifiedTime(taken.resolve(name)).toMillis() < expired) {
+                    release(name);
+                    logger.warn("Lease on {} ran out, returned it to {}", name, pending);
+                    requeued++;
+                }
+            } catch (final NoSuchFileException e) {
+                // Completed or released meanwhile.
+            }
+        }
+        return requeued;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        queueSize("pending", pending, registry);
+        queueSize("taken", taken, registry);
+    }
+
+    /**
+     * Creates the taken entry, with a fresh lease, and removes the pending one. An item that was
+     * completed after this instance listed it can be claimed again; it is gone from
+     * {@code pending} then, which gives it away.
+     */
+    private boolean claim(final String name, final String item) throws IOException {
+        try {
+            publish(taken.resolve(name), item);
+        } catch (final FileAlreadyExistsException e) {
+            return false;
+        }
+        if (Files.deleteIfExists(pending.resolve(name))) {
+            return true;
+        }
+        Files.deleteIfExists(taken.resolve(name));
+        return false;
+    }
+
+    private void release(final String name) throws IOException {
+        try {
+            Files.createLink(pending.resolve(name), taken.resolve(name));
+        } catch (final FileAlreadyExistsException | NoSuchFileException e) {
+            // Released by another instance already.
+        }
+        Files.deleteIfExists(taken.resolve(name));
+    }
+
+    /**
+     * Writes the item to a temporary file and links it into place, which fails if the entry exists.
+     */
+    private void publish(final Path entry, final String item) throws IOException {
+        final Path written = Files.createTempFile(temporary, entry.getFileName().toString(), ".tmp");
+        try {
+            Files.write(written, item.getBytes(StandardCharsets.UTF_8));
+            Files.createLink(entry, written);
+        } finally {
+            Files.deleteIfExists(written);
+        }
+    }
+
+    private static String read(final Path entry) throws IOException {
+        try {
+            return new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static List<String> list(final Path directory) throws IOException {
+        final List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            entries.forEach(entry -> names.add(entry.getFileName().toString()));
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static void queueSize(final String state, final Path directory, final MeterRegistry registry) {
+        Gauge.builder("sftp.queue.size", directory, SharedWorkQueue::count)
+            .description("Work items in the shared queue")
+            .tag("state", state)
+            .register(registry);
+    }
+
+    private static long count(final Path directory) {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.count();
+        } catch (final IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * An item taken from the queue, to be completed or released.
+     */
+    public static final class WorkItem {
+
+        private final String name;
+        private final String value;
+
+        private WorkItem(final String name, final String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
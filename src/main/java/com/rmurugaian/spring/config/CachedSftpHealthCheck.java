@@ -0,0 +1,91 @@
+package com.rmurugaian.spring.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the last result of a background SFTP probe so frequent health requests do not each
+ * open a remote session. A result older than {@code maxStaleness} is reported as down, as is a
+ * probe that throws.
+ */
+public class CachedSftpHealthCheck implements HealthIndicator, DisposableBean {
+
+    private final HealthIndicator probe;
+    private final Duration maxStaleness;
+
+    private DisposableBean probeResources;
+
+    private volatile Health lastHealth;
+    private volatile Instant lastProbe;
+    private volatile ScheduledFuture<?> refresh;
+
+    public CachedSftpHealthCheck(final HealthIndicator probe, final Duration maxStaleness) {
+        this.probe = probe;
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * What the probe holds on to, such as its own session factory; destroyed with this health check.
+     */
+    public void setProbeResources(final DisposableBean probeResources) {
+        this.probeResources = probeResources;
+    }
+
+    /**
+     * Runs the probe now and then every {@code interval} on the given scheduler until destroyed.
+     */
+    public void start(final TaskScheduler taskScheduler, final Duration interval) {
+        this.refresh = taskScheduler.scheduleWithFixedDelay(this::refresh, interval);
+    }
+
+    public void refresh() {
+        final long start = System.nanoTime();
+        Health health;
+        try {
+            health = probe.health();
+        } catch (final RuntimeException e) {
+            // Thrown out of a scheduled task, it would also cancel all later probes.
+            health = Health.down(e).build();
+        }
+        final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        lastProbe = Instant.now();
+        lastHealth = Health.status(health.getStatus())
+            .withDetails(health.getDetails())
+            .withDetail("probeLatencyMs", latency)
+            .withDetail("lastProbe", lastProbe.toString())
+            .build();
+    }
+
+    @Override
+    public Health health() {
+        final Health health = lastHealth;
+        if (health == null) {
+            return Health.unknown().withDetail("reason", "SFTP probe has not completed yet").build();
+        }
+        if (Duration.between(lastProbe, Instant.now()).compareTo(maxStaleness) > 0) {
+            return Health.down()
+                .withDetails(health.getDetails())
+                .withDetail("reason", "Last SFTP probe is older than " + maxStaleness)
+                .build();
+        }
+        return health;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+        if (probeResources != null) {
+            probeResources.destroy();
+        }
+    }
+}
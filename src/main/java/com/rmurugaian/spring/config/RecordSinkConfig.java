@@ -0,0 +1,35 @@
+package com.rmurugaian.spring.config;
+
+import com.rmurugaian.spring.service.BatchingRecordHandler;
+import com.rmurugaian.spring.service.RecordSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+
+/**
+ * With {@code sftp.server.update.sink=batching}, records parsed by the streaming and parallel
+ * processors go to the application's {@link RecordSink} bean in batches instead of being logged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sftp.server.update.sink", havingValue = "batching")
+public class RecordSinkConfig {
+
+    @Bean
+    public BatchingRecordHandler batchingRecordHandler(
+        final RecordSink<String> recordSink,
+        final TaskScheduler taskScheduler,
+        @Value("${sftp.server.update.sinkBatchSize:500}") final int batchSize,
+        @Value("${sftp.server.update.sinkFlushInterval:1000}") final long flushInterval,
+        @Value("${sftp.server.update.sinkWriters:1}") final int writers,
+        @Value("${sftp.server.update.sinkMaxPendingBatches:4}") final int maxPendingBatches) {
+
+        final BatchingRecordHandler handler =
+            new BatchingRecordHandler(recordSink, batchSize, writers, maxPendingBatches);
+        handler.start(taskScheduler, Duration.ofMillis(flushInterval));
+        return handler;
+    }
+}
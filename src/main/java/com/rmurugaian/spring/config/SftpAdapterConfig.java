@@ -0,0 +1,423 @@
+package com.rmurugaian.spring.config;
+
+/**
+ * Settings of one inbound SFTP adapter, bound under {@code sftp.server.<name>}.
+ *
+ * @author rmurugaian 2019-10-17
+ */
+public class SftpAdapterConfig {
+    private String remotePath;
+    private String transfer = "local";
+    private int pollingFrequency;
+    private String localPath;
+    private String filterExpr;
+    private boolean isClearLocalDir = true;
+    private boolean asyncClearLocalDir;
+    private int clearLocalDirThreads = 4;
+    private int retainLocalFiles;
+    private boolean preserveTimestamp = true;
+    private boolean deleteRemoteFiles = true;
+    private int maxMessagesPerPoll = 1;
+    private int workerPoolSize = 1;
+    private int workerQueueCapacity = 100;
+    private int downloadConcurrency = 1;
+    private String metadataStorePath;
+    private long metadataRetention = 604800000;
+    private boolean incrementalListing;
+    private long watermarkLookback = 300000;
+    private String partitionPattern;
+    private int partitionLookbackDays = 1;
+    private boolean adaptivePolling;
+    private long minPollingFrequency = 200;
+    private long maxPollingFrequency = 30000;
+    private double pollingBackoffMultiplier = 2.0;
+    private double pollingJitter = 0.1;
+    private boolean decompress;
+    private boolean resumableDownloads;
+    private int downloadAttempts = 3;
+    private long downloadRetryBackoff = 1000;
+    private double downloadRetryMultiplier = 2.0;
+    private long downloadRetryMaxBackoff = 30000;
+    private long segmentedDownloadThreshold;
+    private int downloadSegments = 4;
+    private long maxLocalBytes;
+    private int maxLocalFiles;
+    private boolean deleteProcessedFiles;
+    private String failedPath;
+    private String sharedPath;
+    private String nodeId;
+    private String partitionBy = "file";
+    private long claimTimeout = 600000;
+    private long heartbeatInterval = 10000;
+    private long memberTimeout = 30000;
+    private boolean leaderListing;
+    private int pipelineCapacity = 64;
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public void setRemotePath(final String remotePath) {
+        this.remotePath = remotePath;
+    }
+
+    public int getPollingFrequency() {
+        return pollingFrequency;
+    }
+
+    public void setPollingFrequency(final int pollingFrequency) {
+        this.pollingFrequency = pollingFrequency;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public void setLocalPath(final String localPath) {
+        this.localPath = localPath;
+    }
+
+    public String getFilterExpr() {
+        return filterExpr;
+    }
+
+    public void setFilterExpr(final String filterExpr) {
+        this.filterExpr = filterExpr;
+    }
+
+    public boolean isClearLocalDir() {
+        return isClearLocalDir;
+    }
+
+    public void setClearLocalDir(final boolean clearLocalDir) {
+        isClearLocalDir = clearLocalDir;
+    }
+
+    public boolean isAsyncClearLocalDir() {
+        return asyncClearLocalDir;
+    }
+
+    public void setAsyncClearLocalDir(final boolean asyncClearLocalDir) {
+        this.asyncClearLocalDir = asyncClearLocalDir;
+    }
+
+    public int getClearLocalDirThreads() {
+        return clearLocalDirThreads;
+    }
+
+    public void setClearLocalDirThreads(final int clearLocalDirThreads) {
+        this.clearLocalDirThreads = clearLocalDirThreads;
+    }
+
+    public int getRetainLocalFiles() {
+        return retainLocalFiles;
+    }
+
+    public void setRetainLocalFiles(final int retainLocalFiles) {
+        this.retainLocalFiles = retainLocalFiles;
+    }
+
+    public int getMaxMessagesPerPoll() {
+        return maxMessagesPerPoll;
+    }
+
+    public void setMaxMessagesPerPoll(final int maxMessagesPerPoll) {
+        this.maxMessagesPerPoll = maxMessagesPerPoll;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(final int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public int getWorkerQueueCapacity() {
+        return workerQueueCapacity;
+    }
+
+    public void setWorkerQueueCapacity(final int workerQueueCapacity) {
+        this.workerQueueCapacity = workerQueueCapacity;
+    }
+
+    public boolean isPreserveTimestamp() {
+        return preserveTimestamp;
+    }
+
+    public void setPreserveTimestamp(final boolean preserveTimestamp) {
+        this.preserveTimestamp = preserveTimestamp;
+    }
+
+    public boolean isDeleteRemoteFiles() {
+        return deleteRemoteFiles;
+    }
+
+    public void setDeleteRemoteFiles(final boolean deleteRemoteFiles) {
+        this.deleteRemoteFiles = deleteRemoteFiles;
+    }
+
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    public void setDownloadConcurrency(final int downloadConcurrency) {
+        this.downloadConcurrency = downloadConcurrency;
+    }
+
+    public String getMetadataStorePath() {
+        return metadataStorePath;
+    }
+
+    public void setMetadataStorePath(final String metadataStorePath) {
+        this.metadataStorePath = metadataStorePath;
+    }
+
+    public long getMetadataRetention() {
+        return metadataRetention;
+    }
+
+    public void setMetadataRetention(final long metadataRetention) {
+        this.metadataRetention = metadataRetention;
+    }
+
+    public boolean isIncrementalListing() {
+        return incrementalListing;
+    }
+
+    public void setIncrementalListing(final boolean incrementalListing) {
+        this.incrementalListing = incrementalListing;
+    }
+
+    public long getWatermarkLookback() {
+        return watermarkLookback;
+    }
+
+    public void setWatermarkLookback(final long watermarkLookback) {
+        this.watermarkLookback = watermarkLookback;
+    }
+
+    public String getPartitionPattern() {
+        return partitionPattern;
+    }
+
+    public void setPartitionPattern(final String partitionPattern) {
+        this.partitionPattern = partitionPattern;
+    }
+
+    public int getPartitionLookbackDays() {
+        return partitionLookbackDays;
+    }
+
+    public void setPartitionLookbackDays(final int partitionLookbackDays) {
+        this.partitionLookbackDays = partitionLookbackDays;
+    }
+
+    public boolean isAdaptivePolling() {
+        return adaptivePolling;
+    }
+
+    public void setAdaptivePolling(final boolean adaptivePolling) {
+        this.adaptivePolling = adaptivePolling;
+    }
+
+    public long getMinPollingFrequency() {
+        return minPollingFrequency;
+    }
+
+    public void setMinPollingFrequency(final long minPollingFrequency) {
+        this.minPollingFrequency = minPollingFrequency;
+    }
+
+    public long getMaxPollingFrequency() {
+        return maxPollingFrequency;
+    }
+
+    public void setMaxPollingFrequency(final long maxPollingFrequency) {
+        this.maxPollingFrequency = maxPollingFrequency;
+    }
+
+    public double getPollingBackoffMultiplier() {
+        return pollingBackoffMultiplier;
+    }
+
+    public void setPollingBackoffMultiplier(final double pollingBackoffMultiplier) {
+        this.pollingBackoffMultiplier = pollingBackoffMultiplier;
+    }
+
+    public double getPollingJitter() {
+        return pollingJitter;
+    }
+
+    public void setPollingJitter(final double pollingJitter) {
+        this.pollingJitter = pollingJitter;
+    }
+
+    public String getTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(final String transfer) {
+        this.transfer = transfer;
+    }
+
+    public boolean isDecompress() {
+        return decompress;
+    }
+
+    public void setDecompress(final boolean decompress) {
+        this.decompress = decompress;
+    }
+
+    public boolean isResumableDownloads() {
+        return resumableDownloads;
+    }
+
+    public void setResumableDownloads(final boolean resumableDownloads) {
+        this.resumableDownloads = resumableDownloads;
+    }
+
+    public int getDownloadAttempts() {
+        return downloadAttempts;
+    }
+
+    public void setDownloadAttempts(final int downloadAttempts) {
+        this.downloadAttempts = downloadAttempts;
+    }
+
+    public long getDownloadRetryBackoff() {
+        return downloadRetryBackoff;
+    }
+
+    public void setDownloadRetryBackoff(final long downloadRetryBackoff) {
+        this.downloadRetryBackoff = downloadRetryBackoff;
+    }
+
+    public double getDownloadRetryMultiplier() {
+        return downloadRetryMultiplier;
+    }
+
+    public void setDownloadRetryMultiplier(final double downloadRetryMultiplier) {
+        this.downloadRetryMultiplier = downloadRetryMultiplier;
+    }
+
+    public long getDownloadRetryMaxBackoff() {
+        return downloadRetryMaxBackoff;
+    }
+
+    public void setDownloadRetryMaxBackoff(final long downloadRetryMaxBackoff) {
+        this.downloadRetryMaxBackoff = downloadRetryMaxBackoff;
+    }
+
+    public long getSegmentedDownloadThreshold() {
+        return segmentedDownloadThreshold;
+    }
+
+    public void setSegmentedDownloadThreshold(final long segmentedDownloadThreshold) {
+        this.segmentedDownloadThreshold = segmentedDownloadThreshold;
+    }
+
+    public int getDownloadSegments() {
+        return downloadSegments;
+    }
+
+    public void setDownloadSegments(final int downloadSegments) {
+        this.downloadSegments = downloadSegments;
+    }
+
+    public long getMaxLocalBytes() {
+        return maxLocalBytes;
+    }
+
+    public void setMaxLocalBytes(final long maxLocalBytes) {
+        this.maxLocalBytes = maxLocalBytes;
+    }
+
+    public int getMaxLocalFiles() {
+        return maxLocalFiles;
+    }
+
+    public void setMaxLocalFiles(final int maxLocalFiles) {
+        this.maxLocalFiles = maxLocalFiles;
+    }
+
+    public boolean isDeleteProcessedFiles() {
+        return deleteProcessedFiles;
+    }
+
+    public void setDeleteProcessedFiles(final boolean deleteProcessedFiles) {
+        this.deleteProcessedFiles = deleteProcessedFiles;
+    }
+
+    public String getFailedPath() {
+        return failedPath;
+    }
+
+    public void setFailedPath(final String failedPath) {
+        this.failedPath = failedPath;
+    }
+
+    public String getSharedPath() {
+        return sharedPath;
+    }
+
+    public void setSharedPath(final String sharedPath) {
+        this.sharedPath = sharedPath;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(final String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+
+    public void setPartitionBy(final String partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+
+    public long getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public void setClaimTimeout(final long claimTimeout) {
+        this.claimTimeout = claimTimeout;
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(final long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public long getMemberTimeout() {
+        return memberTimeout;
+    }
+
+    public void setMemberTimeout(final long memberTimeout) {
+        this.memberTimeout = memberTimeout;
+    }
+
+    public boolean isLeaderListing() {
+        return leaderListing;
+    }
+
+    public void setLeaderListing(final boolean leaderListing) {
+        this.leaderListing = leaderListing;
+    }
+
+    public int getPipelineCapacity() {
+        return pipelineCapacity;
+    }
+
+    public void setPipelineCapacity(final int pipelineCapacity) {
+        this.pipelineCapacity = pipelineCapacity;
+    }
+}
@@ -1,18 +1,29 @@
 package com.rmurugaian.spring.config;
 
 import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.sftp.PipelinedSftpSessionFactory;
+import com.rmurugaian.spring.sftp.PooledSftpSessionFactory;
+import com.rmurugaian.spring.sftp.SftpBatchUploader;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.expression.common.LiteralExpression;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.session.SessionFactory;
 import org.springframework.integration.sftp.session.DefaultSftpSessionFactory;
 import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Properties;
 
 /**
  * @author rmurugaian 2019-10-17
@@ -30,6 +41,9 @@ public class SftpConfig {
         return server;
     }
 
+    /**
+     * Opens a new session per call, with the {@code sftp.server.tuning} ciphers and compression.
+     */
     @Bean
     public SessionFactory<ChannelSftp.LsEntry> defaultSftpSessionFactory() {
         final DefaultSftpSessionFactory factory = new DefaultSftpSessionFactory();
@@ -38,15 +52,41 @@ public class SftpConfig {
         factory.setPort(server.getPort());
         factory.setUser(server.getUser());
         factory.setAllowUnknownKeys(true);
+        factory.setSessionConfig(sessionConfig(server.getTuning()));
+        return factory;
+    }
+
+    /**
+     * Pipelined reads without the pool; with it, the pool sits on top of a pipelined factory.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnExpression("!${sftp.server.pool.enabled:true} and ${sftp.server.tuning.pipelinedReads:true}")
+    public PipelinedSftpSessionFactory pipelinedSftpSessionFactory() {
+        return pipelined(defaultSftpSessionFactory());
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "sftp.server.pool.enabled", havingValue = "true", matchIfMissing = true)
+    public PooledSftpSessionFactory pooledSftpSessionFactory(final TaskScheduler taskScheduler) {
+        final SftpPoolConfig pool = server.getPool();
+        final PooledSftpSessionFactory factory = new PooledSftpSessionFactory(pooledTargetFactory(), pool.getSize());
+        factory.setMaxWait(Duration.ofMillis(pool.getMaxWait()));
+        factory.setMaxIdleTime(Duration.ofMillis(pool.getMaxIdleTime()));
+        factory.setMaxAge(Duration.ofMillis(pool.getMaxAge()));
+        factory.setValidateOnBorrow(pool.isValidateOnBorrow());
+        factory.startEviction(taskScheduler, Duration.ofMillis(pool.getEvictionInterval()));
         return factory;
     }
 
     @Bean
     public RemoteFileTemplate<ChannelSftp.LsEntry> sftpRemoteFileTemplate(
+        final SessionFactory<ChannelSftp.LsEntry> sftpSessionFactory,
         @Value("${sftp.server.update.remotePath}") final String sftpRemotePath) {
         Assert.hasLength(sftpRemotePath, "order remotePath is missing.");
 
-        final SftpRemoteFileTemplate template = new SftpRemoteFileTemplate(defaultSftpSessionFactory());
+        final SftpRemoteFileTemplate template = new SftpRemoteFileTemplate(sftpSessionFactory);
         template.setCharset(ENCODING_UTF_8);
         template.setAutoCreateDirectory(false);
         template.setRemoteDirectoryExpression(new LiteralExpression(sftpRemotePath));
@@ -56,11 +96,64 @@ public class SftpConfig {
         return template;
     }
 
+    /**
+     * Uploads batches of response files to the order {@code remotePath} through
+     * {@link #sftpRemoteFileTemplate}, {@code uploadConcurrency} at a time; keep that within the
+     * session pool size.
+     */
+    @Bean
+    public SftpBatchUploader sftpBatchUploader(
+        final RemoteFileTemplate<ChannelSftp.LsEntry> sftpRemoteFileTemplate,
+        @Value("${sftp.server.order.remotePath}") final String orderRemotePath,
+        @Value("${sftp.server.order.uploadConcurrency:4}") final int uploadConcurrency) {
+
+        return new SftpBatchUploader(sftpRemoteFileTemplate, orderRemotePath, uploadConcurrency);
+    }
+
     @Bean
     @ConditionalOnProperty(name = "sftp.server.order.enabled", havingValue = "true", matchIfMissing = true)
-    public SftpHealthCheck sftpHealthCheck(
+    public HealthIndicator sftpHealthCheck(
         final  RemoteFileTemplate<ChannelSftp.LsEntry> sftpRemoteFileTemplate,
-        @Value("${sftp.server.update.remotePath}") final String sftpRemotePath) {
-        return new SftpHealthCheck(sftpRemoteFileTemplate, sftpRemotePath);
+        @Value("${sftp.server.update.remotePath}") final String sftpRemotePath,
+        final TaskScheduler taskScheduler) {
+        final SftpHealthConfig health = server.getHealth();
+        if (health.getMode() != SftpHealthConfig.Mode.CACHED) {
+            return new SftpHealthCheck(sftpRemoteFileTemplate, sftpRemotePath);
+        }
+
+        // A session of its own, so a pool exhausted by transfers does not read as the server down.
+        // It is kept open across probes, validated on every borrow.
+        final PooledSftpSessionFactory probeSessions = new PooledSftpSessionFactory(defaultSftpSessionFactory(), 1);
+        probeSessions.setMaxIdleTime(Duration.ofMillis(2 * health.getRefreshInterval()));
+        final SftpHealthCheck probe =
+            new SftpHealthCheck(new SftpRemoteFileTemplate(probeSessions), sftpRemotePath);
+        final CachedSftpHealthCheck cachedHealthCheck =
+            new CachedSftpHealthCheck(probe, Duration.ofMillis(health.getMaxStaleness()));
+        cachedHealthCheck.setProbeResources(probeSessions);
+        cachedHealthCheck.start(taskScheduler, Duration.ofMillis(health.getRefreshInterval()));
+        return cachedHealthCheck;
+    }
+
+    private SessionFactory<ChannelSftp.LsEntry> pooledTargetFactory() {
+        final SessionFactory<ChannelSftp.LsEntry> factory = defaultSftpSessionFactory();
+        return server.getTuning().isPipelinedReads() ? pipelined(factory) : factory;
+    }
+
+    private PipelinedSftpSessionFactory pipelined(final SessionFactory<ChannelSftp.LsEntry> targetFactory) {
+        final SftpTuningConfig tuning = server.getTuning();
+        return new PipelinedSftpSessionFactory(targetFactory, tuning.getBulkRequests(), tuning.getBufferSize());
+    }
+
+    private static Properties sessionConfig(final SftpTuningConfig tuning) {
+        final Properties config = new Properties();
+        if (StringUtils.hasText(tuning.getCiphers())) {
+            config.setProperty("cipher.s2c", tuning.getCiphers());
+            config.setProperty("cipher.c2s", tuning.getCiphers());
+        }
+        if (StringUtils.hasText(tuning.getCompression())) {
+            config.setProperty("compression.s2c", tuning.getCompression());
+            config.setProperty("compression.c2s", tuning.getCompression());
+        }
+        return config;
     }
 }
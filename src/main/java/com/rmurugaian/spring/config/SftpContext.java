@@ -8,6 +8,9 @@ public class SftpContext {
     private String password;
     private String host;
     private int port;
+    private final SftpPoolConfig pool = new SftpPoolConfig();
+    private final SftpHealthConfig health = new SftpHealthConfig();
+    private final SftpTuningConfig tuning = new SftpTuningConfig();
 
     public String getUser() {
         return user;
@@ -40,4 +43,16 @@ public class SftpContext {
     public void setPort(final int port) {
         this.port = port;
     }
+
+    public SftpPoolConfig getPool() {
+        return pool;
+    }
+
+    public SftpHealthConfig getHealth() {
+        return health;
+    }
+
+    public SftpTuningConfig getTuning() {
+        return tuning;
+    }
 }
@@ -0,0 +1,42 @@
+package com.rmurugaian.spring.config;
+
+/**
+ * Health check settings, bound under {@code sftp.server.health}. Times are in milliseconds.
+ */
+public class SftpHealthConfig {
+
+    public enum Mode {
+        /** Probe the server on every health request. */
+        DIRECT,
+        /** Probe in the background and serve the cached result. */
+        CACHED
+    }
+
+    private Mode mode = Mode.DIRECT;
+    private long refreshInterval = 15000;
+    private long maxStaleness = 60000;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(final Mode mode) {
+        this.mode = mode;
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(final long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public void setMaxStaleness(final long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+}
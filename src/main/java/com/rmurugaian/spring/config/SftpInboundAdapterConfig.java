@@ -1,28 +1,92 @@
 package com.rmurugaian.spring.config;
 
 import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.cluster.ClusterMembership;
+import com.rmurugaian.spring.cluster.FileLockRegistry;
+import com.rmurugaian.spring.cluster.SharedWorkQueue;
+import com.rmurugaian.spring.metadata.AppendOnlyFileMetadataStore;
+import com.rmurugaian.spring.metadata.InMemoryMetadataStore;
+import com.rmurugaian.spring.metadata.SharedDirectoryMetadataStore;
+import com.rmurugaian.spring.service.DecompressingFileProcessor;
+import com.rmurugaian.spring.service.DeletingFileProcessor;
 import com.rmurugaian.spring.service.FileProcessor;
+import com.rmurugaian.spring.service.QuarantiningFileProcessor;
+import com.rmurugaian.spring.sftp.AdaptivePollingTrigger;
+import com.rmurugaian.spring.sftp.DatePartitionedRemoteDirectories;
+import com.rmurugaian.spring.sftp.LocalDirQuota;
+import com.rmurugaian.spring.sftp.NotifyingFileProcessor;
+import com.rmurugaian.spring.sftp.ParallelSftpInboundFileSynchronizer;
+import com.rmurugaian.spring.sftp.PartitionedRemoteDirectories;
+import com.rmurugaian.spring.sftp.PooledSftpSessionFactory;
+import com.rmurugaian.spring.sftp.ReactiveSftpFilePipeline;
+import com.rmurugaian.spring.sftp.RemoteFileStreamHandler;
+import com.rmurugaian.spring.sftp.ResumableSftpDownloader;
+import com.rmurugaian.spring.sftp.SegmentedSftpDownloader;
+import com.rmurugaian.spring.sftp.SftpChainFileListFilter;
+import com.rmurugaian.spring.sftp.SftpFileClaimFilter;
+import com.rmurugaian.spring.sftp.SftpListingMessageSource;
+import com.rmurugaian.spring.sftp.SftpRemoteFileIdentityFilter;
+import com.rmurugaian.spring.sftp.SftpWatermarkFileListFilter;
+import com.rmurugaian.spring.sftp.SftpWorkQueueMessageSource;
 import com.rmurugaian.spring.util.FileUtils;
+import com.rmurugaian.spring.util.LocalDirCleaner;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.ExecutorChannel;
+import org.springframework.integration.core.MessageSource;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.dsl.IntegrationFlows;
+import org.springframework.integration.dsl.MessageChannels;
+import org.springframework.integration.dsl.PollerSpec;
 import org.springframework.integration.dsl.Pollers;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.FileSystemPersistentAcceptOnceFileListFilter;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.leader.DefaultCandidate;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.integration.metadata.SimpleMetadataStore;
 import org.springframework.integration.sftp.dsl.Sftp;
+import org.springframework.integration.sftp.dsl.SftpStreamingInboundChannelAdapterSpec;
+import org.springframework.integration.sftp.filters.SftpRegexPatternFileListFilter;
+import org.springframework.integration.sftp.inbound.SftpInboundFileSynchronizingMessageSource;
+import org.springframework.integration.sftp.session.SftpFileInfo;
+import org.springframework.integration.support.leader.LockRegistryLeaderInitiator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
 
 /**
  * @author rmurugaian 2019-10-17
  */
 @Configuration
 @ConfigurationProperties(prefix = "sftp.server")
-public class SftpInboundAdapterConfig {
+public class SftpInboundAdapterConfig implements InitializingBean {
+
+    private static final String LISTING_ROLE = "sftpListing";
+    private static final String PARTIAL_FILE_SUFFIX = ".writing";
+    private static final String SYNCHRONIZED =
+            "'${sftp.server.update.transfer:local}' == 'local' and !${sftp.server.update.leaderListing:false}";
+    private static final String SYNCHRONIZED_SHARED =
+            SYNCHRONIZED + " and '${sftp.server.update.sharedPath:}' != ''";
 
     @NestedConfigurationProperty
     private final SftpAdapterConfig update = new SftpAdapterConfig();
@@ -33,6 +97,8 @@ public class SftpInboundAdapterConfig {
 
     private final SessionFactory<ChannelSftp.LsEntry> sftpSessionFactory;
     private final FileProcessor fileProcessor;
+    private final FileSystemPersistentAcceptOnceFileListFilter localFilter =
+            new FileSystemPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), "sftpLocalFilter");
 
     public SftpInboundAdapterConfig(
             final SessionFactory<ChannelSftp.LsEntry> sftpSessionFactory,
@@ -42,87 +108,527 @@ public class SftpInboundAdapterConfig {
         this.fileProcessor = fileProcessor;
     }
 
+    @Override
+    public void afterPropertiesSet() {
+        Assert.isTrue(!update.isLeaderListing() || StringUtils.hasText(update.getSharedPath()),
+                "update leaderListing requires a sharedPath.");
+    }
+
     @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "local", matchIfMissing = true)
     public IntegrationFlow sftpInboundFlow() throws IOException {
+        clearLocalDir();
 
-        if (update.isClearLocalDir) {
-            FileUtils.clearLocalDir(update.localPath);
+        final MessageSource<File> source;
+        if (update.isLeaderListing()) {
+            source = sftpWorkQueueSource();
+        } else {
+            final SftpInboundFileSynchronizingMessageSource synchronizingSource =
+                    new SftpInboundFileSynchronizingMessageSource(sftpInboundFileSynchronizer());
+            synchronizingSource.setLocalDirectory(new File(update.getLocalPath()));
+            synchronizingSource.setAutoCreateLocalDirectory(true);
+            synchronizingSource.setLocalFilter(localFilter);
+            source = synchronizingSource;
         }
 
         return IntegrationFlows
                 .from(
-                        Sftp.inboundAdapter(sftpSessionFactory)
-                                .preserveTimestamp(true)
-                                .deleteRemoteFiles(true)
-                                .regexFilter(update.filterExpr)
-                                .localDirectory(new File(update.localPath))
-                                .autoCreateLocalDirectory(true)
-                                .remoteDirectory(update.remotePath),
+                        source,
                         e -> e.id("sftpInboundAdapter")
                                 .autoStartup(true)
-                                .poller(Pollers.fixedRate(update.pollingFrequency)
-                                        .maxMessagesPerPoll(1)))
+                                .poller(poller()))
                 .channel(updateFileChannel())
                 .get();
     }
 
+    /**
+     * Runs list, fetch and parse as separate stages joined by flux channels: the poller lists up to
+     * {@code pipelineCapacity} files in flight, {@code downloadConcurrency} downloads and
+     * {@code workerPoolSize} parses run at a time, and with {@code sink=batching} the
+     * {@code sinkWriters} write the parsed records. A stage only waits for the next one once the
+     * pipeline is full. Files are downloaded like with {@code transfer=local}, including resumable and
+     * segmented downloads, but by a single instance; {@code sharedPath} and {@code leaderListing}
+     * do not apply.
+     */
     @Bean
-    public DirectChannel updateFileChannel() {
-        return new DirectChannel();
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "reactive")
+    public IntegrationFlow sftpReactiveInboundFlow() throws IOException {
+        clearLocalDir();
+
+        final FileListFilter<ChannelSftp.LsEntry> filter = remoteFileFilter(new SftpChainFileListFilter());
+        final ReactiveSftpFilePipeline pipeline = sftpFilePipeline();
+        pipeline.setFilter(filter);
+        final SftpListingMessageSource source =
+                new SftpListingMessageSource(sftpSessionFactory, remoteDirectories(), filter);
+        source.setFetchLimit(pipeline::room);
+
+        return IntegrationFlows
+                .from(
+                        source,
+                        e -> e.id("sftpInboundAdapter")
+                                .autoStartup(true)
+                                .poller(poller().maxMessagesPerPoll(1)))
+                .<List<SftpFileInfo>, List<SftpFileInfo>>transform(pipeline::admit)
+                .split()
+                .channel(MessageChannels.flux())
+                .fluxTransform(pipeline::fetch)
+                .fluxTransform(pipeline::process)
+                .nullChannel();
     }
 
     @Bean
-    public IntegrationFlow orderUpdateFlow() {
-        return IntegrationFlows.from(updateFileChannel())
-                .handle(fileProcessor, "handleUpdate")
-                .get();
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "reactive")
+    public ReactiveSftpFilePipeline sftpFilePipeline() {
+        final ReactiveSftpFilePipeline pipeline = new ReactiveSftpFilePipeline(
+                sftpSessionFactory,
+                resumableDownloader(),
+                new File(update.getLocalPath()),
+                localFileProcessor(),
+                update.getDownloadConcurrency(),
+                update.getWorkerPoolSize(),
+                update.getPipelineCapacity());
+        pipeline.setDeleteRemoteFiles(update.isDeleteRemoteFiles());
+        pipeline.setPreserveTimestamp(update.isPreserveTimestamp());
+        return pipeline;
     }
 
-    private static class SftpAdapterConfig {
-        private String remotePath;
-        private int pollingFrequency;
-        private String localPath;
-        private String filterExpr;
-        private boolean isClearLocalDir = true;
+    /**
+     * With {@code asyncClearLocalDir} the download directory is renamed aside at startup and deleted
+     * on {@code clearLocalDirThreads} background threads, keeping its newest {@code retainLocalFiles}
+     * files, so polling starts without waiting for the old files to be deleted.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.asyncClearLocalDir", havingValue = "true")
+    public LocalDirCleaner localDirCleaner() {
+        return new LocalDirCleaner(update.getClearLocalDirThreads(), update.getRetainLocalFiles());
+    }
+
+    /**
+     * With {@code leaderListing} only the instance holding a lock under {@code sharedPath} lists
+     * the remote directories, and it queues the new files in {@link #sftpWorkQueue()}, from which
+     * {@link #sftpInboundFlow()} on every instance downloads. Listing cost on the server stays the
+     * same however many instances are added. When the leader stops, another instance takes over
+     * within about a second.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.leaderListing", havingValue = "true")
+    public LockRegistryLeaderInitiator sftpListingLeaderInitiator() throws IOException {
+        return new LockRegistryLeaderInitiator(
+                new FileLockRegistry(sharedPath().resolve("locks")), new DefaultCandidate(nodeId(), LISTING_ROLE));
+    }
 
-        public String getRemotePath() {
-            return remotePath;
+    /**
+     * Started on the elected leader only. What was queued is remembered under {@code sharedPath},
+     * so a new leader carries on where the previous one stopped.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.leaderListing", havingValue = "true")
+    public IntegrationFlow sftpListingFlow() throws IOException {
+        final ConcurrentMetadataStore listed = new SharedDirectoryMetadataStore(sharedPath().resolve("listed"));
+        final SftpChainFileListFilter filter = new SftpChainFileListFilter();
+        filter.addFilter(new SftpRegexPatternFileListFilter(update.getFilterExpr()));
+        if (update.isIncrementalListing()) {
+            filter.addFilter(new SftpWatermarkFileListFilter(
+                    listed, "sftpMessageSource", update.getWatermarkLookback()));
         }
+        final SftpRemoteFileIdentityFilter queued =
+                new SftpRemoteFileIdentityFilter(listed, "sftpMessageSource", update.getRemotePath());
+        queued.setRetention(update.getMetadataRetention());
+        filter.addFilter(queued);
+
+        final SharedWorkQueue queue = sftpWorkQueue();
+        return IntegrationFlows
+                .from(
+                        new SftpListingMessageSource(sftpSessionFactory, remoteDirectories(), filter),
+                        e -> e.id("sftpListingAdapter")
+                                .autoStartup(false)
+                                .role(LISTING_ROLE)
+                                .poller(Pollers.fixedRate(update.getPollingFrequency())))
+                .<List<SftpFileInfo>>handle((files, headers) -> {
+                    enqueue(files, queue, filter);
+                    return null;
+                })
+                .get();
+    }
+
+    /**
+     * The files listed by the leader, waiting to be downloaded by any instance. An instance that
+     * dies before its file is processed leaves it to the others after {@code claimTimeout} ms.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.leaderListing", havingValue = "true")
+    public SharedWorkQueue sftpWorkQueue() throws IOException {
+        return new SharedWorkQueue(sharedPath().resolve("queue"), update.getClaimTimeout());
+    }
+
+    /**
+     * Downloads what {@link #sftpWorkQueue()} holds, {@code downloadConcurrency} files at a time.
+     * A file stays leased until {@link #orderUpdateFlow()} has processed it, so {@code claimTimeout}
+     * must cover download and processing.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.leaderListing", havingValue = "true")
+    public SftpWorkQueueMessageSource sftpWorkQueueSource() throws IOException {
+        final SftpWorkQueueMessageSource source = new SftpWorkQueueMessageSource(sftpWorkQueue(),
+                sftpSessionFactory, resumableDownloader(), new File(update.getLocalPath()),
+                update.getDownloadConcurrency());
+        source.setLocalDirQuota(localDirQuota());
+        source.setPreserveTimestamp(update.isPreserveTimestamp());
+        source.setDeleteRemoteFiles(update.isDeleteRemoteFiles());
+        return source;
+    }
+
+    /**
+     * Streams each remote file straight into {@link FileProcessor#handleUpdateStream} on the worker
+     * pool instead of downloading it to {@code localPath} first. Every queued file holds a pooled
+     * session until a worker has processed it, which caps the queue, see {@link #updateFileExecutor()}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "stream")
+    public IntegrationFlow sftpStreamingInboundFlow(
+            final RemoteFileTemplate<ChannelSftp.LsEntry> sftpRemoteFileTemplate) throws IOException {
+
+        // Filter whole listings: filtering file by file, this streaming source skips the filter
+        // for the entry that follows a rejected one and emits already processed files again.
+        final FileListFilter<ChannelSftp.LsEntry> filter =
+                remoteFileFilter(new SftpChainFileListFilter() {
+                    @Override
+                    public boolean supportsSingleFileFiltering() {
+                        return false;
+                    }
+                });
+        final SftpStreamingInboundChannelAdapterSpec source = Sftp
+                .inboundStreamingAdapter(sftpRemoteFileTemplate)
+                .remoteDirectory(update.getRemotePath())
+                .filter(filter);
+        source.get().setFileInfoJson(false);
 
-        public void setRemotePath(final String remotePath) {
-            this.remotePath = remotePath;
+        return IntegrationFlows
+                .from(
+                        source,
+                        e -> e.id("sftpInboundAdapter")
+                                .autoStartup(true)
+                                .poller(poller()))
+                .channel(updateFileChannel())
+                .handle(new RemoteFileStreamHandler(updateFileProcessor(), filter, update.isDeleteRemoteFiles()))
+                .get();
+    }
+
+    /**
+     * Replaces the fixed-rate poller when {@code adaptivePolling} is enabled: polls back off while
+     * the remote directory stays empty and speed up again while files keep arriving.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.adaptivePolling", havingValue = "true")
+    public AdaptivePollingTrigger sftpPollingTrigger() {
+        final AdaptivePollingTrigger trigger = new AdaptivePollingTrigger(
+                "sftpInboundAdapter", update.getMinPollingFrequency(), update.getMaxPollingFrequency());
+        trigger.setBackoffMultiplier(update.getPollingBackoffMultiplier());
+        trigger.setJitter(update.getPollingJitter());
+        trigger.setInitialInterval(update.getPollingFrequency());
+        return trigger;
+    }
+
+    /**
+     * Lists and downloads remote files; with {@code downloadConcurrency > 1} the accepted files
+     * of each poll are fetched in parallel over separate sessions, otherwise one at a time.
+     * With a {@code partitionPattern} only the recent date-partitioned subdirectories are listed.
+     * With {@code resumableDownloads} an interrupted download is retried from the last checkpointed
+     * byte, up to {@code downloadAttempts} times with exponential backoff. Files of at least
+     * {@code segmentedDownloadThreshold} bytes are fetched as {@code downloadSegments} ranges in parallel.
+     * Polls are skipped while {@code localPath} holds {@code maxLocalBytes} or {@code maxLocalFiles}.
+     * With a {@code sharedPath} the instances sharing it split the remote files between them, see
+     * {@link #sftpFileClaimFilter()}. Remote files are only deleted, and remembered as fetched,
+     * once {@link #orderUpdateFlow()} has processed them. Not created with {@code leaderListing},
+     * where {@link #sftpWorkQueueSource()} downloads instead.
+     */
+    @Bean
+    @ConditionalOnExpression(SYNCHRONIZED)
+    public ParallelSftpInboundFileSynchronizer sftpInboundFileSynchronizer() throws IOException {
+        final ParallelSftpInboundFileSynchronizer synchronizer =
+                new ParallelSftpInboundFileSynchronizer(sftpSessionFactory, update.getDownloadConcurrency());
+        if (isCoordinated() && "directory".equals(update.getPartitionBy())) {
+            synchronizer.setRemoteDirectories(
+                    new PartitionedRemoteDirectories(remoteDirectories(), clusterMembership()));
+        } else if (StringUtils.hasText(update.getPartitionPattern())) {
+            synchronizer.setRemoteDirectories(remoteDirectories());
+        }
+        if (update.isResumableDownloads() || update.getSegmentedDownloadThreshold() > 0) {
+            synchronizer.setResumableDownloader(resumableDownloader());
         }
+        synchronizer.setLocalDirQuota(localDirQuota());
+        synchronizer.setPreserveTimestamp(update.isPreserveTimestamp());
+        synchronizer.setDeleteRemoteFiles(update.isDeleteRemoteFiles());
+        if (isCoordinated()) {
+            final SftpChainFileListFilter filter = new SftpChainFileListFilter();
+            filter.addFilter(new SftpRegexPatternFileListFilter(update.getFilterExpr()));
+            filter.addFilter(sftpFileClaimFilter());
+            synchronizer.setFilter(filter);
+        } else {
+            synchronizer.setFilter(remoteFileFilter(new SftpChainFileListFilter()));
+        }
+        synchronizer.setAwaitProcessing(true);
+        synchronizer.setRemoteDirectory(update.getRemotePath());
+        return synchronizer;
+    }
 
-        public int getPollingFrequency() {
-            return pollingFrequency;
+    /**
+     * The instances sharing {@code sharedPath}, found through heartbeats every
+     * {@code heartbeatInterval} ms and dropped after {@code memberTimeout} ms of silence.
+     * {@code nodeId} defaults to host name and process id.
+     */
+    @Bean
+    @ConditionalOnExpression(SYNCHRONIZED_SHARED)
+    public ClusterMembership clusterMembership() {
+        return new ClusterMembership(sharedPath().resolve("members"), nodeId(),
+                update.getHeartbeatInterval(), update.getMemberTimeout());
+    }
+
+    /**
+     * Claims remote files in a store under {@code sharedPath}, so instances polling the same
+     * directory never download a file twice. With {@code partitionBy=file} each instance only
+     * claims the file names it owns, with {@code partitionBy=directory} it only lists the
+     * directories it owns, and with {@code none} all instances race for every file. A claim
+     * is done once {@link #orderUpdateFlow()} has processed the file, and dropped after
+     * {@code metadataRetention} ms; one left open for {@code claimTimeout} ms, by an instance that
+     * died first, is taken over.
+     * <p>
+     * The claims replace the per-instance accept-once and watermark filters: files skipped by one
+     * instance's watermark would be lost when the instance that claimed them fails.
+     */
+    @Bean
+    @ConditionalOnExpression(SYNCHRONIZED_SHARED)
+    public SftpFileClaimFilter sftpFileClaimFilter() throws IOException {
+        final SftpFileClaimFilter claims = new SftpFileClaimFilter(
+                new SharedDirectoryMetadataStore(sharedPath().resolve("claims")),
+                "sftpMessageSource",
+                update.getRemotePath(),
+                "file".equals(update.getPartitionBy()) ? clusterMembership() : null,
+                update.getClaimTimeout());
+        claims.setRetention(update.getMetadataRetention());
+        return claims;
+    }
+
+    /**
+     * Measures the backlog in {@code localPath} before every poll and publishes it as
+     * {@code sftp.local.backlog.*}, whether or not limits are set.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "local", matchIfMissing = true)
+    public LocalDirQuota localDirQuota() {
+        return new LocalDirQuota(update.getMaxLocalBytes(), update.getMaxLocalFiles());
+    }
+
+    /**
+     * Hands downloaded files to a bounded worker pool so processing does not run on the poller thread.
+     * When the queue is full the poller processes the file itself, which throttles polling.
+     */
+    @Bean
+    public ExecutorChannel updateFileChannel() {
+        return new ExecutorChannel(updateFileExecutor());
+    }
+
+    /**
+     * {@code workerPoolSize} workers with a queue of {@code workerQueueCapacity} files. With
+     * {@code transfer=stream} and a session pool, queued files hold sessions too, so the queue is
+     * capped to leave one session for the poller once every worker holds one.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor updateFileExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(update.getWorkerPoolSize());
+        executor.setMaxPoolSize(update.getWorkerPoolSize());
+        executor.setQueueCapacity(workerQueueCapacity());
+        executor.setThreadNamePrefix("sftp-update-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    private int workerQueueCapacity() {
+        if (!"stream".equals(update.getTransfer()) || !(sftpSessionFactory instanceof PooledSftpSessionFactory)) {
+            return update.getWorkerQueueCapacity();
         }
+        final int poolSize = ((PooledSftpSessionFactory) sftpSessionFactory).getSize();
+        Assert.isTrue(update.getWorkerPoolSize() < poolSize,
+                "update workerPoolSize must be below the session pool size with transfer=stream.");
+        return Math.min(update.getWorkerQueueCapacity(), poolSize - update.getWorkerPoolSize() - 1);
+    }
 
-        public void setPollingFrequency(final int pollingFrequency) {
-            this.pollingFrequency = pollingFrequency;
+    /**
+     * Publishes queue depth, active workers and completed tasks of the worker pool as the
+     * {@code executor.*} meters, tagged {@code name=updateFileExecutor}.
+     */
+    @Bean
+    public MeterBinder updateFileExecutorMetrics() {
+        return registry -> new ExecutorServiceMetrics(
+                updateFileExecutor().getThreadPoolExecutor(), "updateFileExecutor", Tags.empty())
+                .bindTo(registry);
+    }
+
+    /**
+     * Processes downloaded files on the worker pool and reports each outcome to the synchronizer,
+     * or with {@code leaderListing} to {@link #sftpWorkQueueSource()}.
+     * A file that fails is moved out of {@code localPath}, see {@link #localFileProcessor()}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sftp.server.update.transfer", havingValue = "local", matchIfMissing = true)
+    public IntegrationFlow orderUpdateFlow() throws IOException {
+        final FileProcessor processor = new NotifyingFileProcessor(localFileProcessor(),
+                update.isLeaderListing() ? sftpWorkQueueSource() : sftpInboundFileSynchronizer());
+        return IntegrationFlows.from(updateFileChannel())
+                .handle(processor, "handleUpdate")
+                .get();
+    }
+
+    /**
+     * Remembers which remote files were already processed, for {@code metadataRetention} ms. With
+     * {@code metadataStorePath} set the entries are persisted, so a restart does not fetch the same
+     * files again.
+     */
+    @Bean
+    public ConcurrentMetadataStore sftpMetadataStore() throws IOException {
+        if (!StringUtils.hasText(update.getMetadataStorePath())) {
+            return new InMemoryMetadataStore();
         }
+        return new AppendOnlyFileMetadataStore(new File(update.getMetadataStorePath()));
+    }
 
-        public String getLocalPath() {
-            return localPath;
+    /**
+     * Segmented above {@code segmentedDownloadThreshold}; retried {@code downloadAttempts} times
+     * with {@code resumableDownloads}, otherwise tried once.
+     */
+    private ResumableSftpDownloader resumableDownloader() {
+        if (update.getSegmentedDownloadThreshold() > 0) {
+            return new SegmentedSftpDownloader(
+                    sftpSessionFactory,
+                    update.getDownloadAttempts(),
+                    update.getDownloadRetryBackoff(),
+                    update.getDownloadRetryMultiplier(),
+                    update.getDownloadRetryMaxBackoff(),
+                    update.getDownloadSegments(),
+                    update.getSegmentedDownloadThreshold(),
+                    update.getDownloadSegments() * update.getDownloadConcurrency());
         }
+        return new ResumableSftpDownloader(
+                sftpSessionFactory,
+                update.isResumableDownloads() ? update.getDownloadAttempts() : 1,
+                update.getDownloadRetryBackoff(),
+                update.getDownloadRetryMultiplier(),
+                update.getDownloadRetryMaxBackoff());
+    }
 
-        public void setLocalPath(final String localPath) {
-            this.localPath = localPath;
+    /**
+     * Resumable downloads keep their partial files and checkpoints across restarts.
+     */
+    private void clearLocalDir() throws IOException {
+        if (!update.isClearLocalDir()) {
+            return;
+        }
+        final String keepSuffix = update.isResumableDownloads() || update.getSegmentedDownloadThreshold() > 0
+                ? PARTIAL_FILE_SUFFIX
+                : null;
+        if (update.isAsyncClearLocalDir()) {
+            localDirCleaner().clear(update.getLocalPath(), keepSuffix);
+        } else {
+            FileUtils.clearLocalDir(update.getLocalPath(), keepSuffix);
         }
+    }
 
-        public String getFilterExpr() {
-            return filterExpr;
+    /**
+     * Queues the listed files in order; a file is remembered as queued only once it is, and the
+     * files from a failed one on are listed again by the next poll.
+     */
+    private static void enqueue(
+            final List<SftpFileInfo> files,
+            final SharedWorkQueue queue,
+            final SftpChainFileListFilter filter) {
+
+        final List<ChannelSftp.LsEntry> entries = new ArrayList<>(files.size());
+        files.forEach(file -> entries.add(file.getFileInfo()));
+        for (final SftpFileInfo file : files) {
+            try {
+                queue.offer(SftpWorkQueueMessageSource.assignment(file));
+            } catch (final RuntimeException e) {
+                filter.rollback(file.getFileInfo(), entries);
+                throw e;
+            }
+            filter.commit(file.getFileInfo());
         }
+    }
+
+    private boolean isCoordinated() {
+        return StringUtils.hasText(update.getSharedPath());
+    }
+
+    private Path sharedPath() {
+        Assert.hasText(update.getSharedPath(), "update sharedPath is missing.");
+        return Paths.get(update.getSharedPath());
+    }
+
+    private String nodeId() {
+        return StringUtils.hasText(update.getNodeId()) ? update.getNodeId() : ClusterMembership.defaultNodeId();
+    }
 
-        public void setFilterExpr(final String filterExpr) {
-            this.filterExpr = filterExpr;
+    /**
+     * The recent date partitions with a {@code partitionPattern}, otherwise just {@code remotePath}.
+     */
+    private Supplier<List<String>> remoteDirectories() {
+        if (StringUtils.hasText(update.getPartitionPattern())) {
+            return new DatePartitionedRemoteDirectories(
+                    update.getRemotePath(), update.getPartitionPattern(), update.getPartitionLookbackDays());
         }
+        return () -> Collections.singletonList(update.getRemotePath());
+    }
+
+    private FileListFilter<ChannelSftp.LsEntry> remoteFileFilter(final SftpChainFileListFilter filter)
+            throws IOException {
+
+        final SftpRemoteFileIdentityFilter acceptOnceFilter =
+                new SftpRemoteFileIdentityFilter(sftpMetadataStore(), "sftpMessageSource", update.getRemotePath());
+        acceptOnceFilter.setFlushOnUpdate(true);
+        acceptOnceFilter.setRetention(update.getMetadataRetention());
 
-        public boolean isClearLocalDir() {
-            return isClearLocalDir;
+        filter.addFilter(new SftpRegexPatternFileListFilter(update.getFilterExpr()));
+        if (update.isIncrementalListing()) {
+            filter.addFilter(new SftpWatermarkFileListFilter(
+                    sftpMetadataStore(), "sftpMessageSource", update.getWatermarkLookback()));
         }
+        filter.addFilter(acceptOnceFilter);
+        return filter;
+    }
+
+    /**
+     * The configured processor, behind a {@link DecompressingFileProcessor} when {@code decompress}
+     * is set so compressed files reach it already inflated.
+     */
+    private FileProcessor updateFileProcessor() {
+        return update.isDecompress() ? new DecompressingFileProcessor(fileProcessor) : fileProcessor;
+    }
+
+    /**
+     * The update processor for downloaded files. A file whose processing fails is moved to
+     * {@code failedPath}, by default {@code localPath} with a {@code .failed} suffix, to be fetched
+     * again; with {@code deleteProcessedFiles} a processed one is deleted.
+     */
+    private FileProcessor localFileProcessor() {
+        final FileProcessor processor = update.isDeleteProcessedFiles()
+                ? new DeletingFileProcessor(updateFileProcessor(), localFilter)
+                : updateFileProcessor();
+        final String failedPath = StringUtils.hasText(update.getFailedPath())
+                ? update.getFailedPath()
+                : StringUtils.trimTrailingCharacter(update.getLocalPath(), '/') + ".failed";
+        return new QuarantiningFileProcessor(processor, new File(failedPath), localFilter);
+    }
 
-        public void setClearLocalDir(final boolean clearLocalDir) {
-            isClearLocalDir = clearLocalDir;
+    private PollerSpec poller() {
+        if (!update.isAdaptivePolling()) {
+            return Pollers.fixedRate(update.getPollingFrequency())
+                    .maxMessagesPerPoll(update.getMaxMessagesPerPoll());
         }
+        final AdaptivePollingTrigger trigger = sftpPollingTrigger();
+        return Pollers.trigger(trigger)
+                .advice(trigger)
+                .maxMessagesPerPoll(update.getMaxMessagesPerPoll());
     }
 }
@@ -0,0 +1,70 @@
+package com.rmurugaian.spring.config;
+
+/**
+ * Session pool settings, bound under {@code sftp.server.pool}. Times are in milliseconds.
+ */
+public class SftpPoolConfig {
+    private boolean enabled = true;
+    private int size = 8;
+    private long maxWait = 30000;
+    private long maxIdleTime = 60000;
+    private long maxAge = 1800000;
+    private boolean validateOnBorrow = true;
+    private long evictionInterval = 30000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(final int size) {
+        this.size = size;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(final long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(final long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(final long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public void setValidateOnBorrow(final boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(final long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+}
@@ -0,0 +1,68 @@
+package com.rmurugaian.spring.config;
+
+/**
+ * Transfer tuning settings, bound under {@code sftp.server.tuning}. Sizes are in bytes.
+ */
+public class SftpTuningConfig {
+
+    private boolean pipelinedReads = true;
+    private int bulkRequests = 64;
+    private int bufferSize = 262144;
+    private String ciphers;
+    private String compression = "none";
+
+    public boolean isPipelinedReads() {
+        return pipelinedReads;
+    }
+
+    public void setPipelinedReads(final boolean pipelinedReads) {
+        this.pipelinedReads = pipelinedReads;
+    }
+
+    /**
+     * Read requests kept in flight per transfer; JSch defaults to 16. The SSH channel window holds
+     * about 64 requests, so larger values gain nothing.
+     */
+    public int getBulkRequests() {
+        return bulkRequests;
+    }
+
+    public void setBulkRequests(final int bulkRequests) {
+        this.bulkRequests = bulkRequests;
+    }
+
+    /**
+     * Bytes buffered before a pipelined read writes to its destination.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Ciphers to offer, in order of preference, e.g. {@code aes128-ctr,aes256-ctr}; JSch's own list
+     * when empty.
+     */
+    public String getCiphers() {
+        return ciphers;
+    }
+
+    public void setCiphers(final String ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    /**
+     * Compression to offer; {@code zlib@openssh.com,zlib} only pays off on slow links and needs
+     * {@code com.jcraft:jzlib} on the classpath.
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(final String compression) {
+        this.compression = compression;
+    }
+}
@@ -0,0 +1,229 @@
+package com.rmurugaian.spring.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PrunableMetadataStore} kept in memory and persisted as an append-only log, so entries
+ * survive restarts.
+ * <p>
+ * Every change appends one line; the log is replayed on startup. Once the log holds more than
+ * {@code compactionThreshold} obsolete lines it is rewritten as a snapshot of the live entries and
+ * atomically swapped in. A truncated last line left by a crash is skipped on replay.
+ */
+public class AppendOnlyFileMetadataStore implements PrunableMetadataStore, Flushable, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlyFileMetadataStore.class);
+
+    private static final char PUT = 'P';
+    private static final char REMOVE = 'R';
+    private static final char SEPARATOR = '\t';
+
+    private final Path log;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final int compactionThreshold;
+
+    private Writer writer;
+    private long logRecords;
+
+    public AppendOnlyFileMetadataStore(final File file) throws IOException {
+        this(file, 10000);
+    }
+
+    public AppendOnlyFileMetadataStore(final File file, final int compactionThreshold) throws IOException {
+        this.log = file.toPath();
+        this.compactionThreshold = compactionThreshold;
+
+        final Path parent = log.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (Files.exists(log)) {
+            replay();
+        }
+        compact();
+    }
+
+    @Override
+    public synchronized void put(final String key, final String value) {
+        entries.put(key, value);
+        append(PUT, key, value);
+    }
+
+    @Override
+    public String get(final String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized String remove(final String key) {
+        final String removed = entries.remove(key);
+        if (removed != null) {
+            append(REMOVE, key, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized String putIfAbsent(final String key, final String value) {
+        final String existing = entries.putIfAbsent(key, value);
+        if (existing == null) {
+            append(PUT, key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public synchronized boolean replace(final String key, final String oldValue, final String newValue) {
+        final boolean replaced = entries.replace(key, oldValue, newValue);
+        if (replaced) {
+            append(PUT, key, newValue);
+        }
+        return replaced;
+    }
+
+    @Override
+    public synchronized int prune(final Predicate<String> values) {
+        final List<String> pruned = entries.entrySet().stream()
+            .filter(entry -> values.test(entry.getValue()))
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+        pruned.forEach(this::remove);
+        return pruned.size();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Closes the log file; a later change reopens it, as the inbound adapter closes its filters
+     * whenever it is stopped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Rewrites the log so it holds one line per live entry.
+     */
+    public synchronized void compact() throws IOException {
+        close();
+        final Path snapshot = log.resolveSibling(log.getFileName() + ".compact");
+        try (Writer out = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            for (final Map.Entry<String, String> entry : entries.entrySet()) {
+                writeLine(out, PUT, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(snapshot, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logRecords = entries.size();
+    }
+
+    private void replay() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf(SEPARATOR, 2);
+                if (line.length() > 2 && line.charAt(0) == PUT && separator > 0) {
+                    entries.put(unescape(line.substring(2, separator)), unescape(line.substring(separator + 1)));
+                } else if (line.length() > 2 && line.charAt(0) == REMOVE) {
+                    entries.remove(unescape(line.substring(2)));
+                } else {
+                    logger.warn("Skipping malformed metadata record in {}", log);
+                }
+            }
+        }
+        logger.info("Loaded {} metadata entries from {}", entries.size(), log);
+    }
+
+    private void append(final char operation, final String key, final String value) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(
+                    log, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writeLine(writer, operation, key, value);
+            if (++logRecords - entries.size() > compactionThreshold) {
+                compact();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to write metadata to " + log, e);
+        }
+    }
+
+    private static void writeLine(final Writer out, final char operation, final String key, final String value)
+        throws IOException {
+
+        out.write(operation);
+        out.write(SEPARATOR);
+        out.write(escape(key));
+        if (value != null) {
+            out.write(SEPARATOR);
+            out.write(escape(value));
+        }
+        out.write('\n');
+    }
+
+    private static String escape(final String text) {
+        final StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(final String text) {
+        final StringBuilder unescaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            final char next = text.charAt(++i);
+            unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.rmurugaian.spring.metadata;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * {@link SimpleMetadataStore} that can be pruned.
+ */
+public class InMemoryMetadataStore extends SimpleMetadataStore implements PrunableMetadataStore {
+
+    private final ConcurrentMap<String, String> entries;
+
+    public InMemoryMetadataStore() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private InMemoryMetadataStore(final ConcurrentMap<String, String> entries) {
+        super(entries);
+        this.entries = entries;
+    }
+
+    @Override
+    public int prune(final Predicate<String> values) {
+        int pruned = 0;
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            if (values.test(entry.getValue()) && entries.remove(entry.getKey(), entry.getValue())) {
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+}
@@ -0,0 +1,17 @@
+package com.rmurugaian.spring.metadata;
+
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+
+import java.util.function.Predicate;
+
+/**
+ * {@link ConcurrentMetadataStore} whose entries can be dropped by value, so stores that remember
+ * every file ever fetched can expire the old ones.
+ */
+public interface PrunableMetadataStore extends ConcurrentMetadataStore {
+
+    /**
+     * Removes the entries whose value matches, and returns how many were removed.
+     */
+    int prune(Predicate<String> values);
+}
@@ -0,0 +1,212 @@
+package com.rmurugaian.spring.metadata;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * {@link PrunableMetadataStore} kept as one file per entry in a directory that several processes
+ * share, e.g. on a network file system, so the instances of a cluster can coordinate through it
+ * without a database.
+ * <p>
+ * Entry files are named after a hash of the key. {@link #putIfAbsent} publishes a complete file
+ * with a hard link, which fails atomically when the entry exists. The other changes write the
+ * entry under an exclusive lock on one of a fixed number of lock files, taken with
+ * {@link FileChannel#lock()} across processes, and move it into place atomically. The file system
+ * must support hard links, atomic renames and {@code fcntl} locks, as local file systems and NFSv4
+ * do.
+ */
+public class SharedDirectoryMetadataStore implements PrunableMetadataStore {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    private final Path lockDirectory;
+    private final ReentrantLock[] localLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public SharedDirectoryMetadataStore(final Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.lockDirectory = Files.createDirectories(directory.resolve("locks"));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            localLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public String get(final String key) {
+        try {
+            return read(entry(key));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read metadata from " + directory, e);
+        }
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        final Path entry = entry(key);
+        try {
+            locked(entry, () -> {
+                move(write(entry, value), entry);
+                return null;
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to write metadata to " + directory, e);
+        }
+    }
+
+    @Override
+    public String putIfAbsent(final String key, final String value) {
+        final Path entry = entry(key);
+        try {
+            final Path written = write(entry, value);
+            try {
+                while (true) {
+                    try {
+                        Files.createLink(entry, written);
+                        return null;
+                    } catch (final FileAlreadyExistsException e) {
+                        final String existing = read(entry);
+                        if (existing != null) {
+                            return existing;
+                        }
+                        // Removed in the meantime; try again.
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(written);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to write metadata to " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean replace(final String key, final String oldValue, final String newValue) {
+        final Path entry = entry(key);
+        try {
+            return locked(entry, () -> {
+                if (!oldValue.equals(read(entry))) {
+                    return false;
+                }
+                move(write(entry, newValue), entry);
+                return true;
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to write metadata to " + directory, e);
+        }
+    }
+
+    @Override
+    public String remove(final String key) {
+        final Path entry = entry(key);
+        try {
+            return locked(entry, () -> {
+                final String removed = read(entry);
+                Files.deleteIfExists(entry);
+                return removed;
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to remove metadata from " + directory, e);
+        }
+    }
+
+    /**
+     * Walks every entry file, so prune at intervals rather than per poll.
+     */
+    @Override
+    public int prune(final Predicate<String> values) {
+        int pruned = 0;
+        try (DirectoryStream<Path> buckets = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (final Path bucket : buckets) {
+                if (bucket.equals(lockDirectory)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(bucket, "[0-9a-f]*[0-9a-f]")) {
+                    for (final Path entry : entries) {
+                        if (prune(entry, values)) {
+                            pruned++;
+                        }
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to prune metadata in " + directory, e);
+        }
+        return pruned;
+    }
+
+    private boolean prune(final Path entry, final Predicate<String> values) throws IOException {
+        final String value = read(entry);
+        if (value == null || !values.test(value)) {
+            return false;
+        }
+        return locked(entry, () -> {
+            final String current = read(entry);
+            return current != null && values.test(current) && Files.deleteIfExists(entry);
+        });
+    }
+
+    private Path entry(final String key) {
+        final String hash = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String read(final Path entry) throws IOException {
+        try {
+            return new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the value to a temporary file next to the entry, to be moved or linked into place.
+     */
+    private static Path write(final Path entry, final String value) throws IOException {
+        final Path parent = Files.createDirectories(entry.getParent());
+        final Path temporary = Files.createTempFile(parent, entry.getFileName().toString(), ".tmp");
+        Files.write(temporary, value.getBytes(StandardCharsets.UTF_8));
+        return temporary;
+    }
+
+    private static void move(final Path written, final Path entry) throws IOException {
+        Files.move(written, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private <T> T locked(final Path entry, final LockedAction<T> action) throws IOException {
+        final int stripe = Math.floorMod(entry.getFileName().hashCode(), LOCK_STRIPES);
+        // File locks are held per process, so threads of this one queue up on a local lock first.
+        final ReentrantLock localLock = localLocks[stripe];
+        localLock.lock();
+        try (FileChannel lockFile = FileChannel.open(lockDirectory.resolve(Integer.toString(stripe)),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            final FileLock lock = lockFile.lock();
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,277 @@
+package com.rmurugaian.spring.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecordHandler} that collects records into batches of {@code batchSize} and hands them to
+ * a {@link RecordSink} on {@code writers} background threads, so reading continues while earlier
+ * batches are written.
+ * <p>
+ * Every reading thread fills its own batch, which keeps the records of one file together and lets
+ * {@link #flush()} wait for exactly the batches of the file just read; a failed write surfaces
+ * there. Once {@code maxPendingBatches} batches are queued, the reading thread waits for room before
+ * queueing its next batch, which throttles reading to the speed of the sink. With {@link #start} a
+ * batch that has not filled up is written after {@code flushInterval}. With a single writer the
+ * batches of a reading thread are written in the order they were filled.
+ * <p>
+ * Batch writes are timed as {@code sftp.sink.write} by outcome, batch sizes recorded as
+ * {@code sftp.sink.batch.size} and queued batches published as {@code sftp.sink.queued}.
+ */
+public class BatchingRecordHandler implements RecordHandler, MeterBinder, DisposableBean {
+
+    private final RecordSink<String> sink;
+    private final int batchSize;
+    private final ThreadPoolExecutor writers;
+    private final ThreadLocal<Batch> batch;
+    private final Set<Batch> batches = ConcurrentHashMap.newKeySet();
+
+    private volatile Duration flushInterval;
+    private volatile ScheduledFuture<?> scheduledFlush;
+    private volatile Timer succeeded;
+    private volatile Timer failed;
+    private volatile DistributionSummary batchSizes;
+
+    public BatchingRecordHandler(
+        final RecordSink<String> sink,
+        final int batchSize,
+        final int writers,
+        final int maxPendingBatches) {
+
+        Assert.isTrue(batchSize > 0, "batchSize must be positive.");
+        Assert.isTrue(writers > 0, "writers must be positive.");
+        Assert.isTrue(maxPendingBatches > 0, "maxPendingBatches must be positive.");
+
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.writers = new ThreadPoolExecutor(writers, writers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxPendingBatches), new CustomizableThreadFactory("record-sink-"));
+        // Batches may be put on the queue directly, so every writer has to be running.
+        this.writers.prestartAllCoreThreads();
+        this.batch = ThreadLocal.withInitial(() -> {
+            final Batch created = new Batch();
+            batches.add(created);
+            return created;
+        });
+    }
+
+    /**
+     * Writes batches that have waited {@code flushInterval} without filling up, checking on the
+     * given scheduler until destroyed.
+     */
+    public void start(final TaskScheduler taskScheduler, final Duration flushInterval) {
+        this.flushInterval = flushInterval;
+        this.scheduledFlush = taskScheduler.scheduleWithFixedDelay(this::flushExpired, flushInterval.dividedBy(2));
+    }
+
+    @Override
+    public void handle(final CharSequence record) {
+        final Batch current = batch.get();
+        // Queued under the lock, so a batch expiring at the same time cannot overtake this one.
+        synchronized (current) {
+            if (current.records.isEmpty()) {
+                current.started = System.nanoTime();
+            }
+            current.records.add(record.toString());
+            if (current.records.size() >= batchSize) {
+                current.track(submit(current.take(), true));
+            }
+        }
+    }
+
+    /**
+     * Writes what is left of this thread's batch and waits until every batch it filled since the
+     * last flush has been written.
+     *
+     * @throws IOException when one of these batches could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        final Batch current = batch.get();
+        synchronized (current) {
+            if (!current.records.isEmpty()) {
+                current.track(submit(current.take(), true));
+            }
+        }
+
+        IOException failure = null;
+        for (final Future<?> write : current.drain()) {
+            try {
+                write.get();
+            } catch (final ExecutionException e) {
+                final IOException error = new IOException("Failed to write a batch of records", e.getCause());
+                if (failure == null) {
+                    failure = error;
+                } else {
+                    failure.addSuppressed(error);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing records");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        succeeded = writeTimer("success").register(registry);
+        failed = writeTimer("failure").register(registry);
+        batchSizes = DistributionSummary.builder("sftp.sink.batch.size")
+            .description("Records per batch written to the record sink")
+            .baseUnit("records")
+            .register(registry);
+        Gauge.builder("sftp.sink.queued", writers, executor -> executor.getQueue().size())
+            .description("Batches waiting for a record sink writer")
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        writers.shutdown();
+        writers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void flushExpired() {
+        final long now = System.nanoTime();
+        for (final Batch candidate : batches) {
+            synchronized (candidate) {
+                if (candidate.records.isEmpty() || now - candidate.started < flushInterval.toNanos()) {
+                    continue;
+                }
+                final List<String> expired = candidate.take();
+                final Future<?> write = submit(expired, false);
+                if (write != null) {
+                    candidate.track(write);
+                } else {
+                    // The writers are busy; leave the records for the reader or the next check.
+                    candidate.records = expired;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a batch for the writers. When the queue is full the calling thread waits for room if
+     * {@code await}, otherwise the batch is not accepted and {@code null} is returned.
+     */
+    private Future<?> submit(final List<String> records, final boolean await) {
+        final FutureTask<Void> write = new FutureTask<>(() -> {
+            write(records);
+            return null;
+        });
+        try {
+            writers.execute(write);
+        } catch (final RejectedExecutionException e) {
+            if (!await) {
+                return null;
+            }
+            if (writers.isShutdown()) {
+                throw e;
+            }
+            try {
+                writers.getQueue().put(write);
+            } catch (final InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                final CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new InterruptedIOException("Interrupted while queueing records"));
+                return failed;
+            }
+        }
+        return write;
+    }
+
+    private void write(final List<String> records) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            sink.write(records);
+            record(succeeded, start);
+            if (batchSizes != null) {
+                batchSizes.record(records.size());
+            }
+        } catch (final Exception e) {
+            record(failed, start);
+            throw e;
+        }
+    }
+
+    private static void record(final Timer timer, final long start) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer.Builder writeTimer(final String outcome) {
+        return Timer.builder("sftp.sink.write")
+            .description("Time to write one batch to the record sink")
+            .tag("outcome", outcome);
+    }
+
+    /**
+     * Records collected by one reading thread, and its batches still being written.
+     */
+    private final class Batch {
+
+        private List<String> records = new ArrayList<>(batchSize);
+        private long started;
+        private final List<Future<?>> pending = new ArrayList<>();
+
+        private List<String> take() {
+            final List<String> taken = records;
+            records = new ArrayList<>(batchSize);
+            return taken;
+        }
+
+        private synchronized void track(final Future<?> write) {
+            pending.removeIf(done -> done.isDone() && !failed(done));
+            pending.add(write);
+        }
+
+        private synchronized List<Future<?>> drain() {
+            final List<Future<?>> drained = new ArrayList<>(pending);
+            pending.clear();
+            return drained;
+        }
+
+        private boolean failed(final Future<?> write) {
+            try {
+                write.get();
+                return false;
+            } catch (final ExecutionException e) {
+                return true;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+    }
+}
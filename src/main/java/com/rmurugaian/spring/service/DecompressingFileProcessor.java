@@ -0,0 +1,153 @@
+package com.rmurugaian.spring.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Decorates a {@link FileProcessor} so gzip, zstd and zip files are inflated on the fly and the
+ * delegate sees the plain content through {@link FileProcessor#handleUpdateStream}. The format is
+ * taken from the extension ({@code .gz}, {@code .zst}, {@code .zip}) or else from the magic bytes;
+ * other files are passed through unchanged. Each entry of a zip is handed on separately, under its
+ * entry name, and compressed files are named without their compression extension.
+ * <p>
+ * Nothing is inflated to disk or onto the heap, unless the delegate itself spools its stream input.
+ */
+public class DecompressingFileProcessor implements FileProcessor {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final String[] COMPRESSED_EXTENSIONS = {".gz", ".gzip", ".zst", ".zstd"};
+
+    enum Compression {
+        NONE, GZIP, ZSTD, ZIP
+    }
+
+    private final FileProcessor delegate;
+
+    public DecompressingFileProcessor(final FileProcessor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        try {
+            final Compression compression;
+            try (InputStream in = open(sftpFile)) {
+                compression = detect(sftpFile.getName(), in);
+            }
+            if (compression == Compression.NONE) {
+                delegate.handleUpdate(sftpFile);
+                return;
+            }
+            try (InputStream in = open(sftpFile)) {
+                decompress(compression, sftpFile.getName(), in);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to process " + sftpFile, e);
+        }
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        final InputStream in = new BufferedInputStream(stream, BUFFER_SIZE);
+        final Compression compression = detect(fileName, in);
+        if (compression == Compression.NONE) {
+            delegate.handleUpdateStream(fileName, in);
+            return;
+        }
+        decompress(compression, fileName, in);
+    }
+
+    /**
+     * Detects the compression of a file from its name, or from the first bytes of {@code in}, which
+     * must support mark and reset.
+     */
+    static Compression detect(final String fileName, final InputStream in) throws IOException {
+        final String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+            return Compression.GZIP;
+        }
+        if (name.endsWith(".zst") || name.endsWith(".zstd")) {
+            return Compression.ZSTD;
+        }
+        if (name.endsWith(".zip")) {
+            return Compression.ZIP;
+        }
+        final byte[] magic = new byte[4];
+        in.mark(magic.length);
+        int n = 0;
+        int read;
+        while (n < magic.length && (read = in.read(magic, n, magic.length - n)) != -1) {
+            n += read;
+        }
+        in.reset();
+        if (n >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return Compression.GZIP;
+        }
+        if (n == 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+            && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return Compression.ZSTD;
+        }
+        if (n == 4 && magic[0] == 'P' && magic[1] == 'K'
+            && ((magic[2] == 3 && magic[3] == 4) || (magic[2] == 5 && magic[3] == 6))) {
+            return Compression.ZIP;
+        }
+        return Compression.NONE;
+    }
+
+    private void decompress(final Compression compression, final String fileName, final InputStream in)
+        throws IOException {
+
+        // The source stream belongs to the caller; closing the decompressor only frees its native buffers.
+        final InputStream source = StreamUtils.nonClosing(in);
+        switch (compression) {
+            case GZIP:
+                try (InputStream inflated = new GZIPInputStream(source, BUFFER_SIZE)) {
+                    delegate.handleUpdateStream(stripExtension(fileName), inflated);
+                }
+                break;
+            case ZSTD:
+                try (InputStream inflated = new BufferedInputStream(new ZstdInputStream(source), BUFFER_SIZE)) {
+                    delegate.handleUpdateStream(stripExtension(fileName), inflated);
+                }
+                break;
+            case ZIP:
+                try (ZipInputStream zip = new ZipInputStream(source)) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (!entry.isDirectory()) {
+                            delegate.handleUpdateStream(entry.getName(), StreamUtils.nonClosing(zip));
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not compressed: " + fileName);
+        }
+    }
+
+    private static InputStream open(final File file) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+    }
+
+    private static String stripExtension(final String fileName) {
+        final String name = fileName.toLowerCase(Locale.ROOT);
+        for (final String extension : COMPRESSED_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return fileName.substring(0, fileName.length() - extension.length());
+            }
+        }
+        return fileName;
+    }
+}
@@ -1,29 +1,69 @@
 package com.rmurugaian.spring.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.List;
 
 /**
  * @author rmurugaian 2019-10-17
  */
 @Component
-public class DefaultFileProcessor implements FileProcessor {
+@ConditionalOnProperty(name = "sftp.server.update.processor", havingValue = "default", matchIfMissing = true)
+public class DefaultFileProcessor implements FileProcessor, MeterBinder {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultFileProcessor.class);
 
+    private final FileProcessorMetrics metrics = new FileProcessorMetrics("default");
+
     @Override
     public void handleUpdate(final File sftpFile) {
         logger.warn("File FReceived ******* {}", sftpFile.getName());
+        final long start = metrics.start();
+        try {
+            final List<String> lines = Files.readAllLines(sftpFile.toPath());
+            lines.forEach(logger::warn);
+            metrics.processed(sftpFile, start, lines.size());
+        } catch (final IOException e) {
+            metrics.failed(start);
+            throw new UncheckedIOException("Failed to process " + sftpFile, e);
+        }
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        logger.warn("File FReceived ******* {}", fileName);
+        final long start = metrics.start();
+        final CountingInputStream counted = new CountingInputStream(stream);
         try {
-            Files.readAllLines(sftpFile.toPath())
-                .forEach(logger::warn);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8));
+            long lines = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.warn(line);
+                lines++;
+            }
+            metrics.processed(start, lines, counted.getCount());
         } catch (final IOException e) {
-            logger.error("error {}", e.getMessage());
+            metrics.failed(start);
+            throw e;
         }
     }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        metrics.bindTo(registry);
+    }
 }
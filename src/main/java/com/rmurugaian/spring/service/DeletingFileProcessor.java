@@ -0,0 +1,47 @@
+package com.rmurugaian.spring.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Decorates a {@link FileProcessor} so downloaded files are deleted from the local directory once
+ * {@link FileProcessor#handleUpdate(File)} has returned, keeping the directory down to the files
+ * still waiting for processing. A file whose processing throws is kept.
+ * <p>
+ * The file is also removed from the local filter of the inbound source, so the filter does not
+ * grow without bound and a later file of the same name is picked up again.
+ */
+public class DeletingFileProcessor implements FileProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletingFileProcessor.class);
+
+    private final FileProcessor delegate;
+    private final ResettableFileListFilter<File> localFilter;
+
+    public DeletingFileProcessor(final FileProcessor delegate, final ResettableFileListFilter<File> localFilter) {
+        this.delegate = delegate;
+        this.localFilter = localFilter;
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        delegate.handleUpdate(sftpFile);
+        try {
+            Files.deleteIfExists(sftpFile.toPath());
+            localFilter.remove(sftpFile);
+        } catch (final IOException e) {
+            logger.warn("Could not delete processed file {}: {}", sftpFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        delegate.handleUpdateStream(fileName, stream);
+    }
+}
@@ -1,10 +1,35 @@
 package com.rmurugaian.spring.service;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * @author rmurugaian 2019-10-17
  */
 public interface FileProcessor {
+
+    /**
+     * Processes a downloaded file. Failures are thrown, read errors as an
+     * {@link java.io.UncheckedIOException}, so the caller can keep the file for another attempt.
+     */
     void handleUpdate(File sftpFile);
+
+    /**
+     * Processes a file straight from the transfer stream, without a local copy. As with
+     * {@link #handleUpdate(File)}, failures are thrown so the caller can keep the remote file for
+     * another attempt. Implementations that need random access fall back to this default, which
+     * spools the stream to a temporary file first.
+     */
+    default void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        final File spooled = File.createTempFile("sftp-update-", ".tmp");
+        try {
+            Files.copy(stream, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            handleUpdate(spooled);
+        } finally {
+            Files.deleteIfExists(spooled.toPath());
+        }
+    }
 }
@@ -0,0 +1,73 @@
+package com.rmurugaian.spring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters shared by the {@link FileProcessor} implementations, tagged with the processor name:
+ * {@code sftp.update.processing} times each file by outcome, {@code sftp.update.records} and
+ * {@code sftp.update.bytes} count what was processed. Recording is a no-op until bound.
+ */
+public class FileProcessorMetrics implements MeterBinder {
+
+    private final String processor;
+
+    private volatile Timer succeeded;
+    private volatile Timer failed;
+    private volatile Counter records;
+    private volatile Counter bytes;
+
+    public FileProcessorMetrics(final String processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        succeeded = processingTimer("success").register(registry);
+        failed = processingTimer("failure").register(registry);
+        records = Counter.builder("sftp.update.records")
+            .description("Records handed on by the file processor")
+            .tag("processor", processor)
+            .baseUnit("records")
+            .register(registry);
+        bytes = Counter.builder("sftp.update.bytes")
+            .description("Bytes of successfully processed files")
+            .tag("processor", processor)
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void processed(final File file, final long start, final long recordCount) {
+        processed(start, recordCount, file.length());
+    }
+
+    public void processed(final long start, final long recordCount, final long byteCount) {
+        if (succeeded != null) {
+            succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            records.increment(recordCount);
+            bytes.increment(byteCount);
+        }
+    }
+
+    public void failed(final long start) {
+        if (failed != null) {
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer.Builder processingTimer(final String outcome) {
+        return Timer.builder("sftp.update.processing")
+            .description("Time to process one downloaded file")
+            .tag("processor", processor)
+            .tag("outcome", outcome);
+    }
+}
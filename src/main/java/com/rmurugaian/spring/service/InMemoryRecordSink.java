@@ -0,0 +1,33 @@
+package com.rmurugaian.spring.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reference {@link RecordSink} that keeps every batch in memory, for tests and local runs.
+ */
+public class InMemoryRecordSink<T> implements RecordSink<T> {
+
+    private final List<List<T>> batches = new ArrayList<>();
+
+    @Override
+    public synchronized void write(final List<T> batch) {
+        batches.add(new ArrayList<>(batch));
+    }
+
+    /**
+     * The batches written so far, in the order they were written.
+     */
+    public synchronized List<List<T>> getBatches() {
+        return new ArrayList<>(batches);
+    }
+
+    public synchronized List<T> getRecords() {
+        return batches.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    public synchronized void clear() {
+        batches.clear();
+    }
+}
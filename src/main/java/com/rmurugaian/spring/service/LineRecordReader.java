@@ -0,0 +1,159 @@
+package com.rmurugaian.spring.service;
+
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Splits a byte stream into line records using a single fixed-size buffer.
+ * <p>
+ * Memory use is bounded by {@code maxRecordLength} whatever the size of the input; a record
+ * longer than that fails the read. Records are handed to the {@link RecordHandler}, or parsed by a
+ * {@link RecordParser} for a {@link ParsedRecordHandler}, on the calling thread, so the reader
+ * never gets ahead of the handler. Instances are not thread-safe.
+ */
+public class LineRecordReader {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final int maxRecordLength;
+    private final ByteBuffer buffer;
+    private final CharBuffer record;
+    private final CharsetDecoder decoder;
+
+    public LineRecordReader(final int maxRecordLength, final Charset charset) {
+        Assert.isTrue(maxRecordLength > 0, "maxRecordLength must be positive.");
+
+        this.maxRecordLength = maxRecordLength;
+        // Room for a record of the maximum length and its CR LF terminator.
+        this.buffer = ByteBuffer.allocate(maxRecordLength + 2);
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.record = CharBuffer.allocate((int) Math.ceil(maxRecordLength * (double) decoder.maxCharsPerByte()));
+    }
+
+    /**
+     * Reads the channel to its end, handing every line to the handler.
+     *
+     * @return the number of records read
+     */
+    public long read(final ReadableByteChannel channel, final RecordHandler handler) throws IOException {
+        return read(channel, (source, start, end) -> emit(source, start, end, handler));
+    }
+
+    /**
+     * Hands every line between the position and the limit of {@code source} to the handler,
+     * treating trailing bytes without a line terminator as the last record.
+     *
+     * @return the number of records read
+     */
+    public long read(final ByteBuffer source, final RecordHandler handler) throws IOException {
+        return drain(source, (line, start, end) -> emit(line, start, end, handler), true);
+    }
+
+    /**
+     * Reads the channel to its end, handing every line to the handler as parsed by {@code parser}.
+     * Lines are parsed straight from the read buffer, without decoding them into text first.
+     *
+     * @return the number of records read
+     */
+    public long read(final ReadableByteChannel channel, final RecordParser parser, final ParsedRecordHandler handler)
+        throws IOException {
+
+        return read(channel, (source, start, end) -> handler.handle(parser.parse(source, start, end)));
+    }
+
+    /**
+     * Hands every line between the position and the limit of {@code source} to the handler as parsed
+     * by {@code parser}, treating trailing bytes without a line terminator as the last record.
+     *
+     * @return the number of records read
+     */
+    public long read(final ByteBuffer source, final RecordParser parser, final ParsedRecordHandler handler)
+        throws IOException {
+
+        return drain(source, (line, start, end) -> handler.handle(parser.parse(line, start, end)), true);
+    }
+
+    private long read(final ReadableByteChannel channel, final LineConsumer consumer) throws IOException {
+        buffer.clear();
+        long records = 0;
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            records += drain(buffer, consumer, false);
+            if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                throw new IOException("Record exceeds " + maxRecordLength + " bytes.");
+            }
+            buffer.compact();
+        }
+        buffer.flip();
+        records += drain(buffer, consumer, true);
+        return records;
+    }
+
+    private long drain(final ByteBuffer source, final LineConsumer consumer, final boolean endOfInput)
+        throws IOException {
+
+        final int limit = source.limit();
+        long records = 0;
+        int start = source.position();
+        for (int i = start; i < limit; i++) {
+            if (source.get(i) == LF) {
+                line(source, start, i, consumer);
+                records++;
+                start = i + 1;
+            }
+        }
+        if (endOfInput && start < limit) {
+            line(source, start, limit, consumer);
+            records++;
+            start = limit;
+        }
+        source.position(start);
+        return records;
+    }
+
+    private void line(final ByteBuffer source, final int start, final int end, final LineConsumer consumer)
+        throws IOException {
+
+        final int recordEnd = end > start && source.get(end - 1) == CR ? end - 1 : end;
+        if (recordEnd - start > maxRecordLength) {
+            throw new IOException("Record exceeds " + maxRecordLength + " bytes.");
+        }
+        consumer.accept(source, start, recordEnd);
+    }
+
+    private void emit(final ByteBuffer source, final int start, final int end, final RecordHandler handler)
+        throws IOException {
+
+        final int limit = source.limit();
+        source.limit(end).position(start);
+        record.clear();
+        decoder.reset();
+        final CoderResult result = decoder.decode(source, record, true);
+        source.limit(limit);
+        if (result.isError() || result.isOverflow()) {
+            result.throwException();
+        }
+        decoder.flush(record);
+        record.flip();
+        handler.handle(record);
+    }
+
+    /**
+     * Receives the bytes of one line, without its terminator.
+     */
+    @FunctionalInterface
+    private interface LineConsumer {
+        void accept(ByteBuffer source, int start, int end) throws IOException;
+    }
+}
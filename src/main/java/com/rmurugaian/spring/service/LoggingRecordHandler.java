@@ -0,0 +1,17 @@
+package com.rmurugaian.spring.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RecordHandler} used when no other handler is configured; logs every record.
+ */
+public class LoggingRecordHandler implements RecordHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingRecordHandler.class);
+
+    @Override
+    public void handle(final CharSequence record) {
+        logger.warn("{}", record);
+    }
+}
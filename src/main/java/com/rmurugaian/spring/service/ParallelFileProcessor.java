@@ -0,0 +1,159 @@
+package com.rmurugaian.spring.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * {@link FileProcessor} that memory-maps the file in chunks aligned on line boundaries and
+ * parses the chunks in parallel on a fork-join pool.
+ * <p>
+ * Workers only buffer the records of their chunk; the calling thread hands them to the
+ * {@link RecordHandler} strictly in file order, so the handler need not be thread-safe. At most two
+ * chunks per worker are in flight, so heap use is bounded by {@code 2 * parallelism * chunkSize}.
+ * <p>
+ * If a chunk fails, the records of the chunks before it have already been handed over but not
+ * flushed, and nothing from the failing chunk or the ones after it reaches the handler.
+ */
+@Component
+@ConditionalOnProperty(name = "sftp.server.update.processor", havingValue = "parallel")
+public class ParallelFileProcessor implements FileProcessor, MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelFileProcessor.class);
+
+    private static final int BOUNDARY_PROBE_SIZE = 8192;
+
+    private final RecordHandler recordHandler;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final int maxChunksInFlight;
+    private final ThreadLocal<LineRecordReader> recordReader;
+    private final FileProcessorMetrics metrics = new FileProcessorMetrics("parallel");
+
+    public ParallelFileProcessor(
+        final ObjectProvider<RecordHandler> recordHandler,
+        @Value("${sftp.server.update.recordBufferSize:65536}") final int recordBufferSize,
+        @Value("${sftp.server.update.chunkSize:8388608}") final long chunkSize,
+        @Value("${sftp.server.update.parallelism:0}") final int parallelism) {
+
+        Assert.isTrue(chunkSize > 0 && chunkSize < Integer.MAX_VALUE, "chunkSize must be between 1 and 2GB.");
+
+        final int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.recordHandler = recordHandler.getIfAvailable(LoggingRecordHandler::new);
+        this.pool = new ForkJoinPool(threads);
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = threads * 2;
+        this.recordReader = ThreadLocal.withInitial(
+            () -> new LineRecordReader(recordBufferSize, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        logger.info("File received {}", sftpFile.getName());
+        final long startTime = metrics.start();
+        final Deque<ForkJoinTask<List<String>>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(sftpFile.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long records = 0;
+            long start = 0;
+            while (start < size) {
+                final long end = chunkEnd(channel, start, size);
+                if (inFlight.size() >= maxChunksInFlight) {
+                    records += deliver(inFlight.removeFirst().join());
+                }
+                final long chunkStart = start;
+                inFlight.addLast(pool.submit(() -> parse(channel, chunkStart, end)));
+                start = end;
+            }
+            while (!inFlight.isEmpty()) {
+                records += deliver(inFlight.removeFirst().join());
+            }
+            recordHandler.flush();
+            metrics.processed(sftpFile, startTime, records);
+            logger.info("File {} processed, {} records", sftpFile.getName(), records);
+        } catch (final IOException e) {
+            inFlight.forEach(task -> task.cancel(true));
+            metrics.failed(startTime);
+            throw new UncheckedIOException("Failed to process " + sftpFile, e);
+        } catch (final RuntimeException e) {
+            inFlight.forEach(task -> task.cancel(true));
+            metrics.failed(startTime);
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        metrics.bindTo(registry);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private long chunkEnd(final FileChannel channel, final long start, final long size) throws IOException {
+        final long target = start + chunkSize;
+        if (target >= size) {
+            return size;
+        }
+
+        final ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long position = target - 1;
+        while (position < size) {
+            probe.clear();
+            final int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private List<String> parse(final FileChannel channel, final long start, final long end) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("Chunk at offset " + start + " exceeds 2GB."));
+        }
+        try {
+            final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            final List<String> records = new ArrayList<>();
+            recordReader.get().read(chunk, record -> records.add(record.toString()));
+            return records;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read the chunk at offset " + start, e);
+        }
+    }
+
+    private long deliver(final List<String> records) {
+        records.forEach(recordHandler::handle);
+        return records.size();
+    }
+}
@@ -0,0 +1,214 @@
+package com.rmurugaian.spring.service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * One record of an update file, seen through a {@link RecordSchema}. The record only remembers
+ * where each field lies in the read buffer; numbers are parsed straight from those bytes and text
+ * is decoded into a buffer kept per field, so reading a record creates no objects.
+ * <p>
+ * A {@link RecordParser} reuses the same instance for every line, so the record and the text it
+ * returns are only valid during {@link ParsedRecordHandler#handle}. Fields missing from a short
+ * line are empty. Instances are not thread-safe.
+ */
+public final class ParsedRecord {
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final RecordSchema schema;
+    private final int[] starts;
+    private final int[] ends;
+    private final CharBuffer[] texts;
+    private final boolean[] decoded;
+    private final CharsetDecoder decoder;
+
+    private ByteBuffer source;
+
+    ParsedRecord(final RecordSchema schema, final Charset charset) {
+        this.schema = schema;
+        this.starts = new int[schema.getFieldCount()];
+        this.ends = new int[schema.getFieldCount()];
+        this.texts = new CharBuffer[schema.getFieldCount()];
+        this.decoded = new boolean[schema.getFieldCount()];
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    void reset(final ByteBuffer source) {
+        this.source = source;
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = false;
+        }
+    }
+
+    void set(final int field, final int start, final int end) {
+        starts[field] = start;
+        ends[field] = end;
+    }
+
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Length of the field in bytes.
+     */
+    public int length(final int field) {
+        return ends[field] - starts[field];
+    }
+
+    public boolean isEmpty(final int field) {
+        return ends[field] == starts[field];
+    }
+
+    /**
+     * The field decoded as text, in a buffer that is reused for the same field of the next record.
+     */
+    public CharSequence getText(final int field) {
+        if (decoded[field]) {
+            return texts[field];
+        }
+        final int needed = (int) Math.ceil(length(field) * (double) decoder.maxCharsPerByte());
+        CharBuffer text = texts[field];
+        if (text == null || text.capacity() < needed) {
+            text = CharBuffer.allocate(Math.max(needed, 16));
+            texts[field] = text;
+        }
+
+        final int position = source.position();
+        final int limit = source.limit();
+        source.limit(ends[field]).position(starts[field]);
+        text.clear();
+        decoder.reset();
+        final CoderResult result = decoder.decode(source, text, true);
+        source.limit(limit).position(position);
+        if (result.isError() || result.isOverflow()) {
+            try {
+                result.throwException();
+            } catch (final CharacterCodingException e) {
+                throw new IllegalStateException("Cannot decode field " + schema.getName(field), e);
+            }
+        }
+        decoder.flush(text);
+        text.flip();
+        decoded[field] = true;
+        return text;
+    }
+
+    /**
+     * @throws NumberFormatException when the field is not an integer in the range of {@code int}
+     */
+    public int getInt(final int field) {
+        final long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw notANumber(field, "int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @throws NumberFormatException when the field is not an integer in the range of {@code long}
+     */
+    public long getLong(final int field) {
+        int position = starts[field];
+        final int end = ends[field];
+        final boolean negative = position < end && source.get(position) == '-';
+        if (position < end && (negative || source.get(position) == '+')) {
+            position++;
+        }
+        if (position == end) {
+            throw notANumber(field, "long");
+        }
+
+        // Accumulated negatively, so that Long.MIN_VALUE can be represented.
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplicationLimit = limit / 10;
+        long value = 0;
+        for (; position < end; position++) {
+            final int digit = source.get(position) - '0';
+            if (digit < 0 || digit > 9 || value < multiplicationLimit) {
+                throw notANumber(field, "long");
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                throw notANumber(field, "long");
+            }
+            value -= digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Plain decimals of up to 15 digits are parsed from the bytes; longer values and exponents go
+     * through {@link Double#parseDouble}.
+     *
+     * @throws NumberFormatException when the field is not a number
+     */
+    public double getDouble(final int field) {
+        int position = starts[field];
+        final int end = ends[field];
+        final boolean negative = position < end && source.get(position) == '-';
+        if (position < end && (negative || source.get(position) == '+')) {
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; position < end; position++) {
+            final byte b = source.get(position);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (position < end || digits > MAX_EXACT_DIGITS) {
+            return parseDouble(field);
+        }
+        if (digits == 0) {
+            throw notANumber(field, "double");
+        }
+        // Both operands are exact, so the single division rounds correctly.
+        final double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder fields = new StringBuilder("ParsedRecord[");
+        for (int i = 0; i < starts.length; i++) {
+            fields.append(i == 0 ? "" : ", ").append(schema.getName(i)).append('=').append(getText(i));
+        }
+        return fields.append(']').toString();
+    }
+
+    private double parseDouble(final int field) {
+        try {
+            return Double.parseDouble(getText(field).toString());
+        } catch (final NumberFormatException e) {
+            throw notANumber(field, "double");
+        }
+    }
+
+    private NumberFormatException notANumber(final int field, final String type) {
+        return new NumberFormatException(
+            "Field " + schema.getName(field) + " is not a valid " + type + ": '" + getText(field) + "'");
+    }
+}
@@ -0,0 +1,21 @@
+package com.rmurugaian.spring.service;
+
+import java.io.IOException;
+
+/**
+ * Callback receiving each record of an update file parsed against a {@link RecordSchema}.
+ * <p>
+ * The {@link ParsedRecord} passed in is reused for the next record, so it is only valid for the
+ * duration of the call; copy out the fields to keep.
+ */
+@FunctionalInterface
+public interface ParsedRecordHandler {
+    void handle(ParsedRecord record);
+
+    /**
+     * Called on the reading thread after the last record of a file. Handlers that buffer records
+     * make them durable here; throwing fails the processing of that file.
+     */
+    default void flush() throws IOException {
+    }
+}
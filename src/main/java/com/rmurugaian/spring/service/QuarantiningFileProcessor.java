@@ -0,0 +1,67 @@
+package com.rmurugaian.spring.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Decorates a {@link FileProcessor} so a downloaded file whose processing throws is moved out of
+ * the local directory into {@code failedDirectory}, replacing an earlier failed copy of the same
+ * name. Out there it neither counts against the local directory quota nor clashes with its next
+ * download, so once the inbound source has released the remote file it is fetched and processed
+ * again, while the failed copy stays for inspection.
+ * <p>
+ * The file is also removed from the local filter of the inbound source, so the next download of
+ * the same name is picked up.
+ */
+public class QuarantiningFileProcessor implements FileProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuarantiningFileProcessor.class);
+
+    private final FileProcessor delegate;
+    private final File failedDirectory;
+    private final ResettableFileListFilter<File> localFilter;
+
+    public QuarantiningFileProcessor(
+        final FileProcessor delegate,
+        final File failedDirectory,
+        final ResettableFileListFilter<File> localFilter) {
+
+        this.delegate = delegate;
+        this.failedDirectory = failedDirectory;
+        this.localFilter = localFilter;
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        try {
+            delegate.handleUpdate(sftpFile);
+        } catch (final RuntimeException e) {
+            quarantine(sftpFile);
+            throw e;
+        }
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        delegate.handleUpdateStream(fileName, stream);
+    }
+
+    private void quarantine(final File sftpFile) {
+        try {
+            Files.createDirectories(failedDirectory.toPath());
+            Files.move(sftpFile.toPath(), failedDirectory.toPath().resolve(sftpFile.getName()),
+                StandardCopyOption.REPLACE_EXISTING);
+            localFilter.remove(sftpFile);
+            logger.warn("Moved {} to {} after its processing failed", sftpFile.getName(), failedDirectory);
+        } catch (final IOException e) {
+            logger.warn("Could not move failed file {} to {}: {}", sftpFile, failedDirectory, e.getMessage());
+        }
+    }
+}
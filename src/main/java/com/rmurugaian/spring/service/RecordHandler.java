@@ -0,0 +1,21 @@
+package com.rmurugaian.spring.service;
+
+import java.io.IOException;
+
+/**
+ * Callback receiving each record read from an update file.
+ * <p>
+ * The {@link CharSequence} passed in is backed by a buffer that is reused for the next record,
+ * so it is only valid for the duration of the call; use {@code toString()} to keep a copy.
+ */
+@FunctionalInterface
+public interface RecordHandler {
+    void handle(CharSequence record);
+
+    /**
+     * Called on the reading thread after the last record of a file. Handlers that buffer records
+     * make them durable here; throwing fails the processing of that file.
+     */
+    default void flush() throws IOException {
+    }
+}
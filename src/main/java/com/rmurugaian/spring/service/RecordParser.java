@@ -0,0 +1,68 @@
+package com.rmurugaian.spring.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Locates the fields of a line according to a {@link RecordSchema}, filling one reusable
+ * {@link ParsedRecord}. Only field boundaries are computed here; values are decoded when the
+ * handler asks for them. Instances are not thread-safe.
+ */
+public class RecordParser {
+
+    private final RecordSchema schema;
+    private final ParsedRecord record;
+
+    public RecordParser(final RecordSchema schema, final Charset charset) {
+        this.schema = schema;
+        this.record = new ParsedRecord(schema, charset);
+    }
+
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Parses the line between {@code start} and {@code end} of {@code source}, without its line
+     * terminator. The returned record reads from {@code source} and is overwritten by the next call.
+     */
+    public ParsedRecord parse(final ByteBuffer source, final int start, final int end) {
+        record.reset(source);
+        if (schema.isFixedWidth()) {
+            splitFixedWidth(source, start, end);
+        } else {
+            splitDelimited(source, start, end);
+        }
+        return record;
+    }
+
+    private void splitDelimited(final ByteBuffer source, final int start, final int end) {
+        final byte delimiter = schema.getDelimiter();
+        final int fieldCount = schema.getFieldCount();
+        int field = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end && field < fieldCount; i++) {
+            if (i == end || source.get(i) == delimiter) {
+                record.set(field++, fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        while (field < fieldCount) {
+            record.set(field++, end, end);
+        }
+    }
+
+    private void splitFixedWidth(final ByteBuffer source, final int start, final int end) {
+        for (int field = 0; field < schema.getFieldCount(); field++) {
+            int fieldStart = Math.min(start + schema.getOffset(field), end);
+            int fieldEnd = Math.min(fieldStart + schema.getWidth(field), end);
+            while (fieldStart < fieldEnd && source.get(fieldStart) == ' ') {
+                fieldStart++;
+            }
+            while (fieldEnd > fieldStart && source.get(fieldEnd - 1) == ' ') {
+                fieldEnd--;
+            }
+            record.set(field, fieldStart, fieldEnd);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.rmurugaian.spring.service;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declared layout of the records of an update file: either fields separated by a single-byte
+ * delimiter, or fields of fixed width at consecutive columns. Used by {@link RecordParser} to
+ * locate the fields of a line without copying it.
+ * <p>
+ * Delimited fields are taken as they are; quoting is not supported. Fixed-width fields are
+ * trimmed of the spaces padding them.
+ */
+public final class RecordSchema {
+
+    public enum FieldType {
+        TEXT, INT, LONG, DOUBLE
+    }
+
+    private final boolean fixedWidth;
+    private final byte delimiter;
+    private final String[] names;
+    private final FieldType[] types;
+    private final int[] offsets;
+    private final int[] widths;
+
+    private RecordSchema(final Builder builder) {
+        this.fixedWidth = builder.fixedWidth;
+        this.delimiter = builder.delimiter;
+        this.names = builder.names.toArray(new String[0]);
+        this.types = builder.types.toArray(new FieldType[0]);
+        this.offsets = builder.offsets.stream().mapToInt(Integer::intValue).toArray();
+        this.widths = builder.widths.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Starts a schema of fields separated by {@code delimiter}, which must be an ASCII character.
+     */
+    public static Builder delimited(final char delimiter) {
+        Assert.isTrue(delimiter > 0 && delimiter < 0x80, "delimiter must be an ASCII character.");
+        Assert.isTrue(delimiter != '\n' && delimiter != '\r', "delimiter must not be a line terminator.");
+        return new Builder(false, (byte) delimiter);
+    }
+
+    /**
+     * Starts a schema of fixed-width fields, laid out in the order they are added.
+     */
+    public static Builder fixedWidth() {
+        return new Builder(true, (byte) 0);
+    }
+
+    public boolean isFixedWidth() {
+        return fixedWidth;
+    }
+
+    public byte getDelimiter() {
+        return delimiter;
+    }
+
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    public String getName(final int field) {
+        return names[field];
+    }
+
+    public FieldType getType(final int field) {
+        return types[field];
+    }
+
+    int getOffset(final int field) {
+        return offsets[field];
+    }
+
+    int getWidth(final int field) {
+        return widths[field];
+    }
+
+    /**
+     * Position of the named field, to be looked up once rather than for every record.
+     *
+     * @throws IllegalArgumentException when the schema has no such field
+     */
+    public int indexOf(final String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in the record schema.");
+    }
+
+    public static final class Builder {
+
+        private final boolean fixedWidth;
+        private final byte delimiter;
+        private final List<String> names = new ArrayList<>();
+        private final List<FieldType> types = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+        private final List<Integer> widths = new ArrayList<>();
+        private int nextOffset;
+
+        private Builder(final boolean fixedWidth, final byte delimiter) {
+            this.fixedWidth = fixedWidth;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Adds the next field of a delimited schema.
+         */
+        public Builder field(final String name, final FieldType type) {
+            Assert.state(!fixedWidth, "Fixed-width fields need a width.");
+            return add(name, type, 0);
+        }
+
+        /**
+         * Adds the next field of a fixed-width schema, {@code width} bytes wide.
+         */
+        public Builder field(final String name, final FieldType type, final int width) {
+            Assert.state(fixedWidth, "Delimited fields have no width.");
+            Assert.isTrue(width > 0, "width must be positive.");
+            return add(name, type, width);
+        }
+
+        /**
+         * Skips {@code width} bytes of filler between fixed-width fields.
+         */
+        public Builder skip(final int width) {
+            Assert.state(fixedWidth, "Only fixed-width schemas have filler.");
+            Assert.isTrue(width > 0, "width must be positive.");
+            nextOffset += width;
+            return this;
+        }
+
+        public RecordSchema build() {
+            Assert.state(!names.isEmpty(), "A record schema needs at least one field.");
+            return new RecordSchema(this);
+        }
+
+        private Builder add(final String name, final FieldType type, final int width) {
+            Assert.hasText(name, "name must not be empty.");
+            Assert.notNull(type, "type must not be null.");
+            Assert.isTrue(!names.contains(name), "Duplicate field " + name + ".");
+            names.add(name);
+            types.add(type);
+            offsets.add(nextOffset);
+            widths.add(width);
+            nextOffset += width;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.rmurugaian.spring.service;
+
+import java.util.List;
+
+/**
+ * Destination of parsed records, written a batch at a time, e.g. one multi-row insert or one
+ * message per batch. {@link BatchingRecordHandler} collects the records and calls the sink from
+ * its writer threads, so implementations must be thread-safe when more than one writer is used.
+ */
+@FunctionalInterface
+public interface RecordSink<T> {
+
+    /**
+     * Writes one batch. Throwing fails the file processing that produced the batch.
+     */
+    void write(List<T> batch) throws Exception;
+}
@@ -0,0 +1,87 @@
+package com.rmurugaian.spring.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link FileProcessor} that streams the file like {@link StreamingFileProcessor} but parses each
+ * line against the application's {@link RecordSchema} bean straight from the read buffer, handing
+ * typed {@link ParsedRecord}s to its {@link ParsedRecordHandler} bean. No {@code String} is created
+ * per line or per field.
+ */
+@Component
+@ConditionalOnProperty(name = "sftp.server.update.processor", havingValue = "typed")
+public class TypedFileProcessor implements FileProcessor, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypedFileProcessor.class);
+
+    private final ParsedRecordHandler recordHandler;
+    private final ThreadLocal<LineRecordReader> recordReader;
+    private final ThreadLocal<RecordParser> recordParser;
+    private final FileProcessorMetrics metrics = new FileProcessorMetrics("typed");
+
+    public TypedFileProcessor(
+        final RecordSchema recordSchema,
+        final ParsedRecordHandler recordHandler,
+        @Value("${sftp.server.update.recordBufferSize:65536}") final int recordBufferSize) {
+
+        this.recordHandler = recordHandler;
+        this.recordReader = ThreadLocal.withInitial(
+            () -> new LineRecordReader(recordBufferSize, StandardCharsets.UTF_8));
+        this.recordParser = ThreadLocal.withInitial(() -> new RecordParser(recordSchema, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        logger.info("File received {}", sftpFile.getName());
+        final long start = metrics.start();
+        try (FileChannel channel = FileChannel.open(sftpFile.toPath(), StandardOpenOption.READ)) {
+            final long records = recordReader.get().read(channel, recordParser.get(), recordHandler);
+            recordHandler.flush();
+            metrics.processed(sftpFile, start, records);
+            logger.info("File {} processed, {} records", sftpFile.getName(), records);
+        } catch (final IOException e) {
+            metrics.failed(start);
+            throw new UncheckedIOException("Failed to process " + sftpFile, e);
+        } catch (final RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        logger.info("File received {}", fileName);
+        final long start = metrics.start();
+        final CountingInputStream counted = new CountingInputStream(stream);
+        try {
+            final long records =
+                recordReader.get().read(Channels.newChannel(counted), recordParser.get(), recordHandler);
+            recordHandler.flush();
+            metrics.processed(start, records, counted.getCount());
+            logger.info("File {} processed, {} records", fileName, records);
+        } catch (final IOException | RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        metrics.bindTo(registry);
+    }
+}
@@ -0,0 +1,144 @@
+package com.rmurugaian.spring.sftp;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.integration.aop.AbstractMessageSourceAdvice;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.util.Assert;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Poller trigger that adapts its delay to what the polls return. Registered both as the poller's
+ * trigger and as a receive advice, it multiplies the delay by {@code backoffMultiplier} after every
+ * empty poll and divides it after every poll that produced a message, always staying within
+ * {@code minInterval} and {@code maxInterval}. Each delay is randomized by up to {@code jitter} of
+ * itself so several instances do not poll the server in lockstep.
+ * <p>
+ * The current interval, an exponentially weighted hit ratio and poll counts are published under
+ * {@code sftp.poll}, tagged with the adapter name.
+ */
+public class AdaptivePollingTrigger extends AbstractMessageSourceAdvice implements Trigger, MeterBinder {
+
+    private static final double HIT_RATIO_WEIGHT = 0.1;
+
+    private final String name;
+    private final long minInterval;
+    private final long maxInterval;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private double backoffMultiplier = 2.0;
+    private double jitter = 0.1;
+
+    private volatile long interval;
+    private volatile double hitRatio;
+    private volatile boolean received;
+
+    public AdaptivePollingTrigger(final String name, final long minInterval, final long maxInterval) {
+        Assert.isTrue(minInterval > 0, "minInterval must be positive.");
+        Assert.isTrue(maxInterval >= minInterval, "maxInterval must not be less than minInterval.");
+
+        this.name = name;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.interval = minInterval;
+    }
+
+    public void setBackoffMultiplier(final double backoffMultiplier) {
+        Assert.isTrue(backoffMultiplier >= 1.0, "backoffMultiplier must be at least 1.");
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    public void setJitter(final double jitter) {
+        Assert.isTrue(jitter >= 0.0 && jitter < 1.0, "jitter must be in [0, 1).");
+        this.jitter = jitter;
+    }
+
+    public void setInitialInterval(final long initialInterval) {
+        this.interval = clamp(initialInterval);
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    @Override
+    public Message<?> afterReceive(final Message<?> result, final MessageSource<?> source) {
+        if (result != null) {
+            received = true;
+        }
+        return result;
+    }
+
+    /**
+     * Called by the poller once the previous poll has completed, so the outcome of that poll is
+     * known here. The first execution is scheduled after the initial interval.
+     */
+    @Override
+    public synchronized Date nextExecutionTime(final TriggerContext triggerContext) {
+        final Date lastCompletion = triggerContext.lastCompletionTime();
+        if (lastCompletion == null) {
+            return new Date(System.currentTimeMillis() + interval);
+        }
+
+        final boolean hit = received;
+        received = false;
+        if (hit) {
+            hits.incrementAndGet();
+            interval = clamp((long) (interval / backoffMultiplier));
+        } else {
+            misses.incrementAndGet();
+            interval = clamp((long) (interval * backoffMultiplier));
+        }
+        hitRatio += HIT_RATIO_WEIGHT * ((hit ? 1.0 : 0.0) - hitRatio);
+
+        return new Date(lastCompletion.getTime() + jittered(interval));
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("sftp.poll.interval", this, AdaptivePollingTrigger::getInterval)
+            .tag("adapter", name)
+            .baseUnit("milliseconds")
+            .description("Current delay between polls of the adapter")
+            .register(registry);
+        Gauge.builder("sftp.poll.hit.ratio", this, AdaptivePollingTrigger::getHitRatio)
+            .tag("adapter", name)
+            .description("Exponentially weighted share of polls that returned a file")
+            .register(registry);
+        FunctionCounter.builder("sftp.poll.count", hits, AtomicLong::get)
+            .tag("adapter", name)
+            .tag("outcome", "hit")
+            .description("Completed polls of the adapter")
+            .register(registry);
+        FunctionCounter.builder("sftp.poll.count", misses, AtomicLong::get)
+            .tag("adapter", name)
+            .tag("outcome", "empty")
+            .description("Completed polls of the adapter")
+            .register(registry);
+    }
+
+    private long jittered(final long delay) {
+        if (jitter == 0.0) {
+            return delay;
+        }
+        final double factor = 1.0 + jitter * (ThreadLocalRandom.current().nextDouble() * 2.0 - 1.0);
+        return clamp((long) (delay * factor));
+    }
+
+    private long clamp(final long delay) {
+        return Math.max(minInterval, Math.min(maxInterval, delay));
+    }
+}
@@ -0,0 +1,47 @@
+package com.rmurugaian.spring.sftp;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the date-partitioned subdirectories worth listing, e.g. {@code incoming/2019/10/17},
+ * instead of the whole remote tree: today's partition plus the previous {@code lookbackDays}
+ * ones, oldest first, so files that arrive late for a previous day are still picked up.
+ */
+public class DatePartitionedRemoteDirectories implements Supplier<List<String>> {
+
+    private final String basePath;
+    private final DateTimeFormatter partitionFormat;
+    private final int lookbackDays;
+    private final Clock clock;
+
+    public DatePartitionedRemoteDirectories(final String basePath, final String partitionPattern, final int lookbackDays) {
+        this(basePath, partitionPattern, lookbackDays, Clock.systemDefaultZone());
+    }
+
+    public DatePartitionedRemoteDirectories(
+        final String basePath,
+        final String partitionPattern,
+        final int lookbackDays,
+        final Clock clock) {
+
+        this.basePath = basePath.endsWith("/") ? basePath : basePath + "/";
+        this.partitionFormat = DateTimeFormatter.ofPattern(partitionPattern);
+        this.lookbackDays = lookbackDays;
+        this.clock = clock;
+    }
+
+    @Override
+    public List<String> get() {
+        final LocalDate today = LocalDate.now(clock);
+        final List<String> directories = new ArrayList<>(lookbackDays + 1);
+        for (int day = lookbackDays; day >= 0; day--) {
+            directories.add(basePath + partitionFormat.format(today.minusDays(day)));
+        }
+        return directories;
+    }
+}
@@ -0,0 +1,127 @@
+package com.rmurugaian.spring.sftp;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the local download directory. Before each poll the
+ * {@link ParallelSftpInboundFileSynchronizer} measures the files in the directory, partial
+ * downloads included; once they reach {@code maxBytes} or {@code maxFiles} nothing new is listed
+ * or downloaded until processing has brought the directory back under both limits. Files already
+ * downloaded keep flowing to the processors meanwhile. A limit of 0 disables it.
+ * <p>
+ * The byte limit is checked before a poll, so one poll can overshoot it by the files it fetches;
+ * the file limit also caps how many files a poll fetches. The measured backlog is published as
+ * {@code sftp.local.backlog.bytes} and {@code sftp.local.backlog.files}, skipped polls are counted
+ * as {@code sftp.local.quota.paused}.
+ */
+public class LocalDirQuota implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalDirQuota.class);
+
+    private final long maxBytes;
+    private final long maxFiles;
+    private final AtomicLong paused = new AtomicLong();
+
+    private volatile long bytes;
+    private volatile long files;
+    private volatile boolean full;
+
+    public LocalDirQuota(final long maxBytes, final long maxFiles) {
+        Assert.isTrue(maxBytes >= 0, "maxBytes must not be negative.");
+        Assert.isTrue(maxFiles >= 0, "maxFiles must not be negative.");
+
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Measures {@code localDirectory} and returns how many files the next poll may fetch: 0 while
+     * the directory is over a limit, otherwise {@code maxFetchSize} capped to the files left under
+     * {@code maxFiles}. A negative {@code maxFetchSize} means no limit, as in the synchronizer.
+     */
+    public int fetchLimit(final File localDirectory, final int maxFetchSize) {
+        measure(localDirectory.toPath());
+        final boolean over = (maxBytes > 0 && bytes >= maxBytes) || (maxFiles > 0 && files >= maxFiles);
+        if (over != full) {
+            full = over;
+            if (over) {
+                logger.warn("Local directory {} holds {} files, {} bytes; pausing downloads",
+                    localDirectory, files, bytes);
+            } else {
+                logger.info("Local directory {} back under its quota; resuming downloads", localDirectory);
+            }
+        }
+        if (over) {
+            paused.incrementAndGet();
+            return 0;
+        }
+        if (maxFiles == 0) {
+            return maxFetchSize;
+        }
+        final int remaining = (int) Math.min(Integer.MAX_VALUE, maxFiles - files);
+        return maxFetchSize < 0 ? remaining : Math.min(maxFetchSize, remaining);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("sftp.local.backlog.bytes", this, LocalDirQuota::getBytes)
+            .description("Bytes in the local download directory at the last poll")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("sftp.local.backlog.files", this, LocalDirQuota::getFiles)
+            .description("Files in the local download directory at the last poll")
+            .baseUnit("files")
+            .register(registry);
+        FunctionCounter.builder("sftp.local.quota.paused", paused, AtomicLong::get)
+            .description("Polls skipped because the local download directory was over its quota")
+            .register(registry);
+    }
+
+    private void measure(final Path directory) {
+        final long[] totals = new long[2];
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    totals[0] += attrs.size();
+                    totals[1]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                    // Processed and deleted meanwhile, or the directory does not exist yet.
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes = totals[0];
+        files = totals[1];
+    }
+}
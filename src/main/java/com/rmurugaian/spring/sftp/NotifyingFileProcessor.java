@@ -0,0 +1,39 @@
+package com.rmurugaian.spring.sftp;
+
+import com.rmurugaian.spring.service.FileProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decorates a {@link FileProcessor} so the {@link ProcessingCallback} of the inbound source hears
+ * whether each downloaded file was processed. Streamed files have no local copy and are passed
+ * through.
+ */
+public class NotifyingFileProcessor implements FileProcessor {
+
+    private final FileProcessor delegate;
+    private final ProcessingCallback callback;
+
+    public NotifyingFileProcessor(final FileProcessor delegate, final ProcessingCallback callback) {
+        this.delegate = delegate;
+        this.callback = callback;
+    }
+
+    @Override
+    public void handleUpdate(final File sftpFile) {
+        try {
+            delegate.handleUpdate(sftpFile);
+        } catch (final RuntimeException e) {
+            callback.failed(sftpFile);
+            throw e;
+        }
+        callback.processed(sftpFile);
+    }
+
+    @Override
+    public void handleUpdateStream(final String fileName, final InputStream stream) throws IOException {
+        delegate.handleUpdateStream(fileName, stream);
+    }
+}
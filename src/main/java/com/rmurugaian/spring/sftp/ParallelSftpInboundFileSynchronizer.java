@@ -0,0 +1,441 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.integration.sftp.filters.SftpPersistentAcceptOnceFileListFilter;
+import org.springframework.integration.sftp.inbound.SftpInboundFileSynchronizer;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link SftpInboundFileSynchronizer} that lists the remote directory once per poll and then
+ * downloads the accepted files concurrently, each over its own session.
+ * <p>
+ * At most {@code maxConcurrentDownloads} transfers are in flight. Every file still goes through
+ * {@link #copyFileToLocalDirectory}, so the filter, {@code preserveTimestamp} and
+ * {@code deleteRemoteFiles} settings apply per file exactly as in the sequential synchronizer.
+ * Back the session factory with a pool so concurrent downloads do not each pay for a handshake.
+ * <p>
+ * Poll and listing durations, listing sizes, per-file download latency and downloaded bytes are
+ * published under {@code sftp.sync} and {@code sftp.download}.
+ * <p>
+ * With a {@link ResumableSftpDownloader} set, files are transferred by it instead, so an
+ * interrupted download continues where it stopped. Files fetched that way carry no remote file
+ * metadata headers. With a {@link LocalDirQuota} set, polls are skipped while the local directory
+ * is full.
+ * <p>
+ * An {@link SftpCommittableFileListFilter}, such as an {@link SftpFileClaimFilter}, filters files
+ * with their listing directory and has each downloaded file committed. With {@code awaitProcessing}
+ * that, and deleting the remote file, waits until the file is reported {@link #processed}; a file
+ * reported {@link #failed} is removed from the filter instead, to be fetched again once its local
+ * copy is gone. So is a file not transferred because a local file of its name exists.
+ */
+public class ParallelSftpInboundFileSynchronizer extends SftpInboundFileSynchronizer
+    implements ProcessingCallback, MeterBinder, DisposableBean {
+
+    private final SessionFactory<ChannelSftp.LsEntry> sessionFactory;
+    private final ExecutorService downloadExecutor;
+    private final Map<File, Downloaded> awaitingProcessing = new ConcurrentHashMap<>();
+
+    private Expression remoteDirectoryExpression;
+    private Supplier<List<String>> remoteDirectories;
+    private FileListFilter<ChannelSftp.LsEntry> filter;
+    private ResumableSftpDownloader resumableDownloader;
+    private LocalDirQuota localDirQuota;
+    private boolean deleteRemoteFiles;
+    private boolean preserveTimestamp;
+    private boolean awaitProcessing;
+
+    private volatile MeterRegistry meterRegistry;
+    private volatile Timer listingTimer;
+    private volatile DistributionSummary listingSize;
+    private volatile Counter downloadedBytes;
+
+    public ParallelSftpInboundFileSynchronizer(
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final int maxConcurrentDownloads) {
+
+        super(sessionFactory);
+        Assert.isTrue(maxConcurrentDownloads > 0, "maxConcurrentDownloads must be positive.");
+
+        this.sessionFactory = sessionFactory;
+        this.downloadExecutor = Executors.newFixedThreadPool(
+            maxConcurrentDownloads, new CustomizableThreadFactory("sftp-download-"));
+        // The default filter of the superclass, which keeps it to itself.
+        setFilter(new SftpPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), "sftpMessageSource"));
+    }
+
+    @Override
+    public void setRemoteDirectory(final String remoteDirectory) {
+        super.setRemoteDirectory(remoteDirectory);
+        this.remoteDirectoryExpression = new LiteralExpression(remoteDirectory);
+    }
+
+    @Override
+    public void setRemoteDirectoryExpression(final Expression remoteDirectoryExpression) {
+        super.setRemoteDirectoryExpression(remoteDirectoryExpression);
+        this.remoteDirectoryExpression = remoteDirectoryExpression;
+    }
+
+    /**
+     * Lists the given directories on each poll instead of the single remote directory,
+     * e.g. {@link DatePartitionedRemoteDirectories}.
+     */
+    public void setRemoteDirectories(final Supplier<List<String>> remoteDirectories) {
+        this.remoteDirectories = remoteDirectories;
+    }
+
+    @Override
+    public void setFilter(final FileListFilter<ChannelSftp.LsEntry> filter) {
+        super.setFilter(filter);
+        this.filter = filter;
+    }
+
+    @Override
+    public void setDeleteRemoteFiles(final boolean deleteRemoteFiles) {
+        super.setDeleteRemoteFiles(deleteRemoteFiles && !awaitProcessing);
+        this.deleteRemoteFiles = deleteRemoteFiles;
+    }
+
+    /**
+     * Deletes remote files and commits them in the filter only once they are reported processed,
+     * so a file downloaded but not processed before a crash is fetched again.
+     */
+    public void setAwaitProcessing(final boolean awaitProcessing) {
+        this.awaitProcessing = awaitProcessing;
+        setDeleteRemoteFiles(deleteRemoteFiles);
+    }
+
+    @Override
+    public void setPreserveTimestamp(final boolean preserveTimestamp) {
+        super.setPreserveTimestamp(preserveTimestamp);
+        this.preserveTimestamp = preserveTimestamp;
+    }
+
+    /**
+     * Transfers files with the given downloader, which resumes interrupted downloads, or with a
+     * {@link SegmentedSftpDownloader}, which also splits large files into parallel ranges.
+     */
+    public void setResumableDownloader(final ResumableSftpDownloader resumableDownloader) {
+        resumableDownloader.setTemporaryFileSuffix(getTemporaryFileSuffix());
+        this.resumableDownloader = resumableDownloader;
+    }
+
+    /**
+     * Lists and downloads nothing while the local directory is over the given quota.
+     */
+    public void setLocalDirQuota(final LocalDirQuota localDirQuota) {
+        this.localDirQuota = localDirQuota;
+    }
+
+    @Override
+    public void synchronizeToLocalDirectory(final File localDirectory, final int maxFetchSize) {
+        final int fetchLimit = localDirQuota != null
+            ? localDirQuota.fetchLimit(localDirectory, maxFetchSize)
+            : maxFetchSize;
+        if (fetchLimit == 0) {
+            return;
+        }
+        final long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            synchronize(localDirectory, fetchLimit);
+            outcome = "success";
+        } finally {
+            record("sftp.sync", "Time to list and download the files of one poll", outcome, start);
+        }
+    }
+
+    @Override
+    public void processed(final File localFile) {
+        final Downloaded downloaded = awaitingProcessing.remove(localFile.getAbsoluteFile());
+        if (downloaded == null) {
+            return;
+        }
+        try {
+            if (deleteRemoteFiles) {
+                try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+                    session.remove(downloaded.remoteFilePath());
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Failed to remove " + downloaded.remoteFilePath(), e);
+                }
+            }
+        } finally {
+            SftpCommittableFileListFilter.commit(filter, downloaded.file);
+        }
+    }
+
+    @Override
+    public void failed(final File localFile) {
+        final Downloaded downloaded = awaitingProcessing.remove(localFile.getAbsoluteFile());
+        if (downloaded != null && filter instanceof ResettableFileListFilter) {
+            ((ResettableFileListFilter<ChannelSftp.LsEntry>) filter).remove(downloaded.file);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        listingTimer = Timer.builder("sftp.sync.listing")
+            .description("Time to list the remote directories of one poll")
+            .register(registry);
+        listingSize = DistributionSummary.builder("sftp.sync.listed")
+            .description("Remote files listed per poll, before filtering")
+            .baseUnit("files")
+            .register(registry);
+        downloadedBytes = Counter.builder("sftp.download.bytes")
+            .description("Bytes downloaded from the SFTP server")
+            .baseUnit("bytes")
+            .register(registry);
+        meterRegistry = registry;
+    }
+
+    private void synchronize(final File localDirectory, final int maxFetchSize) {
+
+        final List<String> directories = remoteDirectories != null
+            ? remoteDirectories.get()
+            : Collections.singletonList(remoteDirectoryExpression.getValue(String.class));
+        final String remoteDirectory = String.join(", ", directories);
+        final Map<ChannelSftp.LsEntry, String> files;
+        try {
+            files = listRemoteFiles(directories, maxFetchSize);
+        } catch (final IOException e) {
+            throw new MessagingException("Problem occurred while listing '" + remoteDirectory + "'", e);
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        final CompletionService<Boolean> downloads = new ExecutorCompletionService<>(downloadExecutor);
+        files.forEach((file, directory) -> downloads.submit(() -> download(directory, file, localDirectory)));
+
+        MessagingException failure = null;
+        int transferred = 0;
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                if (downloads.take().get()) {
+                    transferred++;
+                }
+            } catch (final ExecutionException e) {
+                final MessagingException error = new MessagingException(
+                    "Problem occurred while synchronizing '" + remoteDirectory + "' to local directory", e.getCause());
+                if (failure == null) {
+                    failure = error;
+                } else {
+                    failure.addSuppressed(error);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted while synchronizing '" + remoteDirectory + "'", e);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(transferred + " files transferred from '" + remoteDirectory + "'");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        downloadExecutor.shutdownNow();
+        if (resumableDownloader instanceof DisposableBean) {
+            ((DisposableBean) resumableDownloader).destroy();
+        }
+    }
+
+    private Map<ChannelSftp.LsEntry, String> listRemoteFiles(final List<String> directories, final int maxFetchSize)
+        throws IOException {
+
+        final long start = System.nanoTime();
+        final Map<ChannelSftp.LsEntry, String> listed = new LinkedHashMap<>();
+        try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+            for (final String directory : directories) {
+                for (final ChannelSftp.LsEntry entry : list(session, directory)) {
+                    if (isFile(entry)) {
+                        listed.put(entry, directory);
+                    }
+                }
+            }
+        }
+        if (listingTimer != null) {
+            listingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            listingSize.record(listed.size());
+        }
+        if (listed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final List<ChannelSftp.LsEntry> files = new ArrayList<>(listed.keySet());
+        if (getComparator() != null) {
+            files.sort(getComparator());
+        }
+        final ChannelSftp.LsEntry[] candidates = files.toArray(new ChannelSftp.LsEntry[0]);
+        List<ChannelSftp.LsEntry> accepted = filter != null
+            ? SftpCommittableFileListFilter.filterFiles(filter, candidates, listed::get)
+            : filterFiles(candidates);
+        if (maxFetchSize >= 0 && accepted.size() > maxFetchSize) {
+            rollbackFromFileToListEnd(accepted, accepted.get(maxFetchSize));
+            accepted = accepted.subList(0, maxFetchSize);
+        }
+
+        final Map<ChannelSftp.LsEntry, String> result = new LinkedHashMap<>();
+        accepted.forEach(file -> result.put(file, listed.get(file)));
+        return result;
+    }
+
+    /**
+     * Lists one directory; a missing date partition is skipped rather than failing the poll.
+     */
+    private ChannelSftp.LsEntry[] list(final Session<ChannelSftp.LsEntry> session, final String directory)
+        throws IOException {
+
+        try {
+            final ChannelSftp.LsEntry[] entries = session.list(directory);
+            return entries != null ? entries : new ChannelSftp.LsEntry[0];
+        } catch (final IOException e) {
+            if (remoteDirectories != null && e.getCause() instanceof SftpException
+                && ((SftpException) e.getCause()).id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return new ChannelSftp.LsEntry[0];
+            }
+            throw e;
+        }
+    }
+
+    private boolean download(
+        final String remoteDirectory,
+        final ChannelSftp.LsEntry file,
+        final File localDirectory) throws IOException {
+
+        final long start = System.nanoTime();
+        try {
+            final boolean transferred = resumableDownloader != null
+                ? copyResumable(remoteDirectory, file, localDirectory)
+                : copy(remoteDirectory, file, localDirectory);
+            if (transferred && downloadedBytes != null) {
+                downloadedBytes.increment(file.getAttrs().getSize());
+            }
+            if (!awaitProcessing) {
+                SftpCommittableFileListFilter.commit(filter, file);
+            } else if (transferred) {
+                final File localFile = new File(localDirectory, file.getFilename()).getAbsoluteFile();
+                awaitingProcessing.put(localFile, new Downloaded(remoteDirectory, file));
+            } else if (filter instanceof ResettableFileListFilter) {
+                // Kept out by an existing local file; listed again by a later poll instead of staying accepted.
+                ((ResettableFileListFilter<ChannelSftp.LsEntry>) filter).remove(file);
+            }
+            record("sftp.download", "Time to download one remote file", transferred ? "success" : "skipped", start);
+            return transferred;
+        } catch (final IOException | RuntimeException e) {
+            record("sftp.download", "Time to download one remote file", "failure", start);
+            if (filter instanceof ResettableFileListFilter) {
+                ((ResettableFileListFilter<ChannelSftp.LsEntry>) filter).remove(file);
+            }
+            throw e;
+        }
+    }
+
+    private boolean copy(
+        final String remoteDirectory,
+        final ChannelSftp.LsEntry file,
+        final File localDirectory) throws IOException {
+
+        try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+            return copyFileToLocalDirectory(remoteDirectory, file, localDirectory, session);
+        }
+    }
+
+    /**
+     * Same contract as {@link #copyFileToLocalDirectory}, with the transfer itself left to the
+     * {@link ResumableSftpDownloader}.
+     */
+    private boolean copyResumable(
+        final String remoteDirectory,
+        final ChannelSftp.LsEntry file,
+        final File localDirectory) throws IOException {
+
+        final String remoteFilePath = remoteDirectory.endsWith("/")
+            ? remoteDirectory + file.getFilename()
+            : remoteDirectory + "/" + file.getFilename();
+        final File localFile = new File(localDirectory, file.getFilename());
+        final long modified = getModified(file);
+        if (localFile.exists() && !(preserveTimestamp && modified != localFile.lastModified())) {
+            logger.warn("The remote file '" + remoteFilePath + "' has not been transferred "
+                + "to the existing local file '" + localFile + "'. Consider removing the local file.");
+            return false;
+        }
+
+        resumableDownloader.download(remoteFilePath, file, localFile);
+        if (deleteRemoteFiles && !awaitProcessing) {
+            try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+                session.remove(remoteFilePath);
+            }
+        }
+        if (preserveTimestamp && !localFile.setLastModified(modified)) {
+            throw new IllegalStateException("Could not set last modified on file: " + localFile);
+        }
+        return true;
+    }
+
+    private void record(final String name, final String description, final String outcome, final long start) {
+        final MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder(name)
+                .description(description)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A downloaded file waiting to be processed.
+     */
+    private static final class Downloaded {
+
+        private final String remoteDirectory;
+        private final ChannelSftp.LsEntry file;
+
+        private Downloaded(final String remoteDirectory, final ChannelSftp.LsEntry file) {
+            this.remoteDirectory = remoteDirectory;
+            this.file = file;
+        }
+
+        private String remoteFilePath() {
+            return remoteDirectory.endsWith("/")
+                ? remoteDirectory + file.getFilename()
+                : remoteDirectory + "/" + file.getFilename();
+        }
+    }
+}
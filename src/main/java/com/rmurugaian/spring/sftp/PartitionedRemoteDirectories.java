@@ -0,0 +1,34 @@
+package com.rmurugaian.spring.sftp;
+
+import com.rmurugaian.spring.cluster.ClusterMembership;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Narrows the remote directories to list down to the ones this instance owns in the
+ * {@link ClusterMembership}, so the instances of a cluster split the listing work by directory
+ * rather than by file. Worthwhile only with many directories per poll; ownership moves to the
+ * survivors when an instance leaves.
+ */
+public class PartitionedRemoteDirectories implements Supplier<List<String>> {
+
+    private final Supplier<List<String>> remoteDirectories;
+    private final ClusterMembership membership;
+
+    public PartitionedRemoteDirectories(
+        final Supplier<List<String>> remoteDirectories,
+        final ClusterMembership membership) {
+
+        this.remoteDirectories = remoteDirectories;
+        this.membership = membership;
+    }
+
+    @Override
+    public List<String> get() {
+        return remoteDirectories.get().stream()
+            .filter(membership::owns)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,375 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SessionFactory} keeping a bounded pool of open SFTP sessions so polls, health checks and
+ * template calls reuse an established connection instead of paying for a new SSH handshake.
+ * <p>
+ * At most {@code size} sessions are borrowed at once; further callers wait up to {@code maxWait}.
+ * Idle sessions are closed once idle longer than {@code maxIdleTime} or older than {@code maxAge},
+ * both on borrow and by a periodic eviction run. A session that failed an operation is closed
+ * instead of being returned, unless the server merely answered with an SFTP status error.
+ * Pool gauges and counters are published under {@code sftp.session.pool}.
+ */
+public class PooledSftpSessionFactory implements SessionFactory<ChannelSftp.LsEntry>, MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledSftpSessionFactory.class);
+
+    private final SessionFactory<ChannelSftp.LsEntry> targetFactory;
+    private final int size;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Duration maxWait = Duration.ofSeconds(30);
+    private Duration maxIdleTime = Duration.ofMinutes(1);
+    private Duration maxAge = Duration.ofMinutes(30);
+    private boolean validateOnBorrow = true;
+
+    private volatile Timer creationTimer;
+    private volatile ScheduledFuture<?> eviction;
+
+    public PooledSftpSessionFactory(final SessionFactory<ChannelSftp.LsEntry> targetFactory, final int size) {
+        Assert.notNull(targetFactory, "targetFactory must not be null.");
+        Assert.isTrue(size > 0, "size must be positive.");
+
+        this.targetFactory = targetFactory;
+        this.size = size;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public void setMaxWait(final Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public void setMaxIdleTime(final Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public void setMaxAge(final Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public void setValidateOnBorrow(final boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    /**
+     * Closes expired idle sessions every {@code interval} on the given scheduler until destroyed.
+     */
+    public void startEviction(final TaskScheduler taskScheduler, final Duration interval) {
+        this.eviction = taskScheduler.scheduleWithFixedDelay(this::evictExpired, interval);
+    }
+
+    @Override
+    public Session<ChannelSftp.LsEntry> getSession() {
+        acquirePermit();
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isExpired(entry, System.currentTimeMillis()) || (validateOnBorrow && !entry.session.test())) {
+                    discard(entry);
+                    continue;
+                }
+                active.incrementAndGet();
+                return new PooledSession(entry);
+            }
+            entry = new PooledEntry(createSession());
+            active.incrementAndGet();
+            return new PooledSession(entry);
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes idle sessions that exceeded {@code maxIdleTime} or {@code maxAge}.
+     */
+    public void evictExpired() {
+        final long now = System.currentTimeMillis();
+        final Iterator<PooledEntry> iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            final PooledEntry entry = iterator.next();
+            if (isExpired(entry, now) && idle.removeFirstOccurrence(entry)) {
+                discard(entry);
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("sftp.session.pool.active", active, AtomicInteger::get)
+            .description("SFTP sessions currently borrowed from the pool")
+            .register(registry);
+        Gauge.builder("sftp.session.pool.idle", idle, BlockingDeque::size)
+            .description("Open SFTP sessions waiting in the pool")
+            .register(registry);
+        FunctionCounter.builder("sftp.session.pool.waits", waits, AtomicLong::get)
+            .description("Borrows that had to wait for a free session")
+            .register(registry);
+        FunctionCounter.builder("sftp.session.pool.evictions", evictions, AtomicLong::get)
+            .description("Sessions closed for being expired, stale or broken")
+            .register(registry);
+        creationTimer = Timer.builder("sftp.session.pool.creation")
+            .description("Time to open a new SFTP session, including the SSH handshake")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            entry.session.close();
+        }
+    }
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        waits.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out after " + maxWait + " waiting for a pooled SFTP session");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pooled SFTP session", e);
+        }
+    }
+
+    private Session<ChannelSftp.LsEntry> createSession() {
+        final long start = System.nanoTime();
+        final Session<ChannelSftp.LsEntry> session = targetFactory.getSession();
+        final Timer timer = creationTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return session;
+    }
+
+    private boolean isExpired(final PooledEntry entry, final long now) {
+        return now - entry.lastReturned > maxIdleTime.toMillis() || now - entry.created > maxAge.toMillis();
+    }
+
+    private void discard(final PooledEntry entry) {
+        evictions.incrementAndGet();
+        try {
+            entry.session.close();
+        } catch (final RuntimeException e) {
+            logger.debug("Failed to close SFTP session: {}", e.getMessage());
+        }
+    }
+
+    private void release(final PooledEntry entry, final boolean reusable) {
+        active.decrementAndGet();
+        try {
+            if (reusable && entry.session.isOpen() && !isExpired(entry, System.currentTimeMillis())) {
+                entry.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                discard(entry);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static final class PooledEntry {
+        private final Session<ChannelSftp.LsEntry> session;
+        private final long created = System.currentTimeMillis();
+        private volatile long lastReturned = created;
+
+        private PooledEntry(final Session<ChannelSftp.LsEntry> session) {
+            this.session = session;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SessionCall<T> {
+        T call(Session<ChannelSftp.LsEntry> session) throws IOException;
+    }
+
+    /**
+     * Borrowed view of a pooled session; closing it returns the session to the pool.
+     */
+    private final class PooledSession implements Session<ChannelSftp.LsEntry> {
+
+        private final PooledEntry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean dirty;
+        private volatile boolean rawReadPending;
+
+        private PooledSession(final PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        private <T> T invoke(final SessionCall<T> call) throws IOException {
+            try {
+                return call.call(entry.session);
+            } catch (final IOException e) {
+                // a status reply such as "no such file" leaves the channel usable
+                dirty |= !(e.getCause() instanceof SftpException);
+                throw e;
+            } catch (final RuntimeException e) {
+                dirty = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean remove(final String path) throws IOException {
+            return invoke(session -> session.remove(path));
+        }
+
+        @Override
+        public ChannelSftp.LsEntry[] list(final String path) throws IOException {
+            return invoke(session -> session.list(path));
+        }
+
+        @Override
+        public void read(final String source, final OutputStream outputStream) throws IOException {
+            invoke(session -> {
+                session.read(source, outputStream);
+                return null;
+            });
+        }
+
+        @Override
+        public void write(final InputStream inputStream, final String destination) throws IOException {
+            invoke(session -> {
+                session.write(inputStream, destination);
+                return null;
+            });
+        }
+
+        @Override
+        public void append(final InputStream inputStream, final String destination) throws IOException {
+            invoke(session -> {
+                session.append(inputStream, destination);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean mkdir(final String directory) throws IOException {
+            return invoke(session -> session.mkdir(directory));
+        }
+
+        @Override
+        public boolean rmdir(final String directory) throws IOException {
+            return invoke(session -> session.rmdir(directory));
+        }
+
+        @Override
+        public void rename(final String pathFrom, final String pathTo) throws IOException {
+            invoke(session -> {
+                session.rename(pathFrom, pathTo);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean exists(final String path) throws IOException {
+            return invoke(session -> session.exists(path));
+        }
+
+        @Override
+        public String[] listNames(final String path) throws IOException {
+            return invoke(session -> session.listNames(path));
+        }
+
+        @Override
+        public InputStream readRaw(final String source) throws IOException {
+            final InputStream stream = invoke(session -> session.readRaw(source));
+            rawReadPending = true;
+            return stream;
+        }
+
+        @Override
+        public boolean finalizeRaw() throws IOException {
+            final boolean finalized = invoke(Session::finalizeRaw);
+            rawReadPending = false;
+            return finalized;
+        }
+
+        @Override
+        public Object getClientInstance() {
+            return entry.session.getClientInstance();
+        }
+
+        @Override
+        public String getHostPort() {
+            return entry.session.getHostPort();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed.get() && entry.session.isOpen();
+        }
+
+        @Override
+        public boolean test() {
+            return !closed.get() && entry.session.test();
+        }
+
+        @Override
+        public void dirty() {
+            dirty = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(entry, !dirty && !rawReadPending);
+            }
+        }
+    }
+}
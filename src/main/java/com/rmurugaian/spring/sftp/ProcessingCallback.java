@@ -0,0 +1,15 @@
+package com.rmurugaian.spring.sftp;
+
+import java.io.File;
+
+/**
+ * Told how processing of a downloaded file ended, so the source that downloaded it only finishes
+ * with the remote file then: deletes it and commits its filter entry once processed, or lets it be
+ * fetched again after a failure.
+ */
+public interface ProcessingCallback {
+
+    void processed(File localFile);
+
+    void failed(File localFile);
+}
@@ -0,0 +1,294 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.service.FileProcessor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.sftp.session.SftpFileInfo;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetch and parse stages of a reactive inbound flow, to be applied between
+ * {@link org.springframework.integration.channel.FluxMessageChannel}s. Each stage handles up to its
+ * own concurrency of files on its own threads, so a slow parser or record sink only holds up
+ * parsing while downloads go on, and downloads never hold up the poller listing the server.
+ * <p>
+ * A file is in flight from the poll that lists it, see {@link #admit}, until it is processed. At
+ * most {@code capacity} files are; pass {@link #room()} as the fetch limit of the listing source so
+ * further files wait on the server instead of in memory or in the local directory. Flux channels
+ * buffer without backpressure, which is why the capacity may not exceed their buffer size.
+ * <p>
+ * A file that fails to download or to be processed is removed from the filter, to be listed again by
+ * a later poll. For a failed file to be fetched again its local copy has to be gone, so the
+ * {@link FileProcessor} is expected to move it away, as a
+ * {@link com.rmurugaian.spring.service.QuarantiningFileProcessor} does; a file that clashes with an
+ * existing local file is dropped and stays in the filter. Only a processed file is deleted from the
+ * server, with {@code deleteRemoteFiles}, and committed in an {@link SftpCommittableFileListFilter}.
+ * Files per stage are published as {@code sftp.pipeline.files}; download durations and bytes under
+ * {@code sftp.download}, as by the synchronizer.
+ */
+public class ReactiveSftpFilePipeline implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveSftpFilePipeline.class);
+
+    private final SessionFactory<ChannelSftp.LsEntry> sessionFactory;
+    private final ResumableSftpDownloader downloader;
+    private final File localDirectory;
+    private final FileProcessor fileProcessor;
+    private final int fetchConcurrency;
+    private final int parseConcurrency;
+    private final int capacity;
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService parseExecutor;
+    private final Scheduler fetchScheduler;
+    private final Scheduler parseScheduler;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger listed = new AtomicInteger();
+    private final AtomicInteger fetching = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger parsing = new AtomicInteger();
+
+    private FileListFilter<ChannelSftp.LsEntry> filter;
+    private boolean deleteRemoteFiles;
+    private boolean preserveTimestamp;
+
+    private volatile MeterRegistry meterRegistry;
+    private volatile Counter downloadedBytes;
+
+    public ReactiveSftpFilePipeline(
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final ResumableSftpDownloader downloader,
+        final File localDirectory,
+        final FileProcessor fileProcessor,
+        final int fetchConcurrency,
+        final int parseConcurrency,
+        final int capacity) {
+
+        Assert.isTrue(fetchConcurrency > 0, "fetchConcurrency must be positive.");
+        Assert.isTrue(parseConcurrency > 0, "parseConcurrency must be positive.");
+        Assert.isTrue(capacity > 0 && capacity <= Queues.SMALL_BUFFER_SIZE,
+            "capacity must be between 1 and " + Queues.SMALL_BUFFER_SIZE + ".");
+
+        this.sessionFactory = sessionFactory;
+        this.downloader = downloader;
+        this.localDirectory = localDirectory;
+        this.fileProcessor = fileProcessor;
+        this.fetchConcurrency = fetchConcurrency;
+        this.parseConcurrency = parseConcurrency;
+        this.capacity = capacity;
+        this.fetchExecutor = Executors.newFixedThreadPool(
+            fetchConcurrency, new CustomizableThreadFactory("sftp-fetch-"));
+        this.parseExecutor = Executors.newFixedThreadPool(
+            parseConcurrency, new CustomizableThreadFactory("sftp-parse-"));
+        this.fetchScheduler = Schedulers.fromExecutorService(fetchExecutor);
+        this.parseScheduler = Schedulers.fromExecutorService(parseExecutor);
+    }
+
+    /**
+     * The listing filter; a file that fails to download or to be processed is removed from it, a
+     * processed one committed.
+     */
+    public void setFilter(final FileListFilter<ChannelSftp.LsEntry> filter) {
+        this.filter = filter;
+    }
+
+    public void setDeleteRemoteFiles(final boolean deleteRemoteFiles) {
+        this.deleteRemoteFiles = deleteRemoteFiles;
+    }
+
+    public void setPreserveTimestamp(final boolean preserveTimestamp) {
+        this.preserveTimestamp = preserveTimestamp;
+    }
+
+    /**
+     * How many more files may be listed.
+     */
+    public int room() {
+        return Math.max(0, capacity - inFlight.get());
+    }
+
+    /**
+     * Counts a listing in flight; call it on the polling thread, before the next poll.
+     */
+    public List<SftpFileInfo> admit(final List<SftpFileInfo> files) {
+        inFlight.addAndGet(files.size());
+        listed.addAndGet(files.size());
+        return files;
+    }
+
+    /**
+     * Downloads the listed files into the local directory, {@code fetchConcurrency} at a time.
+     * Files that fail or already exist locally are dropped.
+     */
+    public Flux<Message<File>> fetch(final Flux<Message<SftpFileInfo>> files) {
+        return files.flatMap(
+            message -> Mono.fromCallable(() -> download(message.getPayload())).subscribeOn(fetchScheduler),
+            fetchConcurrency);
+    }
+
+    /**
+     * Hands the downloaded files to the {@link FileProcessor}, {@code parseConcurrency} at a time.
+     */
+    public Flux<Message<File>> process(final Flux<Message<File>> files) {
+        return files.flatMap(
+            message -> Mono.fromCallable(() -> handle(message)).subscribeOn(parseScheduler),
+            parseConcurrency);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        stageSize("listed", listed, registry);
+        stageSize("fetching", fetching, registry);
+        stageSize("fetched", fetched, registry);
+        stageSize("parsing", parsing, registry);
+        downloadedBytes = Counter.builder("sftp.download.bytes")
+            .description("Bytes downloaded from the SFTP server")
+            .baseUnit("bytes")
+            .register(registry);
+        meterRegistry = registry;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        fetchScheduler.dispose();
+        parseScheduler.dispose();
+        fetchExecutor.shutdownNow();
+        parseExecutor.shutdownNow();
+        if (downloader instanceof DisposableBean) {
+            ((DisposableBean) downloader).destroy();
+        }
+    }
+
+    private Message<File> download(final SftpFileInfo file) {
+        listed.decrementAndGet();
+        fetching.incrementAndGet();
+        final long start = System.nanoTime();
+        final String remoteFilePath = remoteFilePath(file);
+        final File localFile = new File(localDirectory, file.getFilename());
+        try {
+            // Created on demand, since the directory may be cleared at startup.
+            if (!localDirectory.mkdirs() && !localDirectory.isDirectory()) {
+                throw new IllegalStateException("Could not create local directory: " + localDirectory);
+            }
+            if (localFile.exists()) {
+                logger.warn("The remote file '{}' has not been transferred to the existing local file '{}'. "
+                    + "Consider removing the local file.", remoteFilePath, localFile);
+                record("skipped", start);
+                inFlight.decrementAndGet();
+                return null;
+            }
+            downloader.download(remoteFilePath, file.getFileInfo(), localFile);
+            if (preserveTimestamp && !localFile.setLastModified(file.getModified())) {
+                throw new IllegalStateException("Could not set last modified on file: " + localFile);
+            }
+            if (downloadedBytes != null) {
+                downloadedBytes.increment(file.getSize());
+            }
+            record("success", start);
+            fetched.incrementAndGet();
+            return MessageBuilder.withPayload(localFile)
+                .setHeader(FileHeaders.FILENAME, file.getFilename())
+                .setHeader(FileHeaders.REMOTE_DIRECTORY, file.getRemoteDirectory())
+                .setHeader(FileHeaders.REMOTE_FILE, file.getFilename())
+                .setHeader(FileHeaders.REMOTE_FILE_INFO, file)
+                .build();
+        } catch (final IOException | RuntimeException e) {
+            record("failure", start);
+            logger.error("Failed to download '{}', it is listed again by a later poll", remoteFilePath, e);
+            forget(file);
+            inFlight.decrementAndGet();
+            return null;
+        } finally {
+            fetching.decrementAndGet();
+        }
+    }
+
+    private Message<File> handle(final Message<File> message) {
+        fetched.decrementAndGet();
+        parsing.incrementAndGet();
+        final SftpFileInfo file = message.getHeaders().get(FileHeaders.REMOTE_FILE_INFO, SftpFileInfo.class);
+        try {
+            fileProcessor.handleUpdate(message.getPayload());
+        } catch (final RuntimeException e) {
+            logger.error("Failed to process {}, it is listed again by a later poll", message.getPayload(), e);
+            forget(file);
+            return message;
+        } finally {
+            parsing.decrementAndGet();
+            inFlight.decrementAndGet();
+        }
+        processed(file);
+        return message;
+    }
+
+    private void processed(final SftpFileInfo file) {
+        try {
+            if (deleteRemoteFiles) {
+                try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+                    session.remove(remoteFilePath(file));
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            logger.error("Failed to remove {}", remoteFilePath(file), e);
+        } finally {
+            SftpCommittableFileListFilter.commit(filter, file.getFileInfo());
+        }
+    }
+
+    private void forget(final SftpFileInfo file) {
+        if (filter instanceof ResettableFileListFilter) {
+            ((ResettableFileListFilter<ChannelSftp.LsEntry>) filter).remove(file.getFileInfo());
+        }
+    }
+
+    private void record(final String outcome, final long start) {
+        final MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder("sftp.download")
+                .description("Time to download one remote file")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String remoteFilePath(final SftpFileInfo file) {
+        final String directory = file.getRemoteDirectory();
+        return (directory.endsWith("/") ? directory : directory + "/") + file.getFilename();
+    }
+
+    private static void stageSize(final String stage, final AtomicInteger files, final MeterRegistry registry) {
+        Gauge.builder("sftp.pipeline.files", files, AtomicInteger::get)
+            .description("Files in flight in the reactive inbound pipeline")
+            .tag("stage", stage)
+            .register(registry);
+    }
+}
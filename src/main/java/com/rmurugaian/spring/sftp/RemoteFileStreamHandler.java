@@ -0,0 +1,81 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.service.FileProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.sftp.session.SftpFileInfo;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Hands a remote file streamed by the SFTP streaming inbound adapter to
+ * {@link FileProcessor#handleUpdateStream}, so processing runs while the transfer is in progress
+ * and nothing is written to the local disk.
+ * <p>
+ * The message must carry the session it was read with as its closeable resource and the raw
+ * {@link SftpFileInfo} (not JSON) as the remote file info header. When processing succeeds the
+ * remote file is removed if {@code deleteRemoteFiles} is set, and committed in an
+ * {@link SftpCommittableFileListFilter}. When it fails the file stays on the server and is removed
+ * from the filter, so a later poll picks it up again.
+ */
+public class RemoteFileStreamHandler implements MessageHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteFileStreamHandler.class);
+
+    private final FileProcessor fileProcessor;
+    private final FileListFilter<ChannelSftp.LsEntry> filter;
+    private final boolean deleteRemoteFiles;
+
+    public RemoteFileStreamHandler(
+        final FileProcessor fileProcessor,
+        final FileListFilter<ChannelSftp.LsEntry> filter,
+        final boolean deleteRemoteFiles) {
+
+        this.fileProcessor = fileProcessor;
+        this.filter = filter;
+        this.deleteRemoteFiles = deleteRemoteFiles;
+    }
+
+    @Override
+    public void handleMessage(final Message<?> message) {
+        final Session<?> session = (Session<?>) StaticMessageHeaderAccessor.getCloseableResource(message);
+        final String directory = message.getHeaders().get(FileHeaders.REMOTE_DIRECTORY, String.class);
+        final String fileName = message.getHeaders().get(FileHeaders.REMOTE_FILE, String.class);
+        final String remotePath = directory.endsWith("/") ? directory + fileName : directory + "/" + fileName;
+        try {
+            try (InputStream stream = (InputStream) message.getPayload()) {
+                fileProcessor.handleUpdateStream(fileName, stream);
+            }
+            session.finalizeRaw();
+            if (deleteRemoteFiles && !session.remove(remotePath)) {
+                logger.warn("Processed remote file {} could not be removed", remotePath);
+            }
+            final Object fileInfo = message.getHeaders().get(FileHeaders.REMOTE_FILE_INFO);
+            if (fileInfo instanceof SftpFileInfo) {
+                SftpCommittableFileListFilter.commit(filter, ((SftpFileInfo) fileInfo).getFileInfo());
+            }
+        } catch (final IOException | RuntimeException e) {
+            resetFilter(message);
+            throw new MessagingException(message, "Failed to process remote file " + remotePath, e);
+        } finally {
+            session.close();
+        }
+    }
+
+    private void resetFilter(final Message<?> message) {
+        final Object fileInfo = message.getHeaders().get(FileHeaders.REMOTE_FILE_INFO);
+        if (filter instanceof ResettableFileListFilter && fileInfo instanceof SftpFileInfo) {
+            ((ResettableFileListFilter<ChannelSftp.LsEntry>) filter).remove(((SftpFileInfo) fileInfo).getFileInfo());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Downloads a remote file so that a dropped connection does not restart the transfer from byte 0.
+ * <p>
+ * Bytes are appended to a partial file next to the target, and a checkpoint records the remote
+ * size, modification time and the offset known to be on disk. A failed attempt is retried with
+ * exponential backoff on a fresh session, continuing from the checkpointed offset with an SFTP read
+ * that skips the bytes already received. Partial file and checkpoint survive a restart, so the next
+ * poll resumes as well, unless the remote file changed meanwhile. Once complete, the partial file is
+ * checked against the remote size and a fresh stat of the remote file, then moved onto the target.
+ * <p>
+ * Partial file and checkpoint are named after the target plus {@code temporaryFileSuffix}, so the
+ * inbound message source ignores them.
+ */
+public class ResumableSftpDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableSftpDownloader.class);
+
+    static final int BUFFER_SIZE = 65536;
+
+    private final SessionFactory<ChannelSftp.LsEntry> sessionFactory;
+    private final RetryTemplate retryTemplate = new RetryTemplate();
+
+    private String temporaryFileSuffix = ".writing";
+    private long checkpointInterval = 8 * 1024 * 1024;
+
+    /**
+     * @param maxAttempts    transfer attempts per file, including the first
+     * @param initialBackoff milliseconds to wait before the first retry
+     * @param multiplier     factor applied to the wait after each retry
+     * @param maxBackoff     upper bound of the wait between retries
+     */
+    public ResumableSftpDownloader(
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final int maxAttempts,
+        final long initialBackoff,
+        final double multiplier,
+        final long maxBackoff) {
+
+        Assert.isTrue(maxAttempts > 0, "maxAttempts must be positive.");
+        this.sessionFactory = sessionFactory;
+
+        // Connection failures are worth retrying, a missing remote file is not.
+        final Map<Class<? extends Throwable>, Boolean> retryable = new HashMap<>();
+        retryable.put(IOException.class, true);
+        retryable.put(IllegalStateException.class, true);
+        retryable.put(FileNotFoundException.class, false);
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(maxAttempts, retryable, true));
+
+        final ExponentialBackOffPolicy backOff = new ExponentialBackOffPolicy();
+        backOff.setInitialInterval(initialBackoff);
+        backOff.setMultiplier(multiplier);
+        backOff.setMaxInterval(maxBackoff);
+        retryTemplate.setBackOffPolicy(backOff);
+    }
+
+    public void setTemporaryFileSuffix(final String temporaryFileSuffix) {
+        this.temporaryFileSuffix = temporaryFileSuffix;
+    }
+
+    /**
+     * Bytes received between two checkpoints; each checkpoint forces the partial file to disk.
+     */
+    public void setCheckpointInterval(final long checkpointInterval) {
+        Assert.isTrue(checkpointInterval > 0, "checkpointInterval must be positive.");
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    protected SessionFactory<ChannelSftp.LsEntry> getSessionFactory() {
+        return sessionFactory;
+    }
+
+    protected RetryTemplate getRetryTemplate() {
+        return retryTemplate;
+    }
+
+    /**
+     * Downloads {@code remoteFilePath}, described by its listing entry, to {@code localFile},
+     * replacing an existing file. Throws when the retries are exhausted; the partial file and its
+     * checkpoint are kept for the next attempt.
+     */
+    public void download(final String remoteFilePath, final ChannelSftp.LsEntry remoteFile, final File localFile)
+        throws IOException {
+
+        final File partial = partialFile(localFile);
+        final File checkpoint = checkpointFile(localFile);
+        final SftpATTRS attrs = remoteFile.getAttrs();
+
+        retryTemplate.<Void, IOException>execute(context -> {
+            long offset = resumeOffset(checkpoint, partial, attrs);
+            if (context.getRetryCount() > 0 || offset > 0) {
+                logger.info("Resuming {} at byte {} of {}, attempt {}",
+                    remoteFilePath, offset, attrs.getSize(), context.getRetryCount() + 1);
+            }
+            try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+                offset = transfer(session, remoteFilePath, partial, checkpoint, attrs, offset);
+                verify(session, remoteFilePath, partial, checkpoint, attrs, offset);
+            }
+            return null;
+        });
+
+        complete(partial, checkpoint, localFile);
+    }
+
+    protected File partialFile(final File localFile) {
+        return new File(localFile.getPath() + temporaryFileSuffix);
+    }
+
+    protected File checkpointFile(final File localFile) {
+        return new File(localFile.getPath() + ".checkpoint" + temporaryFileSuffix);
+    }
+
+    protected void complete(final File partial, final File checkpoint, final File localFile) throws IOException {
+        Files.move(partial.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(checkpoint.toPath());
+    }
+
+    private long transfer(
+        final Session<ChannelSftp.LsEntry> session,
+        final String remoteFilePath,
+        final File partial,
+        final File checkpoint,
+        final SftpATTRS attrs,
+        final long resumeOffset) throws IOException {
+
+        long offset = resumeOffset;
+        final ChannelSftp channel = (ChannelSftp) session.getClientInstance();
+        try (FileChannel out = FileChannel.open(partial.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             InputStream in = channel.get(remoteFilePath, null, offset)) {
+
+            out.truncate(offset);
+            out.position(offset);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long checkpointed = offset;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                offset += read;
+                if (offset - checkpointed >= checkpointInterval) {
+                    out.force(false);
+                    writeCheckpoint(checkpoint, attrs, offset);
+                    checkpointed = offset;
+                }
+            }
+            out.force(false);
+            writeCheckpoint(checkpoint, attrs, offset);
+            return offset;
+        } catch (final SftpException e) {
+            throw readFailure(session, remoteFilePath, offset, e);
+        } catch (final IOException | RuntimeException e) {
+            session.dirty();
+            // Whatever reached the disk before the failure is kept for the next attempt.
+            if (offset > resumeOffset && partial.length() >= offset) {
+                writeCheckpoint(checkpoint, attrs, offset);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the session dirty and translates a failed SFTP read; a missing remote file becomes a
+     * {@link FileNotFoundException}, which is not retried.
+     */
+    protected IOException readFailure(
+        final Session<ChannelSftp.LsEntry> session,
+        final String remoteFilePath,
+        final long offset,
+        final SftpException e) {
+
+        session.dirty();
+        if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+            return new FileNotFoundException(remoteFilePath);
+        }
+        return new IOException("Failed to read " + remoteFilePath + " at byte " + offset, e);
+    }
+
+    /**
+     * Checks the transfer against the listed size and a fresh stat of the remote file. A file that
+     * changed during the transfer is downloaded again from the start.
+     */
+    protected void verify(
+        final Session<ChannelSftp.LsEntry> session,
+        final String remoteFilePath,
+        final File partial,
+        final File checkpoint,
+        final SftpATTRS attrs,
+        final long offset) throws IOException {
+
+        final SftpATTRS current;
+        try {
+            current = ((ChannelSftp) session.getClientInstance()).stat(remoteFilePath);
+        } catch (final SftpException e) {
+            throw new IOException("Failed to stat " + remoteFilePath, e);
+        }
+        // Not every server reports times in a stat reply; compare them only when it does.
+        final boolean modified = (current.getFlags() & SftpATTRS.SSH_FILEXFER_ATTR_ACMODTIME) != 0
+            && current.getMTime() != attrs.getMTime();
+        if (offset != attrs.getSize() || partial.length() != attrs.getSize()
+            || current.getSize() != attrs.getSize() || modified) {
+
+            Files.deleteIfExists(partial.toPath());
+            Files.deleteIfExists(checkpoint.toPath());
+            throw new IOException("Integrity check failed for " + remoteFilePath + ": received " + offset
+                + " of " + attrs.getSize() + " bytes, remote file now " + current.getSize() + " bytes modified at "
+                + current.getMTime() + " instead of " + attrs.getMTime());
+        }
+    }
+
+    /**
+     * The offset to continue from: the checkpointed offset when the checkpoint belongs to this
+     * version of the remote file and the partial file holds at least that many bytes, otherwise 0.
+     */
+    private long resumeOffset(final File checkpoint, final File partial, final SftpATTRS attrs) {
+        if (!checkpoint.exists() || !partial.exists()) {
+            return 0;
+        }
+        final Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(checkpoint.toPath()), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            final long size = Long.parseLong(properties.getProperty("size"));
+            final long modified = Long.parseLong(properties.getProperty("modified"));
+            final long offset = Long.parseLong(properties.getProperty("offset"));
+            if (size == attrs.getSize() && modified == attrs.getMTime() && offset <= partial.length()) {
+                return offset;
+            }
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable checkpoint {}: {}", checkpoint, e.getMessage());
+        }
+        return 0;
+    }
+
+    private void writeCheckpoint(final File checkpoint, final SftpATTRS attrs, final long offset) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("size", Long.toString(attrs.getSize()));
+        properties.setProperty("modified", Long.toString(attrs.getMTime()));
+        properties.setProperty("offset", Long.toString(offset));
+        try (Writer writer = Files.newBufferedWriter(checkpoint.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+}
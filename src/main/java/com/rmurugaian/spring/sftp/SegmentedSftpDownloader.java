@@ -0,0 +1,217 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@link ResumableSftpDownloader} that fetches files of at least {@code threshold} bytes as
+ * {@code segments} byte ranges in parallel, each over its own session, so a single large file is
+ * not bound by the window and round trip time of one SFTP stream.
+ * <p>
+ * The partial file is preallocated to the remote size and every range is written straight to its
+ * offset with positional {@link FileChannel} writes. A failed range is retried on a fresh session
+ * from the last byte it received; the other ranges carry on. Ranges are not checkpointed, so a
+ * segmented download interrupted by a restart starts over. Smaller files take the single-stream,
+ * checkpointed path of the superclass.
+ * <p>
+ * At most {@code maxConcurrentSegments} ranges are transferred at a time across all files; size
+ * the session pool for that many sessions next to the listing session.
+ */
+public class SegmentedSftpDownloader extends ResumableSftpDownloader implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedSftpDownloader.class);
+
+    private final int segments;
+    private final long threshold;
+    private final ExecutorService segmentExecutor;
+
+    /**
+     * @param segments              byte ranges a large file is split into
+     * @param threshold             size in bytes from which a file is split
+     * @param maxConcurrentSegments ranges transferred at a time, across all files
+     */
+    public SegmentedSftpDownloader(
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final int maxAttempts,
+        final long initialBackoff,
+        final double multiplier,
+        final long maxBackoff,
+        final int segments,
+        final long threshold,
+        final int maxConcurrentSegments) {
+
+        super(sessionFactory, maxAttempts, initialBackoff, multiplier, maxBackoff);
+        Assert.isTrue(segments > 1, "segments must be greater than 1.");
+        Assert.isTrue(threshold >= segments, "threshold must be at least one byte per segment.");
+        Assert.isTrue(maxConcurrentSegments > 0, "maxConcurrentSegments must be positive.");
+
+        this.segments = segments;
+        this.threshold = threshold;
+        this.segmentExecutor = Executors.newFixedThreadPool(
+            maxConcurrentSegments, new CustomizableThreadFactory("sftp-segment-"));
+    }
+
+    @Override
+    public void download(final String remoteFilePath, final ChannelSftp.LsEntry remoteFile, final File localFile)
+        throws IOException {
+
+        final SftpATTRS attrs = remoteFile.getAttrs();
+        if (attrs.getSize() < threshold) {
+            super.download(remoteFilePath, remoteFile, localFile);
+            return;
+        }
+
+        final File partial = partialFile(localFile);
+        final File checkpoint = checkpointFile(localFile);
+        // A checkpoint of an earlier single-stream attempt does not describe a segmented partial file.
+        Files.deleteIfExists(checkpoint.toPath());
+        try (RandomAccessFile preallocated = new RandomAccessFile(partial, "rw")) {
+            preallocated.setLength(attrs.getSize());
+        }
+
+        final List<Segment> ranges = split(attrs.getSize());
+        try (FileChannel out = FileChannel.open(partial.toPath(), StandardOpenOption.WRITE)) {
+            final List<Future<?>> transfers = new ArrayList<>(ranges.size());
+            for (final Segment segment : ranges) {
+                transfers.add(segmentExecutor.submit(() -> {
+                    fetch(remoteFilePath, out, segment);
+                    return null;
+                }));
+            }
+            awaitAll(remoteFilePath, transfers);
+            out.force(false);
+        } catch (final IOException | RuntimeException e) {
+            // Without range checkpoints the preallocated file cannot be resumed; free the space.
+            Files.deleteIfExists(partial.toPath());
+            throw e;
+        }
+
+        final long received = ranges.stream().mapToLong(segment -> segment.position - segment.start).sum();
+        try (Session<ChannelSftp.LsEntry> session = getSessionFactory().getSession()) {
+            verify(session, remoteFilePath, partial, checkpoint, attrs, received);
+        }
+        complete(partial, checkpoint, localFile);
+    }
+
+    @Override
+    public void destroy() {
+        segmentExecutor.shutdownNow();
+    }
+
+    private List<Segment> split(final long size) {
+        final List<Segment> ranges = new ArrayList<>(segments);
+        final long length = (size + segments - 1) / segments;
+        for (long start = 0; start < size; start += length) {
+            ranges.add(new Segment(start, Math.min(size, start + length)));
+        }
+        return ranges;
+    }
+
+    private void fetch(final String remoteFilePath, final FileChannel out, final Segment segment)
+        throws IOException {
+
+        getRetryTemplate().<Void, IOException>execute(context -> {
+            if (context.getRetryCount() > 0) {
+                logger.info("Resuming range {}-{} of {} at byte {}, attempt {}", segment.start, segment.end,
+                    remoteFilePath, segment.position, context.getRetryCount() + 1);
+            }
+            try (Session<ChannelSftp.LsEntry> session = getSessionFactory().getSession()) {
+                transfer(session, remoteFilePath, out, segment);
+            }
+            return null;
+        });
+    }
+
+    private void transfer(
+        final Session<ChannelSftp.LsEntry> session,
+        final String remoteFilePath,
+        final FileChannel out,
+        final Segment segment) throws IOException {
+
+        final ChannelSftp channel = (ChannelSftp) session.getClientInstance();
+        try (InputStream in = channel.get(remoteFilePath, null, segment.position)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (segment.position < segment.end) {
+                final int read = in.read(buffer, 0, (int) Math.min(buffer.length, segment.end - segment.position));
+                if (read == -1) {
+                    throw new EOFException(remoteFilePath + " ended at byte " + segment.position
+                        + ", expected " + segment.end);
+                }
+                final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                long position = segment.position;
+                while (chunk.hasRemaining()) {
+                    position += out.write(chunk, position);
+                }
+                segment.position = position;
+            }
+        } catch (final SftpException e) {
+            throw readFailure(session, remoteFilePath, segment.position, e);
+        } catch (final IOException | RuntimeException e) {
+            session.dirty();
+            throw e;
+        }
+    }
+
+    private static void awaitAll(final String remoteFilePath, final List<Future<?>> transfers) throws IOException {
+        IOException failure = null;
+        for (final Future<?> transfer : transfers) {
+            try {
+                transfer.get();
+            } catch (final ExecutionException e) {
+                final IOException error = e.getCause() instanceof IOException
+                    ? (IOException) e.getCause()
+                    : new IOException("Failed to download a range of " + remoteFilePath, e.getCause());
+                if (failure == null) {
+                    failure = error;
+                } else {
+                    failure.addSuppressed(error);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                transfers.forEach(pending -> pending.cancel(true));
+                throw new InterruptedIOException("Interrupted while downloading " + remoteFilePath);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Segment {
+
+        private final long start;
+        private final long end;
+        private volatile long position;
+
+        private Segment(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+    }
+}
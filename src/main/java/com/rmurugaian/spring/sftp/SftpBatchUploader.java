@@ -0,0 +1,271 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.service.CountingInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads batches of files or streams through a {@link RemoteFileTemplate}, up to
+ * {@code concurrency} at a time, each over its own session. Back the template with a pooled
+ * session factory so concurrent uploads do not each pay for a handshake.
+ * <p>
+ * Like {@link RemoteFileTemplate#send}, each upload is written under the template's temporary
+ * file suffix and renamed once complete, so the partner never picks up a partial file. A failed
+ * upload does not stop the rest of its batch; it is reported in the {@link BatchReport}, and its
+ * temporary file is removed.
+ * <p>
+ * Every batch is logged with its throughput. Batch and per-file durations and uploaded bytes are
+ * published under {@code sftp.upload}.
+ */
+public class SftpBatchUploader implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SftpBatchUploader.class);
+
+    private final RemoteFileTemplate<ChannelSftp.LsEntry> template;
+    private final String remoteDirectory;
+    private final ExecutorService uploadExecutor;
+
+    private volatile MeterRegistry meterRegistry;
+    private volatile Counter uploadedBytes;
+
+    public SftpBatchUploader(
+        final RemoteFileTemplate<ChannelSftp.LsEntry> template,
+        final String remoteDirectory,
+        final int concurrency) {
+
+        Assert.hasLength(remoteDirectory, "remoteDirectory must not be empty.");
+        Assert.isTrue(concurrency > 0, "concurrency must be positive.");
+
+        this.template = template;
+        this.remoteDirectory = remoteDirectory.endsWith("/") ? remoteDirectory : remoteDirectory + "/";
+        this.uploadExecutor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("sftp-upload-"));
+    }
+
+    /**
+     * Uploads the files under their own names.
+     */
+    public BatchReport uploadFiles(final List<File> files) {
+        final List<Upload> uploads = new ArrayList<>(files.size());
+        files.forEach(file -> uploads.add(Upload.of(file)));
+        return upload(uploads);
+    }
+
+    /**
+     * Uploads the batch and waits for all of it, failed uploads included.
+     */
+    public BatchReport upload(final List<Upload> uploads) {
+        final long start = System.nanoTime();
+        final CompletionService<Long> completion = new ExecutorCompletionService<>(uploadExecutor);
+        final Map<Future<Long>, String> names = new LinkedHashMap<>();
+        uploads.forEach(upload -> names.put(completion.submit(() -> upload(upload)), upload.name));
+
+        long bytes = 0;
+        final Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < uploads.size(); i++) {
+                final Future<Long> uploaded = completion.take();
+                try {
+                    bytes += uploaded.get();
+                } catch (final ExecutionException e) {
+                    failures.put(names.get(uploaded), e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            names.keySet().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading to '" + remoteDirectory + "'", e);
+        }
+
+        final BatchReport report =
+            new BatchReport(uploads.size() - failures.size(), bytes, System.nanoTime() - start, failures);
+        record("sftp.upload.batch", "Time to upload one batch", report.getFailures().isEmpty(), report.elapsedNanos);
+        if (failures.isEmpty()) {
+            logger.info("Uploaded {} to '{}'", report, remoteDirectory);
+        } else {
+            logger.warn("Uploaded {} to '{}', failed: {}", report, remoteDirectory, failures.keySet());
+        }
+        return report;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        uploadedBytes = Counter.builder("sftp.upload.bytes")
+            .description("Bytes uploaded to the SFTP server")
+            .baseUnit("bytes")
+            .register(registry);
+        meterRegistry = registry;
+    }
+
+    @Override
+    public void destroy() {
+        uploadExecutor.shutdownNow();
+    }
+
+    private long upload(final Upload upload) {
+        final long start = System.nanoTime();
+        final String remoteFilePath = remoteDirectory + upload.name;
+        final String temporaryFilePath = template.isUseTemporaryFileName()
+            ? remoteFilePath + template.getTemporaryFileSuffix()
+            : remoteFilePath;
+        boolean success = false;
+        try {
+            final long bytes = template.execute(session -> {
+                try (CountingInputStream in = new CountingInputStream(upload.source.getInputStream())) {
+                    session.write(in, temporaryFilePath);
+                    if (!temporaryFilePath.equals(remoteFilePath)) {
+                        session.rename(temporaryFilePath, remoteFilePath);
+                    }
+                    return in.getCount();
+                } catch (final IOException | RuntimeException e) {
+                    removeQuietly(session, temporaryFilePath);
+                    throw e;
+                }
+            });
+            if (uploadedBytes != null) {
+                uploadedBytes.increment(bytes);
+            }
+            success = true;
+            return bytes;
+        } finally {
+            record("sftp.upload", "Time to upload one file", success, System.nanoTime() - start);
+        }
+    }
+
+    private static void removeQuietly(final Session<ChannelSftp.LsEntry> session, final String path) {
+        try {
+            if (session.exists(path)) {
+                session.remove(path);
+            }
+        } catch (final IOException | RuntimeException e) {
+            logger.debug("Could not remove '{}': {}", path, e.getMessage());
+        }
+    }
+
+    private void record(final String name, final String description, final boolean success, final long nanos) {
+        final MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder(name)
+                .description(description)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One file to upload: a remote file name and where its content comes from.
+     */
+    public static final class Upload {
+
+        private final String name;
+        private final InputStreamSource source;
+
+        private Upload(final String name, final InputStreamSource source) {
+            Assert.hasLength(name, "name must not be empty.");
+            this.name = name;
+            this.source = source;
+        }
+
+        public static Upload of(final File file) {
+            return new Upload(file.getName(), new FileSystemResource(file));
+        }
+
+        /**
+         * Uploads content opened when its turn comes, e.g. a response rendered on demand.
+         */
+        public static Upload of(final String name, final InputStreamSource source) {
+            return new Upload(name, source);
+        }
+
+        /**
+         * Uploads an open stream, which is closed once uploaded.
+         */
+        public static Upload of(final String name, final InputStream stream) {
+            return new Upload(name, () -> stream);
+        }
+    }
+
+    /**
+     * Outcome and throughput of one batch.
+     */
+    public static final class BatchReport {
+
+        private final int uploaded;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final Map<String, Throwable> failures;
+
+        private BatchReport(
+            final int uploaded,
+            final long bytes,
+            final long elapsedNanos,
+            final Map<String, Throwable> failures) {
+
+            this.uploaded = uploaded;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        public int getUploaded() {
+            return uploaded;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getFilesPerSecond() {
+            return uploaded * 1e9 / Math.max(elapsedNanos, 1);
+        }
+
+        public double getBytesPerSecond() {
+            return bytes * 1e9 / Math.max(elapsedNanos, 1);
+        }
+
+        /**
+         * The names of the files that were not uploaded, with the cause.
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d bytes in %d ms (%.1f files/s, %.2f MB/s)",
+                uploaded, bytes, getElapsedMillis(), getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.springframework.integration.file.filters.ChainFileListFilter;
+import org.springframework.integration.file.filters.FileListFilter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link ChainFileListFilter} of remote files that passes the directory of each file on to, and
+ * commits files in, the {@link SftpCommittableFileListFilter}s it chains.
+ */
+public class SftpChainFileListFilter extends ChainFileListFilter<ChannelSftp.LsEntry>
+    implements SftpCommittableFileListFilter {
+
+    @Override
+    public List<ChannelSftp.LsEntry> filterFiles(
+        final ChannelSftp.LsEntry[] files,
+        final Function<ChannelSftp.LsEntry, String> remoteDirectory) {
+
+        List<ChannelSftp.LsEntry> leftOver = Arrays.asList(files);
+        for (final FileListFilter<ChannelSftp.LsEntry> filter : fileFilters) {
+            if (leftOver.isEmpty()) {
+                break;
+            }
+            leftOver = SftpCommittableFileListFilter.filterFiles(
+                filter, leftOver.toArray(new ChannelSftp.LsEntry[0]), remoteDirectory);
+        }
+        return leftOver;
+    }
+
+    @Override
+    public void commit(final ChannelSftp.LsEntry file) {
+        fileFilters.forEach(filter -> SftpCommittableFileListFilter.commit(filter, file));
+    }
+}
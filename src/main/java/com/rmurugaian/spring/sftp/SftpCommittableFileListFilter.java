@@ -0,0 +1,55 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Filter of remote files that only remembers an accepted file for good once it is committed, after
+ * the file has been processed. Until then the file is rejected by later listings of this instance;
+ * removing it, rolling it back or restarting lets it be accepted again.
+ * <p>
+ * Files are told apart by the directory they were listed in, so files of the same name in several
+ * date partitions are all accepted.
+ */
+public interface SftpCommittableFileListFilter
+    extends ReversibleFileListFilter<ChannelSftp.LsEntry>, ResettableFileListFilter<ChannelSftp.LsEntry> {
+
+    /**
+     * Filters files listed from several directories; {@code remoteDirectory} gives each one's.
+     */
+    List<ChannelSftp.LsEntry> filterFiles(
+        ChannelSftp.LsEntry[] files,
+        Function<ChannelSftp.LsEntry, String> remoteDirectory);
+
+    /**
+     * Remembers an accepted file for good.
+     */
+    void commit(ChannelSftp.LsEntry file);
+
+    /**
+     * Filters with the directory of each file when the filter is committable.
+     */
+    static List<ChannelSftp.LsEntry> filterFiles(
+        final FileListFilter<ChannelSftp.LsEntry> filter,
+        final ChannelSftp.LsEntry[] files,
+        final Function<ChannelSftp.LsEntry, String> remoteDirectory) {
+
+        return filter instanceof SftpCommittableFileListFilter
+            ? ((SftpCommittableFileListFilter) filter).filterFiles(files, remoteDirectory)
+            : filter.filterFiles(files);
+    }
+
+    /**
+     * Commits the file when the filter is committable.
+     */
+    static void commit(final FileListFilter<ChannelSftp.LsEntry> filter, final ChannelSftp.LsEntry file) {
+        if (filter instanceof SftpCommittableFileListFilter) {
+            ((SftpCommittableFileListFilter) filter).commit(file);
+        }
+    }
+}
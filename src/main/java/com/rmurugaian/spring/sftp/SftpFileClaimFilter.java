@@ -0,0 +1,222 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.cluster.ClusterMembership;
+import com.rmurugaian.spring.metadata.PrunableMetadataStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.file.filters.AbstractFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Lets several instances poll the same remote directory without fetching a file twice. A file is
+ * accepted only by the instance that owns its name's partition in the {@link ClusterMembership},
+ * and only after that instance has claimed it in a shared {@link ConcurrentMetadataStore}; the
+ * first {@code putIfAbsent} wins.
+ * <p>
+ * Claims are keyed, like {@link SftpRemoteFileIdentityFilter}, by the directory a file was listed
+ * in, its name, size and modification time. A file that fails or is rolled back releases the claim
+ * of this instance, a file committed once processed marks it done. A claim still open after
+ * {@code claimTimeout} is taken to belong to a crashed instance and may be taken over, so the
+ * timeout must exceed the longest download and processing. Instance clocks must be synchronized to
+ * well within it. With a {@code retention} and a {@link PrunableMetadataStore}, done claims are
+ * dropped after that many ms, checked while listing at most once an hour.
+ * <p>
+ * Claim attempts are counted as {@code sftp.claims}, tagged with their outcome.
+ */
+public class SftpFileClaimFilter extends AbstractFileListFilter<ChannelSftp.LsEntry>
+    implements SftpCommittableFileListFilter, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SftpFileClaimFilter.class);
+
+    private static final String CLAIMED = "claimed";
+    private static final String DONE = "done";
+    private static final char SEPARATOR = '|';
+    private static final long MAX_PRUNE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final ConcurrentMetadataStore store;
+    private final String prefix;
+    private final String remoteDirectory;
+    private final ClusterMembership membership;
+    private final String nodeId;
+    private final long claimTimeout;
+    private final Map<ChannelSftp.LsEntry, String> accepted = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private long retention;
+    private volatile long lastPruned;
+
+    private volatile Counter claimed;
+    private volatile Counter takenOver;
+    private volatile Counter rejected;
+
+    /**
+     * @param remoteDirectory the directory of files filtered without one
+     * @param membership      partitions file names among the instances; {@code null} lets every
+     *                        instance compete for every file
+     */
+    public SftpFileClaimFilter(
+        final ConcurrentMetadataStore store,
+        final String prefix,
+        final String remoteDirectory,
+        final ClusterMembership membership,
+        final long claimTimeout) {
+
+        this.store = store;
+        this.prefix = prefix;
+        this.remoteDirectory = remoteDirectory;
+        this.membership = membership;
+        this.nodeId = membership != null ? membership.getNodeId() : ClusterMembership.defaultNodeId();
+        this.claimTimeout = claimTimeout;
+    }
+
+    /**
+     * How long done claims are kept, in ms; 0 keeps them for good.
+     */
+    public void setRetention(final long retention) {
+        this.retention = retention;
+    }
+
+    @Override
+    public boolean accept(final ChannelSftp.LsEntry file) {
+        pruneIfDue();
+        return accept(file, remoteDirectory);
+    }
+
+    @Override
+    public List<ChannelSftp.LsEntry> filterFiles(
+        final ChannelSftp.LsEntry[] files,
+        final Function<ChannelSftp.LsEntry, String> remoteDirectory) {
+
+        pruneIfDue();
+        final List<ChannelSftp.LsEntry> result = new ArrayList<>();
+        for (final ChannelSftp.LsEntry file : files) {
+            final String directory = remoteDirectory.apply(file);
+            if (accept(file, directory != null ? directory : this.remoteDirectory)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks the claim of a processed file as done, so no other instance takes it over.
+     */
+    @Override
+    public void commit(final ChannelSftp.LsEntry file) {
+        final String key = accepted.remove(file);
+        if (key != null) {
+            store.put(key, value(DONE, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Releases this instance's claim on a file, so it is offered again; claims of other instances
+     * are left alone.
+     */
+    @Override
+    public boolean remove(final ChannelSftp.LsEntry file) {
+        final String removed = accepted.remove(file);
+        final String key = removed != null ? removed : key(remoteDirectory, file);
+        final String existing = store.get(key);
+        if (existing != null && existing.startsWith(CLAIMED + SEPARATOR + nodeId + SEPARATOR)) {
+            store.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void rollback(final ChannelSftp.LsEntry file, final List<ChannelSftp.LsEntry> files) {
+        boolean rollingBack = false;
+        for (final ChannelSftp.LsEntry candidate : files) {
+            rollingBack |= candidate.equals(file);
+            if (rollingBack) {
+                remove(candidate);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        claimed = claimCounter("claimed").register(registry);
+        takenOver = claimCounter("taken_over").register(registry);
+        rejected = claimCounter("rejected").register(registry);
+    }
+
+    private boolean accept(final ChannelSftp.LsEntry file, final String directory) {
+        if (membership != null && !membership.owns(file.getFilename())) {
+            return false;
+        }
+        final String key = key(directory, file);
+        final long now = System.currentTimeMillis();
+        final String claim = value(CLAIMED, now);
+        final String existing = store.putIfAbsent(key, claim);
+        if (existing == null) {
+            increment(claimed);
+            accepted.put(file, key);
+            return true;
+        }
+        final String[] current = existing.split("\\|", 3);
+        if (current.length == 3 && CLAIMED.equals(current[0])
+            && now - Long.parseLong(current[2]) > claimTimeout && store.replace(key, existing, claim)) {
+
+            logger.warn("Taking over {} from {}, claimed at {}", key, current[1], current[2]);
+            increment(takenOver);
+            accepted.put(file, key);
+            return true;
+        }
+        increment(rejected);
+        return false;
+    }
+
+    private String key(final String directory, final ChannelSftp.LsEntry file) {
+        return prefix + (directory.endsWith("/") ? directory : directory + "/") + file.getFilename()
+            + SEPARATOR + file.getAttrs().getSize() + SEPARATOR + file.getAttrs().getMTime();
+    }
+
+    private String value(final String state, final long now) {
+        return state + SEPARATOR + nodeId + SEPARATOR + now;
+    }
+
+    private void pruneIfDue() {
+        final long now = System.currentTimeMillis();
+        if (retention <= 0 || !(store instanceof PrunableMetadataStore)
+            || now - lastPruned < Math.min(retention, MAX_PRUNE_INTERVAL)) {
+            return;
+        }
+        lastPruned = now;
+        final long expiry = now - retention;
+        final int pruned = ((PrunableMetadataStore) store).prune(value -> doneBefore(value, expiry));
+        if (pruned > 0) {
+            logger.info("Pruned {} claims done more than {} ms ago", pruned, retention);
+        }
+    }
+
+    private static boolean doneBefore(final String value, final long time) {
+        final String[] current = value.split("\\|", 3);
+        return current.length == 3 && DONE.equals(current[0]) && Long.parseLong(current[2]) < time;
+    }
+
+    private static void increment(final Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static Counter.Builder claimCounter(final String outcome) {
+        return Counter.builder("sftp.claims")
+            .description("Attempts to claim a remote file for this instance")
+            .tag("outcome", outcome);
+    }
+}
@@ -0,0 +1,118 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import org.springframework.integration.endpoint.AbstractMessageSource;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.sftp.session.SftpFileInfo;
+import org.springframework.messaging.MessagingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Lists the remote directories on each receive and emits the files the filter accepts, oldest
+ * first across all directories, without downloading them, e.g. for an elected leader that queues the downloads for the
+ * whole cluster. A missing directory, like a date partition not created yet, is skipped.
+ * <p>
+ * With a fetch limit, files over the limit are rolled back in a {@link ReversibleFileListFilter}
+ * to be listed again, and nothing is listed while the limit is 0.
+ */
+public class SftpListingMessageSource extends AbstractMessageSource<List<SftpFileInfo>> {
+
+    private final SessionFactory<ChannelSftp.LsEntry> sessionFactory;
+    private final Supplier<List<String>> remoteDirectories;
+    private final FileListFilter<ChannelSftp.LsEntry> filter;
+
+    private IntSupplier fetchLimit = () -> Integer.MAX_VALUE;
+
+    public SftpListingMessageSource(
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final Supplier<List<String>> remoteDirectories,
+        final FileListFilter<ChannelSftp.LsEntry> filter) {
+
+        this.sessionFactory = sessionFactory;
+        this.remoteDirectories = remoteDirectories;
+        this.filter = filter;
+    }
+
+    /**
+     * The most files to emit per receive, e.g. the room left downstream.
+     */
+    public void setFetchLimit(final IntSupplier fetchLimit) {
+        this.fetchLimit = fetchLimit;
+    }
+
+    @Override
+    public String getComponentType() {
+        return "sftp:listing-inbound-channel-adapter";
+    }
+
+    @Override
+    protected Object doReceive() {
+        final int limit = fetchLimit.getAsInt();
+        if (limit <= 0) {
+            return null;
+        }
+        final List<String> directories = remoteDirectories.get();
+        final Map<ChannelSftp.LsEntry, String> listed = new LinkedHashMap<>();
+        try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+            for (final String directory : directories) {
+                for (final ChannelSftp.LsEntry entry : list(session, directory)) {
+                    if (!entry.getAttrs().isDir() && !entry.getAttrs().isLink()) {
+                        listed.put(entry, directory);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new MessagingException("Problem occurred while listing '" + String.join(", ", directories) + "'", e);
+        }
+        final ChannelSftp.LsEntry[] candidates = listed.keySet().stream()
+            .sorted(Comparator.comparingInt(entry -> entry.getAttrs().getMTime()))
+            .toArray(ChannelSftp.LsEntry[]::new);
+        final List<SftpFileInfo> files = new ArrayList<>();
+        for (final ChannelSftp.LsEntry entry
+            : SftpCommittableFileListFilter.filterFiles(filter, candidates, listed::get)) {
+            final SftpFileInfo file = new SftpFileInfo(entry);
+            file.setRemoteDirectory(listed.get(entry));
+            files.add(file);
+        }
+        if (files.size() > limit) {
+            rollback(files.subList(limit, files.size()));
+            return new ArrayList<>(files.subList(0, limit));
+        }
+        return files.isEmpty() ? null : files;
+    }
+
+    private void rollback(final List<SftpFileInfo> files) {
+        if (filter instanceof ReversibleFileListFilter) {
+            final List<ChannelSftp.LsEntry> entries = new ArrayList<>(files.size());
+            files.forEach(file -> entries.add(file.getFileInfo()));
+            ((ReversibleFileListFilter<ChannelSftp.LsEntry>) filter).rollback(entries.get(0), entries);
+        }
+    }
+
+    private static ChannelSftp.LsEntry[] list(final Session<ChannelSftp.LsEntry> session, final String directory)
+        throws IOException {
+
+        try {
+            final ChannelSftp.LsEntry[] entries = session.list(directory);
+            return entries != null ? entries : new ChannelSftp.LsEntry[0];
+        } catch (final IOException e) {
+            if (e.getCause() instanceof SftpException
+                && ((SftpException) e.getCause()).id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return new ChannelSftp.LsEntry[0];
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.metadata.PrunableMetadataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.file.filters.AbstractFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Accept-once filter keyed by remote path, size and modification time, so a file is accepted
+ * again only when it is replaced with different content. Backed by a persistent store, it lets
+ * a restarted poller skip files that were already processed.
+ * <p>
+ * A file is written to the store only when it is committed, once processed; until then it is only
+ * held in memory, so files listed but not processed before a crash are fetched again. With a
+ * {@code retention} and a {@link PrunableMetadataStore}, committed entries are dropped after that
+ * many ms, checked while listing at most once an hour; the retention must exceed how long a
+ * processed file may stay on the server.
+ */
+public class SftpRemoteFileIdentityFilter extends AbstractFileListFilter<ChannelSftp.LsEntry>
+    implements SftpCommittableFileListFilter, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SftpRemoteFileIdentityFilter.class);
+
+    private static final String COMMITTED = "committed";
+    private static final char SEPARATOR = '|';
+    private static final long MAX_PRUNE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final ConcurrentMetadataStore store;
+    private final String prefix;
+    private final String remoteDirectory;
+    private final Map<ChannelSftp.LsEntry, String> accepted = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private boolean flushOnUpdate;
+    private long retention;
+    private volatile long lastPruned;
+
+    /**
+     * @param remoteDirectory the directory of files filtered without one
+     */
+    public SftpRemoteFileIdentityFilter(
+        final ConcurrentMetadataStore store,
+        final String prefix,
+        final String remoteDirectory) {
+
+        this.store = store;
+        this.prefix = prefix;
+        this.remoteDirectory = remoteDirectory;
+    }
+
+    /**
+     * Flushes a {@link Flushable} store after every change.
+     */
+    public void setFlushOnUpdate(final boolean flushOnUpdate) {
+        this.flushOnUpdate = flushOnUpdate;
+    }
+
+    /**
+     * How long committed entries are kept, in ms; 0 keeps them for good.
+     */
+    public void setRetention(final long retention) {
+        this.retention = retention;
+    }
+
+    @Override
+    public boolean accept(final ChannelSftp.LsEntry file) {
+        pruneIfDue();
+        return accept(file, remoteDirectory);
+    }
+
+    @Override
+    public List<ChannelSftp.LsEntry> filterFiles(
+        final ChannelSftp.LsEntry[] files,
+        final Function<ChannelSftp.LsEntry, String> remoteDirectory) {
+
+        pruneIfDue();
+        final List<ChannelSftp.LsEntry> result = new ArrayList<>();
+        for (final ChannelSftp.LsEntry file : files) {
+            final String directory = remoteDirectory.apply(file);
+            if (accept(file, directory != null ? directory : this.remoteDirectory)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void commit(final ChannelSftp.LsEntry file) {
+        final String key = accepted.remove(file);
+        if (key != null) {
+            store.put(key, COMMITTED + SEPARATOR + System.currentTimeMillis());
+            pending.remove(key);
+            flushIfNeeded();
+        }
+    }
+
+    /**
+     * Forgets an accepted file, or else a committed file of the default directory.
+     */
+    @Override
+    public boolean remove(final ChannelSftp.LsEntry file) {
+        final String key = accepted.remove(file);
+        if (key != null) {
+            return pending.remove(key);
+        }
+        final boolean removed = store.remove(buildKey(remoteDirectory, file)) != null;
+        flushIfNeeded();
+        return removed;
+    }
+
+    @Override
+    public void rollback(final ChannelSftp.LsEntry file, final List<ChannelSftp.LsEntry> files) {
+        boolean rollingBack = false;
+        for (final ChannelSftp.LsEntry candidate : files) {
+            rollingBack |= candidate.equals(file);
+            if (rollingBack) {
+                remove(candidate);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (store instanceof Closeable) {
+            ((Closeable) store).close();
+        }
+    }
+
+    private boolean accept(final ChannelSftp.LsEntry file, final String directory) {
+        final String key = buildKey(directory, file);
+        if (store.get(key) != null || !pending.add(key)) {
+            return false;
+        }
+        accepted.put(file, key);
+        return true;
+    }
+
+    private String buildKey(final String directory, final ChannelSftp.LsEntry file) {
+        return prefix + (directory.endsWith("/") ? directory : directory + "/") + file.getFilename()
+            + SEPARATOR + file.getAttrs().getSize() + SEPARATOR + file.getAttrs().getMTime() * 1000L;
+    }
+
+    private void pruneIfDue() {
+        final long now = System.currentTimeMillis();
+        if (retention <= 0 || !(store instanceof PrunableMetadataStore)
+            || now - lastPruned < Math.min(retention, MAX_PRUNE_INTERVAL)) {
+            return;
+        }
+        lastPruned = now;
+        final long expiry = now - retention;
+        final int pruned = ((PrunableMetadataStore) store).prune(value -> committedBefore(value, expiry));
+        if (pruned > 0) {
+            flushIfNeeded();
+            logger.info("Pruned {} entries committed more than {} ms ago", pruned, retention);
+        }
+    }
+
+    private static boolean committedBefore(final String value, final long time) {
+        return value.startsWith(COMMITTED + SEPARATOR)
+            && Long.parseLong(value.substring(COMMITTED.length() + 1)) < time;
+    }
+
+    private void flushIfNeeded() {
+        if (flushOnUpdate && store instanceof Flushable) {
+            try {
+                ((Flushable) store).flush();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Failed to flush the metadata store", e);
+            }
+        }
+    }
+}
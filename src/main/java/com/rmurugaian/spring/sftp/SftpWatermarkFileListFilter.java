@@ -0,0 +1,81 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.metadata.MetadataStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops remote entries modified before a watermark, so directories holding a large archive of
+ * old files only cost the listing itself and are not run through the rest of the filter chain.
+ * <p>
+ * After each listing the watermark moves to the newest accepted modification time minus
+ * {@code lookback}. The lookback covers the one-second resolution of SFTP timestamps and files
+ * that land with a slightly older timestamp; duplicates inside that window are left to the
+ * accept-once filter that follows this one. The watermark is kept in the metadata store, and is
+ * moved back when an accepted file is rolled back or fails to download.
+ */
+public class SftpWatermarkFileListFilter
+    implements ReversibleFileListFilter<ChannelSftp.LsEntry>, ResettableFileListFilter<ChannelSftp.LsEntry> {
+
+    private final MetadataStore store;
+    private final String key;
+    private final long lookback;
+
+    public SftpWatermarkFileListFilter(final MetadataStore store, final String prefix, final long lookback) {
+        this.store = store;
+        this.key = prefix + "watermark";
+        this.lookback = lookback;
+    }
+
+    @Override
+    public synchronized List<ChannelSftp.LsEntry> filterFiles(final ChannelSftp.LsEntry[] files) {
+        final long watermark = getWatermark();
+        final List<ChannelSftp.LsEntry> accepted = new ArrayList<>();
+        long newest = Long.MIN_VALUE;
+        for (final ChannelSftp.LsEntry file : files) {
+            final long modified = modified(file);
+            if (modified >= watermark) {
+                accepted.add(file);
+                newest = Math.max(newest, modified);
+            }
+        }
+        if (!accepted.isEmpty() && newest - lookback > watermark) {
+            store.put(key, Long.toString(newest - lookback));
+        }
+        return accepted;
+    }
+
+    @Override
+    public synchronized boolean remove(final ChannelSftp.LsEntry file) {
+        final long modified = modified(file);
+        if (modified < getWatermark()) {
+            store.put(key, Long.toString(modified));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void rollback(final ChannelSftp.LsEntry file, final List<ChannelSftp.LsEntry> files) {
+        boolean rollingBack = false;
+        for (final ChannelSftp.LsEntry candidate : files) {
+            rollingBack |= candidate.equals(file);
+            if (rollingBack) {
+                remove(candidate);
+            }
+        }
+    }
+
+    public long getWatermark() {
+        final String watermark = store.get(key);
+        return watermark != null ? Long.parseLong(watermark) : Long.MIN_VALUE;
+    }
+
+    private static long modified(final ChannelSftp.LsEntry file) {
+        return file.getAttrs().getMTime() * 1000L;
+    }
+}
@@ -0,0 +1,313 @@
+package com.rmurugaian.spring.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.rmurugaian.spring.cluster.SharedWorkQueue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.endpoint.AbstractMessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.sftp.session.SftpFileInfo;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the remote files queued in a {@link SharedWorkQueue} and emits them like
+ * {@link org.springframework.integration.sftp.inbound.SftpInboundFileSynchronizingMessageSource}
+ * does, so every instance of a cluster works off the listing of a single leader.
+ * <p>
+ * Queue items are {@link #assignment assignments} of one remote file each. When no downloaded file
+ * is left to emit, a receive takes up to {@code maxConcurrentDownloads} items and downloads them in
+ * parallel with the {@link ResumableSftpDownloader}. An item, and deleting its remote file, waits
+ * until the file is reported {@link #processed}; a file that fails to download or is reported
+ * {@link #failed} goes back to the queue. So does a file whose local copy still exists, with an
+ * error, since the local copy of a failed file is kept. An item is leased for the queue's timeout,
+ * which must therefore cover download and processing. With a {@link LocalDirQuota} set, nothing is
+ * taken from the queue while the local directory is full, leaving the work to the other instances.
+ * Download durations and bytes are published under {@code sftp.download}, as by the synchronizer.
+ */
+public class SftpWorkQueueMessageSource extends AbstractMessageSource<File>
+    implements ProcessingCallback, MeterBinder {
+
+    private static final char SEPARATOR = '|';
+
+    private final SharedWorkQueue queue;
+    private final SessionFactory<ChannelSftp.LsEntry> sessionFactory;
+    private final ResumableSftpDownloader downloader;
+    private final File localDirectory;
+    private final int maxConcurrentDownloads;
+    private final ExecutorService downloadExecutor;
+    private final Queue<Assignment> downloaded = new ConcurrentLinkedQueue<>();
+    private final Map<File, Assignment> awaitingProcessing = new ConcurrentHashMap<>();
+
+    private LocalDirQuota localDirQuota;
+    private boolean deleteRemoteFiles;
+    private boolean preserveTimestamp;
+
+    private volatile MeterRegistry meterRegistry;
+    private volatile Counter downloadedBytes;
+
+    public SftpWorkQueueMessageSource(
+        final SharedWorkQueue queue,
+        final SessionFactory<ChannelSftp.LsEntry> sessionFactory,
+        final ResumableSftpDownloader downloader,
+        final File localDirectory,
+        final int maxConcurrentDownloads) {
+
+        Assert.isTrue(maxConcurrentDownloads > 0, "maxConcurrentDownloads must be positive.");
+        this.queue = queue;
+        this.sessionFactory = sessionFactory;
+        this.downloader = downloader;
+        this.localDirectory = localDirectory;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+        this.downloadExecutor = Executors.newFixedThreadPool(
+            maxConcurrentDownloads, new CustomizableThreadFactory("sftp-download-"));
+    }
+
+    /**
+     * The queue item for a listed file: its modification time and remote path.
+     */
+    public static String assignment(final SftpFileInfo file) {
+        final String directory = file.getRemoteDirectory();
+        return file.getModified() + String.valueOf(SEPARATOR)
+            + (directory.endsWith("/") ? directory : directory + "/") + file.getFilename();
+    }
+
+    public void setLocalDirQuota(final LocalDirQuota localDirQuota) {
+        this.localDirQuota = localDirQuota;
+    }
+
+    public void setDeleteRemoteFiles(final boolean deleteRemoteFiles) {
+        this.deleteRemoteFiles = deleteRemoteFiles;
+    }
+
+    public void setPreserveTimestamp(final boolean preserveTimestamp) {
+        this.preserveTimestamp = preserveTimestamp;
+    }
+
+    @Override
+    public String getComponentType() {
+        return "sftp:work-queue-inbound-channel-adapter";
+    }
+
+    @Override
+    public void processed(final File localFile) {
+        final Assignment assignment = awaitingProcessing.remove(localFile.getAbsoluteFile());
+        if (assignment == null) {
+            return;
+        }
+        if (deleteRemoteFiles) {
+            try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+                session.remove(assignment.remoteFilePath);
+            } catch (final IOException e) {
+                queue.release(assignment.item);
+                throw new UncheckedIOException("Failed to remove " + assignment.remoteFilePath, e);
+            }
+        }
+        queue.complete(assignment.item);
+    }
+
+    @Override
+    public void failed(final File localFile) {
+        final Assignment assignment = awaitingProcessing.remove(localFile.getAbsoluteFile());
+        if (assignment != null) {
+            queue.release(assignment.item);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        downloadedBytes = Counter.builder("sftp.download.bytes")
+            .description("Bytes downloaded from the SFTP server")
+            .baseUnit("bytes")
+            .register(registry);
+        meterRegistry = registry;
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        downloadExecutor.shutdownNow();
+        if (downloader instanceof DisposableBean) {
+            try {
+                ((DisposableBean) downloader).destroy();
+            } catch (final Exception e) {
+                logger.warn("Failed to destroy the downloader", e);
+            }
+        }
+    }
+
+    @Override
+    protected void onInit() {
+        super.onInit();
+        downloader.setTemporaryFileSuffix(".writing");
+        if (!localDirectory.exists() && !localDirectory.mkdirs()) {
+            throw new IllegalStateException("Could not create local directory: " + localDirectory);
+        }
+    }
+
+    @Override
+    protected Object doReceive() {
+        if (downloaded.isEmpty()) {
+            downloadNext();
+        }
+        final Assignment assignment = downloaded.poll();
+        if (assignment == null) {
+            return null;
+        }
+        awaitingProcessing.put(assignment.localFile.getAbsoluteFile(), assignment);
+        return getMessageBuilderFactory().withPayload(assignment.localFile)
+            .setHeader(FileHeaders.FILENAME, assignment.fileName)
+            .setHeader(FileHeaders.REMOTE_DIRECTORY, assignment.remoteDirectory)
+            .setHeader(FileHeaders.REMOTE_FILE, assignment.fileName);
+    }
+
+    /**
+     * Takes and downloads the next items; those downloaded are queued to be emitted before a failure
+     * is thrown.
+     */
+    private void downloadNext() {
+        final int fetchLimit = localDirQuota != null
+            ? localDirQuota.fetchLimit(localDirectory, maxConcurrentDownloads)
+            : maxConcurrentDownloads;
+        final List<Assignment> taken = new ArrayList<>();
+        final Set<String> fileNames = new HashSet<>();
+        final Set<String> released = new HashSet<>();
+        MessagingException failure = null;
+        SharedWorkQueue.WorkItem item;
+        while (taken.size() < fetchLimit && (item = queue.take()) != null) {
+            if (released.contains(item.getValue())) {
+                // Came round again, nothing else is pending.
+                queue.release(item);
+                break;
+            }
+            final Assignment assignment = new Assignment(item, localDirectory);
+            if (assignment.localFile.exists() || !fileNames.add(assignment.fileName)) {
+                queue.release(item);
+                released.add(item.getValue());
+                failure = addFailure(failure, new MessagingException("The remote file '"
+                    + assignment.remoteFilePath + "' clashes with the local file '" + assignment.localFile
+                    + "' and has been returned to the queue. Consider removing the local file."));
+                continue;
+            }
+            taken.add(assignment);
+        }
+
+        final CompletionService<Assignment> downloads = new ExecutorCompletionService<>(downloadExecutor);
+        taken.forEach(assignment -> downloads.submit(() -> download(assignment)));
+        for (int i = 0; i < taken.size(); i++) {
+            try {
+                downloaded.add(downloads.take().get());
+            } catch (final ExecutionException e) {
+                failure = addFailure(failure, new MessagingException("Problem occurred while downloading from "
+                    + "the work queue", e.getCause()));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted while downloading from the work queue", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Assignment download(final Assignment assignment) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final ChannelSftp.LsEntry remoteFile = stat(assignment.remoteFilePath);
+            downloader.download(assignment.remoteFilePath, remoteFile, assignment.localFile);
+            if (preserveTimestamp && !assignment.localFile.setLastModified(assignment.modified)) {
+                throw new IllegalStateException("Could not set last modified on file: " + assignment.localFile);
+            }
+            if (downloadedBytes != null) {
+                downloadedBytes.increment(remoteFile.getAttrs().getSize());
+            }
+            record("success", start);
+            return assignment;
+        } catch (final IOException | RuntimeException e) {
+            record("failure", start);
+            queue.release(assignment.item);
+            throw e;
+        }
+    }
+
+    /**
+     * The listing entry of a remote file, which the downloader checks the transfer against.
+     */
+    private ChannelSftp.LsEntry stat(final String remoteFilePath) throws IOException {
+        try (Session<ChannelSftp.LsEntry> session = sessionFactory.getSession()) {
+            final ChannelSftp.LsEntry[] entries = session.list(remoteFilePath);
+            if (entries == null || entries.length != 1) {
+                throw new FileNotFoundException(remoteFilePath);
+            }
+            return entries[0];
+        }
+    }
+
+    private void record(final String outcome, final long start) {
+        final MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder("sftp.download")
+                .description("Time to download one remote file")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static MessagingException addFailure(final MessagingException failure, final MessagingException error) {
+        if (failure == null) {
+            return error;
+        }
+        failure.addSuppressed(error);
+        return failure;
+    }
+
+    /**
+     * A taken queue item and the file it assigns.
+     */
+    private static final class Assignment {
+
+        private final SharedWorkQueue.WorkItem item;
+        private final long modified;
+        private final String remoteFilePath;
+        private final String remoteDirectory;
+        private final String fileName;
+        private final File localFile;
+
+        private Assignment(final SharedWorkQueue.WorkItem item, final File localDirectory) {
+            final String value = item.getValue();
+            final int separator = value.indexOf(SEPARATOR);
+            this.item = item;
+            this.modified = Long.parseLong(value.substring(0, separator));
+            this.remoteFilePath = value.substring(separator + 1);
+            this.remoteDirectory = remoteFilePath.substring(0, remoteFilePath.lastIndexOf('/') + 1);
+            this.fileName = remoteFilePath.substring(remoteDirectory.length());
+            this.localFile = new File(localDirectory, fileName);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -19,19 +20,33 @@ public class FileUtils {
     private static final Logger logger = LoggerFactory.getLogger(FileUtils.class);
 
     public static void clearLocalDir(final String localPath) throws IOException {
+        clearLocalDir(localPath, null);
+    }
+
+    /**
+     * Deletes everything under {@code localPath} but the files whose name ends with
+     * {@code keepSuffix}, such as partial downloads, and the directories holding them.
+     */
+    public static void clearLocalDir(final String localPath, final String keepSuffix) throws IOException {
         final Path path = new File(localPath).toPath();
         if (Files.exists(path)) {
             logger.info("SFTP or FTP download destination {} exists, deleting...", path);
             Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
+                    if (keepSuffix == null || !file.getFileName().toString().endsWith(keepSuffix)) {
+                        Files.delete(file);
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
                 @Override
                 public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
-                    Files.delete(dir);
+                    try {
+                        Files.delete(dir);
+                    } catch (final DirectoryNotEmptyException e) {
+                        // Holds files to keep.
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
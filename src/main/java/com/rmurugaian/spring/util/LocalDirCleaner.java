@@ -0,0 +1,266 @@
+package com.rmurugaian.spring.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Clears a download directory without holding up startup, as an alternative to
+ * {@link FileUtils#clearLocalDir(String)}. The directory is renamed aside atomically, so polling can
+ * start into a fresh one at once, and the old tree is deleted on {@code threads} background threads.
+ * <p>
+ * Files to keep in place, such as partial downloads, are moved back into the fresh directory before
+ * {@link #clear(String, String)} returns. The newest {@code retainFiles} of the other files of the
+ * old tree are kept there for inspection until the next start. Directories set aside by earlier runs, including ones whose deletion was cut short by a
+ * shutdown, are deleted completely.
+ */
+public class LocalDirCleaner implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalDirCleaner.class);
+
+    private static final String ASIDE_SUFFIX = ".old";
+    private static final int BATCH_SIZE = 1000;
+
+    private final ForkJoinPool pool;
+    private final int retainFiles;
+
+    public LocalDirCleaner(final int threads, final int retainFiles) {
+        Assert.isTrue(threads > 0, "threads must be positive.");
+        Assert.isTrue(retainFiles >= 0, "retainFiles must not be negative.");
+
+        this.pool = new ForkJoinPool(threads);
+        this.retainFiles = retainFiles;
+    }
+
+    /**
+     * Renames {@code localPath} aside, when it exists, and deletes it and the leftovers of earlier
+     * runs in the background.
+     *
+     * @return completes when the background deletion has finished
+     * @throws IOException when the directory cannot be renamed
+     */
+    public Future<?> clear(final String localPath) throws IOException {
+        return clear(localPath, null);
+    }
+
+    /**
+     * As {@link #clear(String)}, keeping the files whose name ends with {@code keepSuffix} in
+     * {@code localPath}.
+     */
+    public Future<?> clear(final String localPath, final String keepSuffix) throws IOException {
+        final Path directory = Paths.get(localPath).toAbsolutePath().normalize();
+        final List<Path> leftovers = asideDirectories(directory);
+        final Path aside;
+        if (Files.exists(directory)) {
+            aside = directory.resolveSibling(
+                directory.getFileName() + "." + System.currentTimeMillis() + ASIDE_SUFFIX);
+            Files.move(directory, aside, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("SFTP or FTP download destination {} moved to {}, deleting in the background",
+                directory, aside);
+            if (keepSuffix != null) {
+                restore(aside, directory, keepSuffix);
+            }
+        } else {
+            aside = null;
+        }
+
+        return pool.submit(() -> {
+            final long start = System.nanoTime();
+            try {
+                for (final Path leftover : leftovers) {
+                    new DeleteTree(leftover, Collections.emptySet()).invoke();
+                }
+                if (aside != null) {
+                    new DeleteTree(aside, newestFiles(aside)).invoke();
+                }
+            } catch (final IOException | UncheckedIOException e) {
+                logger.warn("Failed to delete the previous contents of {}", directory, e);
+                throw e;
+            }
+            logger.info("Previous contents of {} deleted in {} ms",
+                directory, (System.nanoTime() - start) / 1_000_000);
+            return null;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        // Whatever is left is picked up as a leftover on the next start.
+        pool.shutdownNow();
+    }
+
+    /**
+     * Moves the files to keep from the directory set aside back to the same place under the fresh one.
+     */
+    private static void restore(final Path aside, final Path directory, final String keepSuffix)
+        throws IOException {
+
+        final List<Path> kept = new ArrayList<>();
+        Files.walkFileTree(aside, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (file.getFileName().toString().endsWith(keepSuffix)) {
+                    kept.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (final Path file : kept) {
+            final Path target = directory.resolve(aside.relativize(file));
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!kept.isEmpty()) {
+            logger.info("Kept {} files ending with {} in {}", kept.size(), keepSuffix, directory);
+        }
+    }
+
+    private static List<Path> asideDirectories(final Path directory) throws IOException {
+        final Path parent = directory.getParent();
+        final List<Path> asideDirectories = new ArrayList<>();
+        if (parent == null || !Files.isDirectory(parent)) {
+            return asideDirectories;
+        }
+        final String prefix = directory.getFileName() + ".";
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(parent, sibling -> {
+            final String name = sibling.getFileName().toString();
+            return name.startsWith(prefix) && name.endsWith(ASIDE_SUFFIX)
+                && name.substring(prefix.length(), name.length() - ASIDE_SUFFIX.length()).matches("\\d+");
+        })) {
+            siblings.forEach(asideDirectories::add);
+        }
+        return asideDirectories;
+    }
+
+    private Set<Path> newestFiles(final Path directory) throws IOException {
+        if (retainFiles == 0) {
+            return Collections.emptySet();
+        }
+        final PriorityQueue<FileAge> newest = new PriorityQueue<>(Comparator.comparing(file -> file.modified));
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                newest.add(new FileAge(file, attrs.lastModifiedTime()));
+                if (newest.size() > retainFiles) {
+                    newest.poll();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        final Set<Path> retained = new HashSet<>();
+        newest.forEach(file -> retained.add(file.path));
+        return retained;
+    }
+
+    private static final class FileAge {
+
+        private final Path path;
+        private final FileTime modified;
+
+        private FileAge(final Path path, final FileTime modified) {
+            this.path = path;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * Deletes a directory tree, forking a task per subdirectory and per batch of files. Yields
+     * whether the directory itself could be deleted, which it is not while it holds retained files.
+     */
+    private static final class DeleteTree extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Set<Path> retained;
+
+        private DeleteTree(final Path directory, final Set<Path> retained) {
+            this.directory = directory;
+            this.retained = retained;
+        }
+
+        @Override
+        protected Boolean compute() {
+            final List<ForkJoinTask<Boolean>> subtasks = new ArrayList<>();
+            boolean empty = true;
+            List<Path> batch = new ArrayList<>(BATCH_SIZE);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (final Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subtasks.add(new DeleteTree(entry, retained).fork());
+                    } else if (retained.contains(entry)) {
+                        empty = false;
+                    } else {
+                        batch.add(entry);
+                        if (batch.size() == BATCH_SIZE) {
+                            subtasks.add(new DeleteFiles(batch).fork());
+                            batch = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                }
+                delete(batch);
+                for (final ForkJoinTask<Boolean> subtask : subtasks) {
+                    empty &= subtask.join();
+                }
+                if (empty) {
+                    Files.deleteIfExists(directory);
+                }
+                return empty;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class DeleteFiles extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+
+        private DeleteFiles(final List<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected Boolean compute() {
+            try {
+                delete(files);
+                return true;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void delete(final List<Path> files) throws IOException {
+        for (final Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
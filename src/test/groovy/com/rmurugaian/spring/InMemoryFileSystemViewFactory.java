@@ -69,7 +69,7 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
 
     // gets a directory, creating directory/subdirectories as necessary
     @SuppressWarnings("unchecked")
-    public HashMap<String, Object> getDir(final String path) {
+    public synchronized HashMap<String, Object> getDir(final String path) {
         if (!path.startsWith("/")) {
             throw new RuntimeException("getDir(): path must start with /");
         }
@@ -102,11 +102,11 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
         return current;
     }
 
-    public boolean fileExists(final String path) {
+    public synchronized boolean fileExists(final String path) {
         return (getFileOrDirectory(path) instanceof byte[]);
     }
 
-    public void createFile(final String path, final byte[] contents) {
+    public synchronized void createFile(final String path, final byte[] contents) {
         if (!path.startsWith("/")) {
             throw new RuntimeException("createFile(): path must start with /");
         }
@@ -159,7 +159,7 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
         }
     }
 
-    public long getLastModified(final Object o) {
+    public synchronized long getLastModified(final Object o) {
 
         final Long l = lastModifiedMap.get(o);
         if (l != null) {
@@ -173,11 +173,11 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
         setLastModified(o, System.currentTimeMillis());
     }
 
-    public void setLastModified(final Object o, final long l) {
+    public synchronized void setLastModified(final Object o, final long l) {
         lastModifiedMap.put(o, new Long(l));
     }
 
-    public byte[] getFile(final String path) {
+    public synchronized byte[] getFile(final String path) {
         if (!path.startsWith("/")) {
             throw new RuntimeException("getFile(): path must start with /");
         }
@@ -197,7 +197,7 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
         return null;
     }
 
-    public Object getFileOrDirectory(final String path) {
+    public synchronized Object getFileOrDirectory(final String path) {
         if (!path.startsWith("/")) {
             throw new RuntimeException("getFileOrDirectory(): path must start with /");
         }
@@ -633,8 +633,10 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
                     }
                     final HashMap<String, Object> oldDir = getDir(oPath);
                     final HashMap<String, Object> newDir = getDir(nPath);
-                    oldDir.remove(oName);
-                    newDir.put(nName, o);
+                    synchronized (InMemoryFileSystemViewFactory.this) {
+                        oldDir.remove(oName);
+                        newDir.put(nName, o);
+                    }
                     ((InMemorySshFile) sshFile).setPath(nPath + "/" + nName);
                     inMemoryFileSystemView.setLastModified(oldDir);
                     inMemoryFileSystemView.setLastModified(newDir);
@@ -650,7 +652,11 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
             final List<SshFile> fileList = new ArrayList<>();
 
             if (isDirectory()) {
-                for (final String dirFile : ((HashMap<String, Object>) o).keySet()) {
+                final List<String> dirFiles;
+                synchronized (InMemoryFileSystemViewFactory.this) {
+                    dirFiles = new ArrayList<>(((HashMap<String, Object>) o).keySet());
+                }
+                for (final String dirFile : dirFiles) {
                     final InMemorySshFile dirSshFile = new InMemorySshFile(
                         inMemoryFileSystemView,
                         path + "/" + dirFile);
@@ -685,7 +691,9 @@ public class InMemoryFileSystemViewFactory implements FileSystemFactory {
         public InputStream createInputStream(final long l) throws IOException {
             logger.debug("User [" + getUsername() + "][" + getVirtualPath() + "] createInputStream()");
             if (o instanceof byte[]) {
-                inputStream = new ByteArrayInputStream((byte[]) o);
+                final byte[] contents = (byte[]) o;
+                final int offset = (int) Math.min(l, contents.length);
+                inputStream = new ByteArrayInputStream(contents, offset, contents.length - offset);
                 return inputStream;
             }
             return null;
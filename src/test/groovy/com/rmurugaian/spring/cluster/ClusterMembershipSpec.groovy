@@ -0,0 +1,73 @@
+package com.rmurugaian.spring.cluster
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class ClusterMembershipSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('cluster')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "members see each other and split the keys between them"() {
+        given:
+        def nodes = ['node-a', 'node-b', 'node-c'].collect { new ClusterMembership(directory, it, 1000, 5000) }
+        nodes*.heartbeat()
+        nodes*.heartbeat()
+        def keys = (0..<3000).collect { "update${it}.txt" }
+
+        expect:
+        nodes.every { it.members == ['node-a', 'node-b', 'node-c'] }
+        keys.every { key -> nodes.count { it.owns(key) } == 1 }
+        nodes.every { node -> keys.count { node.owns(it) } in 800..1200 }
+    }
+
+    def "a member leaving only hands over its own keys"() {
+        given:
+        def nodes = ['node-a', 'node-b', 'node-c'].collect { new ClusterMembership(directory, it, 1000, 5000) }
+        nodes*.heartbeat()
+        nodes*.heartbeat()
+        def keys = (0..<1000).collect { "update${it}.txt".toString() }
+        def owners = keys.collectEntries { [(it): nodes[0].owner(it)] }
+
+        when:
+        nodes[2].destroy()
+        nodes[0].heartbeat()
+
+        then:
+        nodes[0].members == ['node-a', 'node-b']
+        keys.findAll { owners[it] != 'node-c' }.every { nodes[0].owner(it) == owners[it] }
+        keys.every { nodes[0].owner(it) != 'node-c' }
+    }
+
+    def "members that stop beating time out and are eventually removed"() {
+        given:
+        def node = new ClusterMembership(directory, 'node-a', 1000, 5000)
+        def registry = new SimpleMeterRegistry()
+        node.bindTo(registry)
+        beat('node-b', 4000)
+        beat('node-c', 6000)
+        beat('node-d', 60000)
+
+        when:
+        node.heartbeat()
+
+        then:
+        node.members == ['node-a', 'node-b']
+        registry.get('sftp.cluster.members').gauge().value() == 2
+        Files.exists(directory.resolve('node-c'))
+        !Files.exists(directory.resolve('node-d'))
+    }
+
+    private void beat(String nodeId, long age) {
+        def file = directory.resolve(nodeId)
+        Files.write(file, 'x'.bytes)
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age))
+    }
+}
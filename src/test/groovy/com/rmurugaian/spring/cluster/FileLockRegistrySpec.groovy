@@ -0,0 +1,43 @@
+package com.rmurugaian.spring.cluster
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+class FileLockRegistrySpec extends Specification {
+
+    Path directory = Files.createTempDirectory('locks')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "a lock is held by one registry at a time and reentrant within it"() {
+        given:
+        def leader = new FileLockRegistry(directory).obtain('sftpListing')
+        def follower = new FileLockRegistry(directory).obtain('sftpListing')
+
+        expect:
+        leader.tryLock()
+        leader.tryLock(10, TimeUnit.MILLISECONDS)
+        !follower.tryLock(200, TimeUnit.MILLISECONDS)
+
+        when: 'only the last hold releases it'
+        leader.unlock()
+
+        then:
+        !follower.tryLock()
+
+        when:
+        leader.unlock()
+
+        then:
+        follower.tryLock(200, TimeUnit.MILLISECONDS)
+        !leader.tryLock()
+
+        cleanup:
+        follower.unlock()
+    }
+}
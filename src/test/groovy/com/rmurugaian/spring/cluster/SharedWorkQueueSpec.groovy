@@ -0,0 +1,104 @@
+package com.rmurugaian.spring.cluster
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class SharedWorkQueueSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('work-queue')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "items are taken in the order they were offered and completed for good"() {
+        given:
+        def queue = new SharedWorkQueue(directory, 60000)
+        (1..3).each {
+            queue.offer("item-$it")
+            Thread.sleep(2)
+        }
+
+        when:
+        def first = queue.take()
+        def second = queue.take()
+        queue.complete(first)
+        queue.release(second)
+
+        then:
+        first.value == 'item-1'
+        second.value == 'item-2'
+
+        and: 'a released item is retried after the items listed already'
+        queue.take().value == 'item-3'
+        queue.take().value == 'item-2'
+        queue.take() == null
+    }
+
+    def "instances sharing the directory take every item exactly once"() {
+        given:
+        def queues = (0..<4).collect { new SharedWorkQueue(directory, 60000) }
+        (0..<200).each { queues[it % 4].offer("item-$it") }
+        def executor = Executors.newFixedThreadPool(4)
+
+        when:
+        def consumers = queues.collect { queue ->
+            executor.submit({
+                def taken = []
+                def item
+                while ((item = queue.take()) != null) {
+                    taken << item.value
+                    queue.complete(item)
+                }
+                taken
+            } as Callable<List<String>>)
+        }
+        def taken = consumers.collectMany { it.get(30, TimeUnit.SECONDS) }
+
+        then:
+        taken.size() == 200
+        taken.toSet() == (0..<200).collect { "item-$it".toString() }.toSet()
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "items whose lease ran out go back to the queue"() {
+        given:
+        def crashed = new SharedWorkQueue(directory, 60000)
+        def survivor = new SharedWorkQueue(directory, 60000)
+        def registry = new SimpleMeterRegistry()
+        survivor.bindTo(registry)
+        crashed.offer('item-1')
+        crashed.offer('item-2')
+        def lost = crashed.take()
+        def current = crashed.take()
+        Files.setLastModifiedTime(directory.resolve("taken/$lost"),
+            FileTime.fromMillis(System.currentTimeMillis() - 120000))
+
+        expect:
+        registry.get('sftp.queue.size').tag('state', 'taken').gauge().value() == 2
+
+        when:
+        def retaken = survivor.take()
+
+        then:
+        retaken.value == lost.value
+        survivor.take() == null
+
+        when:
+        crashed.complete(current)
+        survivor.complete(retaken)
+
+        then:
+        registry.get('sftp.queue.size').tag('state', 'taken').gauge().value() == 0
+        registry.get('sftp.queue.size').tag('state', 'pending').gauge().value() == 0
+    }
+}
@@ -0,0 +1,97 @@
+package com.rmurugaian.spring.config
+
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.boot.actuate.health.Health
+import org.springframework.boot.actuate.health.HealthIndicator
+import org.springframework.boot.actuate.health.Status
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+class CachedSftpHealthCheckSpec extends Specification {
+
+    def probe = Mock(HealthIndicator)
+
+    def "is unknown until the first probe has completed"() {
+        given:
+        def healthCheck = new CachedSftpHealthCheck(probe, Duration.ofMinutes(1))
+
+        expect:
+        healthCheck.health().status == Status.UNKNOWN
+    }
+
+    def "serves the last probe result without probing again"() {
+        given:
+        def healthCheck = new CachedSftpHealthCheck(probe, Duration.ofMinutes(1))
+
+        when:
+        healthCheck.refresh()
+        def first = healthCheck.health()
+        def second = healthCheck.health()
+
+        then:
+        1 * probe.health() >> Health.up().withDetail('remotePath', '/incoming').build()
+        first.status == Status.UP
+        first.details.remotePath == '/incoming'
+        first.details.containsKey('probeLatencyMs')
+        first.details.containsKey('lastProbe')
+        second.is(first)
+    }
+
+    def "reports a result older than maxStaleness as down"() {
+        given:
+        probe.health() >> Health.up().build()
+        def healthCheck = new CachedSftpHealthCheck(probe, Duration.ofMillis(50))
+        healthCheck.refresh()
+
+        when:
+        sleep(100)
+        def health = healthCheck.health()
+
+        then:
+        health.status == Status.DOWN
+        health.details.reason.startsWith('Last SFTP probe is older than')
+    }
+
+    def "reports a probe that throws as down and keeps probing"() {
+        given:
+        def probes = new AtomicInteger()
+        def failing = { ->
+            probes.incrementAndGet()
+            throw new IllegalStateException('Pool exhausted')
+        } as HealthIndicator
+        def scheduler = new ThreadPoolTaskScheduler()
+        scheduler.initialize()
+        def healthCheck = new CachedSftpHealthCheck(failing, Duration.ofMinutes(1))
+
+        when:
+        healthCheck.start(scheduler, Duration.ofMillis(20))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert probes.get() >= 3
+        }
+        healthCheck.health().status == Status.DOWN
+        healthCheck.health().details.error.contains('Pool exhausted')
+
+        cleanup:
+        healthCheck.destroy()
+        scheduler.shutdown()
+    }
+
+    def "destroys the probe resources with the health check"() {
+        given:
+        def probeResources = Mock(DisposableBean)
+        def healthCheck = new CachedSftpHealthCheck(probe, Duration.ofMinutes(1))
+        healthCheck.probeResources = probeResources
+
+        when:
+        healthCheck.destroy()
+
+        then:
+        1 * probeResources.destroy()
+    }
+}
@@ -0,0 +1,145 @@
+package com.rmurugaian.spring.config
+
+import com.rmurugaian.spring.cluster.ClusterMembership
+import com.rmurugaian.spring.service.FileProcessor
+import com.rmurugaian.spring.sftp.ParallelSftpInboundFileSynchronizer
+import com.rmurugaian.spring.sftp.PooledSftpSessionFactory
+import com.rmurugaian.spring.sftp.SftpFileClaimFilter
+import com.rmurugaian.spring.sftp.SftpWorkQueueMessageSource
+import org.springframework.boot.autoconfigure.AutoConfigurations
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration
+import org.springframework.boot.context.properties.bind.Bindable
+import org.springframework.boot.context.properties.bind.Binder
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource
+import org.springframework.boot.test.context.runner.ApplicationContextRunner
+import org.springframework.integration.channel.ExecutorChannel
+import org.springframework.integration.file.remote.session.SessionFactory
+import org.springframework.integration.support.MessageBuilder
+import org.springframework.messaging.MessageHandler
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class SftpInboundAdapterConfigSpec extends Specification {
+
+    def config = new SftpInboundAdapterConfig(Stub(SessionFactory), Stub(FileProcessor))
+
+    def "sizes the update worker pool from workerPoolSize and workerQueueCapacity"() {
+        given:
+        bind('sftp.server.update.workerPoolSize': '3', 'sftp.server.update.workerQueueCapacity': '7')
+
+        when:
+        def executor = config.updateFileExecutor()
+        executor.initialize()
+
+        then:
+        executor.corePoolSize == 3
+        executor.maxPoolSize == 3
+        executor.threadPoolExecutor.queue.remainingCapacity() == 7
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "has the poller process a file itself once the workers and their queue are full"() {
+        given:
+        bind('sftp.server.update.workerPoolSize': '1', 'sftp.server.update.workerQueueCapacity': '1')
+        def executor = config.updateFileExecutor()
+        executor.initialize()
+        def channel = new ExecutorChannel(executor)
+        def release = new CountDownLatch(1)
+        def threads = [].asSynchronized()
+        channel.subscribe({ message ->
+            threads << Thread.currentThread().name
+            if (message.payload == 'update-1.txt') {
+                release.await(5, TimeUnit.SECONDS)
+            }
+        } as MessageHandler)
+
+        when:
+        (1..3).each { channel.send(MessageBuilder.withPayload("update-${it}.txt".toString()).build()) }
+        release.countDown()
+        executor.threadPoolExecutor.shutdown()
+        executor.threadPoolExecutor.awaitTermination(5, TimeUnit.SECONDS)
+
+        then:
+        threads.size() == 3
+        threads.count { it == Thread.currentThread().name } == 1
+        threads.count { it.startsWith('sftp-update-') } == 2
+    }
+
+    def "with transfer=stream caps the queue so queued files cannot exhaust the session pool"() {
+        given:
+        config = new SftpInboundAdapterConfig(new PooledSftpSessionFactory(Stub(SessionFactory), 6), Stub(FileProcessor))
+        bind('sftp.server.update.transfer': transfer, 'sftp.server.update.workerPoolSize': '2',
+            'sftp.server.update.workerQueueCapacity': '100')
+
+        when:
+        def executor = config.updateFileExecutor()
+        executor.initialize()
+
+        then:
+        executor.threadPoolExecutor.queue.remainingCapacity() == capacity
+
+        cleanup:
+        executor.shutdown()
+
+        where:
+        transfer | capacity
+        'stream' | 3
+        'local'  | 100
+    }
+
+    def "with transfer=stream needs a session pool larger than the worker pool"() {
+        given:
+        config = new SftpInboundAdapterConfig(new PooledSftpSessionFactory(Stub(SessionFactory), 2), Stub(FileProcessor))
+        bind('sftp.server.update.transfer': 'stream', 'sftp.server.update.workerPoolSize': '2')
+
+        when:
+        config.updateFileExecutor()
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.contains('session pool size')
+    }
+
+    def "creates the synchronizer and its claim filter and membership only without leaderListing"() {
+        given:
+        def localPath = Files.createTempDirectory('local')
+        def sharedPath = Files.createTempDirectory('shared')
+        def runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration))
+            .withBean(SessionFactory, { Stub(SessionFactory) })
+            .withBean(FileProcessor, { Stub(FileProcessor) })
+            .withUserConfiguration(SftpInboundAdapterConfig)
+            .withPropertyValues(
+                'sftp.server.update.remotePath=/incoming',
+                'sftp.server.update.filterExpr=^.*.txt',
+                "sftp.server.update.localPath=${localPath}",
+                "sftp.server.update.sharedPath=${sharedPath}",
+                "sftp.server.update.leaderListing=${leaderListing}")
+
+        expect:
+        runner.run { context ->
+            assert context.getBeanNamesForType(ParallelSftpInboundFileSynchronizer).length == synchronizing
+            assert context.getBeanNamesForType(SftpFileClaimFilter).length == synchronizing
+            assert context.getBeanNamesForType(ClusterMembership).length == synchronizing
+            assert context.getBeanNamesForType(SftpWorkQueueMessageSource).length == 1 - synchronizing
+        }
+
+        cleanup:
+        localPath.deleteDir()
+        sharedPath.deleteDir()
+
+        where:
+        leaderListing | synchronizing
+        false         | 1
+        true          | 0
+    }
+
+    private void bind(Map<String, String> properties) {
+        new Binder([new MapConfigurationPropertySource(properties)]).bind('sftp.server', Bindable.ofInstance(config))
+    }
+}
@@ -0,0 +1,78 @@
+package com.rmurugaian.spring.load
+
+import com.rmurugaian.spring.service.FileProcessor
+import org.springframework.beans.factory.config.BeanPostProcessor
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Wraps the {@link FileProcessor} bean so every completed {@code handleUpdate} is matched with the
+ * time its file was placed on the SFTP server. Tests wait on {@link #await} instead of sleeping.
+ */
+class LoadTestProbe implements BeanPostProcessor {
+
+    private final Map<String, Long> uploaded = new ConcurrentHashMap<>()
+    private final Queue<Long> latencies = new ConcurrentLinkedQueue<>()
+    private volatile CountDownLatch completion = new CountDownLatch(0)
+    private volatile long lastCompletion
+
+    @Override
+    Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof FileProcessor)) {
+            return bean
+        }
+        def delegate = (FileProcessor) bean
+        return new FileProcessor() {
+            @Override
+            void handleUpdate(File sftpFile) {
+                delegate.handleUpdate(sftpFile)
+                completed(sftpFile.name)
+            }
+
+            @Override
+            void handleUpdateStream(String fileName, InputStream stream) throws IOException {
+                delegate.handleUpdateStream(fileName, stream)
+                completed(fileName)
+            }
+        }
+    }
+
+    void expect(int files) {
+        uploaded.clear()
+        latencies.clear()
+        completion = new CountDownLatch(files)
+    }
+
+    void uploading(String name) {
+        uploaded.put(name, System.nanoTime())
+    }
+
+    boolean await(long timeout, TimeUnit unit) {
+        completion.await(timeout, unit)
+    }
+
+    long getCompleted() {
+        latencies.size()
+    }
+
+    long getLastCompletion() {
+        lastCompletion
+    }
+
+    List<Long> getLatencies() {
+        new ArrayList<>(latencies)
+    }
+
+    private void completed(String name) {
+        def start = uploaded.remove(name)
+        if (start != null) {
+            def now = System.nanoTime()
+            latencies.add(now - start)
+            lastCompletion = now
+            completion.countDown()
+        }
+    }
+}
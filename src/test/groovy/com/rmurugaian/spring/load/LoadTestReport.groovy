@@ -0,0 +1,76 @@
+package com.rmurugaian.spring.load
+
+import groovy.json.JsonOutput
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * End-to-end latency percentiles and throughput of one load run, written as JSON so runs of
+ * different releases can be compared side by side.
+ */
+class LoadTestReport {
+
+    static final List<Double> PERCENTILES = [50d, 90d, 95d, 99d, 99.9d]
+
+    Map<String, Object> parameters
+    int files
+    long completed
+    long elapsedNanos
+    Map<String, Double> latencyMillis
+
+    static LoadTestReport of(Map<String, Object> parameters, long fileSize, List<Long> latencies, long elapsedNanos) {
+        def sorted = latencies.sort(false)
+        def latencyMillis = [:] as LinkedHashMap<String, Double>
+        if (sorted) {
+            latencyMillis.min = millis(sorted.first())
+            PERCENTILES.each { p ->
+                def index = Math.min(sorted.size() - 1, (int) Math.ceil(p / 100d * sorted.size()) - 1)
+                def label = p % 1 == 0 ? "p${(int) p}" : "p${p}"
+                latencyMillis[label.toString()] = millis(sorted[Math.max(0, index)])
+            }
+            latencyMillis.max = millis(sorted.last())
+            latencyMillis.mean = millis((long) (sorted.sum() / sorted.size()))
+        }
+        new LoadTestReport(
+            parameters: parameters + [fileSize: fileSize],
+            files: (int) parameters.files,
+            completed: sorted.size(),
+            elapsedNanos: elapsedNanos,
+            latencyMillis: latencyMillis)
+    }
+
+    double getFilesPerSecond() {
+        elapsedNanos > 0 ? completed * 1e9d / elapsedNanos : 0d
+    }
+
+    double getMegabytesPerSecond() {
+        filesPerSecond * (long) parameters.fileSize / (1024d * 1024d)
+    }
+
+    File write(File directory) {
+        directory.mkdirs()
+        def file = new File(directory, "sftp-load-${System.currentTimeMillis()}.json")
+        file.text = JsonOutput.prettyPrint(JsonOutput.toJson([
+            parameters        : parameters,
+            files             : files,
+            completed         : completed,
+            elapsedMillis     : TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            filesPerSecond    : filesPerSecond,
+            megabytesPerSecond: megabytesPerSecond,
+            latencyMillis     : latencyMillis
+        ]))
+        file
+    }
+
+    @Override
+    String toString() {
+        def percentiles = latencyMillis.collect { k, v -> "${k}=${String.format('%.1f', v)}ms" }.join(' ')
+        "${completed}/${files} files in ${TimeUnit.NANOSECONDS.toMillis(elapsedNanos)}ms, " +
+            "${String.format('%.1f', filesPerSecond)} files/s, ${String.format('%.2f', megabytesPerSecond)} MB/s, " +
+            percentiles
+    }
+
+    private static double millis(long nanos) {
+        nanos / 1e6d
+    }
+}
@@ -0,0 +1,118 @@
+package com.rmurugaian.spring.load
+
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import com.rmurugaian.spring.SftpPollingApplication
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * End-to-end load test: files are placed on an {@link EmbeddedSftpServer} at a fixed arrival rate
+ * and the latency from placement to the end of {@code handleUpdate} is recorded for each one.
+ * Run with {@code ./gradlew loadTest}; size the run with {@code -Psftp.load.files},
+ * {@code -Psftp.load.fileSize} (bytes), {@code -Psftp.load.rate} (files per second) and
+ * {@code -Psftp.load.timeout} (seconds). The report is written to {@code build/reports/sftp-load}.
+ */
+@ContextConfiguration
+@Requires({ Boolean.getBoolean('sftp.load.enabled') })
+@SpringBootTest(
+    classes = [SftpPollingApplication, LoadTestProbe],
+    properties = [
+        'sftp.server.host=127.0.0.1',
+        'sftp.server.health.mode=direct',
+        'sftp.server.update.remotePath=/incoming',
+        'sftp.server.update.localPath=./build/sftp/load',
+        'sftp.server.update.metadataStorePath=',
+        'sftp.server.update.processor=streaming',
+        'sftp.server.update.adaptivePolling=false',
+        'sftp.server.update.incrementalListing=false',
+        'sftp.server.update.pollingFrequency=100',
+        'sftp.server.update.maxMessagesPerPoll=100',
+        'logging.level.com.rmurugaian.spring.service=error'
+    ])
+@ActiveProfiles('perf')
+@Slf4j
+class SftpLoadSpec extends Specification {
+
+    static final int FILES = Integer.getInteger('sftp.load.files', 2000)
+    static final int FILE_SIZE = Integer.getInteger('sftp.load.fileSize', 16384)
+    static final int RATE = Integer.getInteger('sftp.load.rate', 200)
+    static final long TIMEOUT = Long.getLong('sftp.load.timeout', 600)
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    @Autowired
+    DefaultSftpSessionFactory sftpSessionFactory
+
+    @Autowired
+    LoadTestProbe probe
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.getDir('/incoming')
+        fileSystemFactory.setUserDir('b2s', '/')
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        sftpSessionFactory.port = server.port
+    }
+
+    def "every injected file is processed and a latency report is produced"() {
+        given:
+        def content = record(FILE_SIZE)
+        def interval = TimeUnit.SECONDS.toNanos(1) / RATE as long
+        probe.expect(FILES)
+
+        when:
+        def start = System.nanoTime()
+        FILES.times { i ->
+            def due = start + i * interval
+            def wait = due - System.nanoTime()
+            if (wait > 0) {
+                LockSupport.parkNanos(wait)
+            }
+            def name = "load${i}.txt"
+            probe.uploading(name)
+            fileSystemFactory.createFile("/incoming/${name}", content)
+        }
+        def finished = probe.await(TIMEOUT, TimeUnit.SECONDS)
+        def report = LoadTestReport.of(
+            [files: FILES, rate: RATE], FILE_SIZE, probe.latencies, Math.max(0L, probe.lastCompletion - start))
+        def file = report.write(new File('build/reports/sftp-load'))
+        log.info('Load test: {} (report {})', report, file)
+
+        then:
+        finished
+        report.completed == FILES
+    }
+
+    private static byte[] record(int size) {
+        def line = ('0123456789' * 8).substring(0, 79) + '\n'
+        def builder = new StringBuilder(size)
+        while (builder.length() < size) {
+            builder.append(line)
+        }
+        builder.setLength(size)
+        builder.toString().bytes
+    }
+}
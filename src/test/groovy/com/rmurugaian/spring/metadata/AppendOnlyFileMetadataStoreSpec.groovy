@@ -0,0 +1,67 @@
+package com.rmurugaian.spring.metadata
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class AppendOnlyFileMetadataStoreSpec extends Specification {
+
+    File file = new File(Files.createTempDirectory('metadata').toFile(), 'store.log')
+
+    def cleanup() {
+        file.parentFile.deleteDir()
+    }
+
+    def "entries survive a restart"() {
+        given:
+        def store = new AppendOnlyFileMetadataStore(file)
+        store.put('incoming/a.txt|10|1000', '1000')
+        store.putIfAbsent('incoming/b\tc.txt|20|2000', '2000')
+        store.replace('incoming/a.txt|10|1000', '1000', '1001')
+        store.put('incoming/d.txt|5|500', '500')
+        store.remove('incoming/d.txt|5|500')
+        store.close()
+
+        when:
+        def reopened = new AppendOnlyFileMetadataStore(file)
+
+        then:
+        reopened.get('incoming/a.txt|10|1000') == '1001'
+        reopened.get('incoming/b\tc.txt|20|2000') == '2000'
+        reopened.get('incoming/d.txt|5|500') == null
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "compacts the log once obsolete records pile up"() {
+        given:
+        def store = new AppendOnlyFileMetadataStore(file, 10)
+
+        when:
+        100.times { store.put('key', "value-$it") }
+        store.flush()
+
+        then:
+        file.readLines().size() <= 11
+        store.get('key') == 'value-99'
+
+        cleanup:
+        store.close()
+    }
+
+    def "skips a truncated last record"() {
+        given:
+        file.text = 'P\tkey\tvalue\nP\ttrunc'
+
+        when:
+        def store = new AppendOnlyFileMetadataStore(file)
+
+        then:
+        store.get('key') == 'value'
+        store.get('trunc') == null
+
+        cleanup:
+        store.close()
+    }
+}
@@ -0,0 +1,68 @@
+package com.rmurugaian.spring.metadata
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class SharedDirectoryMetadataStoreSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('shared-metadata')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "entries are visible to every store on the directory"() {
+        given:
+        def first = new SharedDirectoryMetadataStore(directory)
+        def second = new SharedDirectoryMetadataStore(directory)
+
+        when:
+        first.put('incoming/a.txt|10|1000', 'claimed|a|1')
+        def absent = second.putIfAbsent('incoming/b.txt|20|2000', 'claimed|b|1')
+        def present = second.putIfAbsent('incoming/a.txt|10|1000', 'claimed|b|2')
+
+        then:
+        absent == null
+        present == 'claimed|a|1'
+        first.get('incoming/b.txt|20|2000') == 'claimed|b|1'
+
+        when:
+        def stale = second.replace('incoming/a.txt|10|1000', 'claimed|a|0', 'claimed|b|3')
+        def current = second.replace('incoming/a.txt|10|1000', 'claimed|a|1', 'done|b|3')
+        def removed = first.remove('incoming/b.txt|20|2000')
+
+        then:
+        !stale
+        current
+        first.get('incoming/a.txt|10|1000') == 'done|b|3'
+        removed == 'claimed|b|1'
+        second.get('incoming/b.txt|20|2000') == null
+        first.remove('incoming/b.txt|20|2000') == null
+    }
+
+    def "exactly one of many concurrent putIfAbsent calls wins"() {
+        given:
+        def stores = (0..<4).collect { new SharedDirectoryMetadataStore(directory) }
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def attempts = (0..<400).collect { attempt ->
+            executor.submit({
+                stores[attempt % 4].putIfAbsent("file${attempt % 50}", "node${attempt}")
+            } as Callable<String>)
+        }
+        def winners = attempts.findAll { it.get(30, TimeUnit.SECONDS) == null }
+
+        then:
+        winners.size() == 50
+        (0..<50).every { stores[0].get("file${it}") != null }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
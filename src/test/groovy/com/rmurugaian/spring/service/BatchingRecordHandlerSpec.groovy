@@ -0,0 +1,116 @@
+package com.rmurugaian.spring.service
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
+
+class BatchingRecordHandlerSpec extends Specification {
+
+    def sink = new InMemoryRecordSink<String>()
+
+    BatchingRecordHandler handler
+
+    def cleanup() {
+        handler?.destroy()
+    }
+
+    def "writes full batches and the rest on flush"() {
+        given:
+        handler = new BatchingRecordHandler(sink, 3, 1, 4)
+        def registry = new SimpleMeterRegistry()
+        handler.bindTo(registry)
+
+        when:
+        (1..7).each { handler.handle(new StringBuilder("record-$it")) }
+        handler.flush()
+
+        then:
+        sink.batches == [['record-1', 'record-2', 'record-3'], ['record-4', 'record-5', 'record-6'], ['record-7']]
+        registry.get('sftp.sink.write').tag('outcome', 'success').timer().count() == 3
+        registry.get('sftp.sink.batch.size').summary().totalAmount() == 7
+    }
+
+    def "writes a batch that did not fill up after the flush interval"() {
+        given:
+        def scheduler = new ThreadPoolTaskScheduler()
+        scheduler.initialize()
+        handler = new BatchingRecordHandler(sink, 100, 1, 4)
+        handler.start(scheduler, Duration.ofMillis(50))
+
+        when:
+        handler.handle('record-1')
+
+        then:
+        new PollingConditions(timeout: 2).eventually {
+            assert sink.records == ['record-1']
+        }
+
+        cleanup:
+        scheduler.shutdown()
+    }
+
+    def "makes the reading thread wait for room once the writers fall behind, keeping the batch order"() {
+        given:
+        def writerThreads = [].asSynchronized()
+        def written = [].asSynchronized()
+        RecordSink<String> slowSink = { batch ->
+            writerThreads << Thread.currentThread().name
+            sleep(100)
+            written.addAll(batch)
+        }
+        handler = new BatchingRecordHandler(slowSink, 1, 1, 1)
+
+        when:
+        def start = System.nanoTime()
+        (1..4).each { handler.handle("record-$it") }
+        def handled = System.nanoTime() - start
+        handler.flush()
+
+        then:
+        handled >= TimeUnit.MILLISECONDS.toNanos(150)
+        !writerThreads.contains(Thread.currentThread().name)
+        written == (1..4).collect { "record-$it".toString() }
+    }
+
+    def "fails the flush when a batch could not be written"() {
+        given:
+        handler = new BatchingRecordHandler({ throw new IllegalStateException('database down') }, 2, 1, 4)
+
+        when:
+        (1..3).each { handler.handle("record-$it") }
+        handler.flush()
+
+        then:
+        def e = thrown(IOException)
+        e.cause.message == 'database down'
+        e.suppressed.length == 1
+    }
+
+    def "fails the processing of a file whose batches could not be written"() {
+        given:
+        handler = new BatchingRecordHandler({ throw new IllegalStateException('database down') }, 2, 1, 4)
+        def processor = new StreamingFileProcessor(Stub(ObjectProvider) {
+            getIfAvailable(_ as Supplier) >> handler
+        }, 64)
+        def file = Files.createTempFile('update', '.dat').toFile()
+        file.text = 'record-1\nrecord-2\nrecord-3\n'
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == 'Failed to write a batch of records'
+        e.cause.cause.message == 'database down'
+
+        cleanup:
+        file.delete()
+    }
+}
@@ -0,0 +1,96 @@
+package com.rmurugaian.spring.service
+
+import com.github.luben.zstd.ZstdOutputStream
+import spock.lang.Specification
+
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class DecompressingFileProcessorSpec extends Specification {
+
+    def received = [:]
+
+    def delegate = Mock(FileProcessor) {
+        handleUpdateStream(_, _) >> { String name, InputStream stream -> received[name] = stream.text }
+    }
+
+    def processor = new DecompressingFileProcessor(delegate)
+
+    def "inflates a gzip file and strips its extension"() {
+        when:
+        processor.handleUpdateStream('update1.txt.gz', new ByteArrayInputStream(gzip("a\nb\n")))
+
+        then:
+        received == ['update1.txt': "a\nb\n"]
+    }
+
+    def "inflates a zstd file"() {
+        when:
+        processor.handleUpdateStream('update1.txt.zst', new ByteArrayInputStream(zstd("a\nb\n")))
+
+        then:
+        received == ['update1.txt': "a\nb\n"]
+    }
+
+    def "hands on every entry of a zip separately"() {
+        when:
+        processor.handleUpdateStream('batch.zip', new ByteArrayInputStream(zip('one.txt': "1\n", 'two.txt': "2\n")))
+
+        then:
+        received == ['one.txt': "1\n", 'two.txt': "2\n"]
+    }
+
+    def "detects compression from the magic bytes when the name has no compression extension"() {
+        given:
+        def file = File.createTempFile('update', '.txt')
+        file.deleteOnExit()
+        file.bytes = gzip("a\n")
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        0 * delegate.handleUpdate(_)
+        received == [(file.name): "a\n"]
+    }
+
+    def "passes plain files through unchanged"() {
+        given:
+        def file = File.createTempFile('update', '.txt')
+        file.deleteOnExit()
+        file.text = "a\n"
+
+        when:
+        processor.handleUpdate(file)
+        processor.handleUpdateStream('update2.txt', new ByteArrayInputStream("b\n".bytes))
+
+        then:
+        1 * delegate.handleUpdate(file)
+        received == ['update2.txt': "b\n"]
+    }
+
+    private static byte[] gzip(String text) {
+        def bytes = new ByteArrayOutputStream()
+        new GZIPOutputStream(bytes).withStream { it << text.bytes }
+        bytes.toByteArray()
+    }
+
+    private static byte[] zstd(String text) {
+        def bytes = new ByteArrayOutputStream()
+        new ZstdOutputStream(bytes).withStream { it << text.bytes }
+        bytes.toByteArray()
+    }
+
+    private static byte[] zip(Map<String, String> entries) {
+        def bytes = new ByteArrayOutputStream()
+        new ZipOutputStream(bytes).withStream { zip ->
+            entries.each { name, text ->
+                zip.putNextEntry(new ZipEntry(name))
+                zip << text.bytes
+                zip.closeEntry()
+            }
+        }
+        bytes.toByteArray()
+    }
+}
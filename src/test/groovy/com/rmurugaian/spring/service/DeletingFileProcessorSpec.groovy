@@ -0,0 +1,55 @@
+package com.rmurugaian.spring.service
+
+import org.springframework.integration.file.filters.FileSystemPersistentAcceptOnceFileListFilter
+import org.springframework.integration.metadata.SimpleMetadataStore
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class DeletingFileProcessorSpec extends Specification {
+
+    def delegate = Mock(FileProcessor)
+
+    def localFilter = new FileSystemPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), 'test')
+
+    File file = Files.createTempFile('update', '.txt').toFile()
+
+    def cleanup() {
+        file.delete()
+    }
+
+    def "deletes the file once processed and lets the filter accept its name again"() {
+        given:
+        def processor = new DeletingFileProcessor(delegate, localFilter)
+        localFilter.filterFiles([file] as File[])
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        1 * delegate.handleUpdate(file)
+        !file.exists()
+
+        when:
+        file.text = 'again'
+
+        then:
+        localFilter.filterFiles([file] as File[]) == [file]
+    }
+
+    def "keeps a file whose processing failed, and leaves it in the filter"() {
+        given:
+        def processor = new DeletingFileProcessor(new DefaultFileProcessor(), localFilter)
+        file.bytes = [0x61, 0xc3, 0x28, 0x0a] as byte[]
+        localFilter.filterFiles([file] as File[])
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message == "Failed to process $file"
+        file.exists()
+        localFilter.filterFiles([file] as File[]).isEmpty()
+    }
+}
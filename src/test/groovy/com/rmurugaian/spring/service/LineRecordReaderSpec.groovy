@@ -0,0 +1,79 @@
+package com.rmurugaian.spring.service
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.charset.StandardCharsets
+
+class LineRecordReaderSpec extends Specification {
+
+    @Unroll
+    def "splits '#input' into #expected with a #bufferSize byte buffer"() {
+        given:
+        def reader = new LineRecordReader(bufferSize, StandardCharsets.UTF_8)
+        def records = []
+
+        when:
+        def count = reader.read(channelOf(input), { records << it.toString() } as RecordHandler)
+
+        then:
+        records == expected
+        count == expected.size()
+
+        where:
+        input                    | bufferSize || expected
+        'source1\nsource2'       | 8          || ['source1', 'source2']
+        'source1\r\nsource2\r\n' | 9          || ['source1', 'source2']
+        'a\n\nb\n'               | 4          || ['a', '', 'b']
+        'héllo\nwörld'          | 9          || ['héllo', 'wörld']
+        ''                       | 4          || []
+        'abcd\nefgh\r\nijkl'     | 4          || ['abcd', 'efgh', 'ijkl']
+    }
+
+    def "reuses the buffer across files"() {
+        given:
+        def reader = new LineRecordReader(16, StandardCharsets.UTF_8)
+        def records = []
+        def handler = { records << it.toString() } as RecordHandler
+
+        when:
+        reader.read(channelOf('first\nrecord'), handler)
+        reader.read(channelOf('second'), handler)
+
+        then:
+        records == ['first', 'record', 'second']
+    }
+
+    def "reads records from an in-memory buffer"() {
+        given:
+        def reader = new LineRecordReader(16, StandardCharsets.UTF_8)
+        def records = []
+
+        when:
+        reader.read(ByteBuffer.wrap('x\ny\n'.getBytes(StandardCharsets.UTF_8)), { records << it.toString() } as RecordHandler)
+
+        then:
+        records == ['x', 'y']
+    }
+
+    def "fails on a record longer than maxRecordLength"() {
+        given:
+        def reader = new LineRecordReader(4, StandardCharsets.UTF_8)
+
+        when:
+        reader.read(channelOf(input), { } as RecordHandler)
+
+        then:
+        def e = thrown(IOException)
+        e.message == 'Record exceeds 4 bytes.'
+
+        where:
+        input << ['toolong\n', 'abcde\n', 'abcd\nabcde']
+    }
+
+    private static channelOf(String input) {
+        Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))
+    }
+}
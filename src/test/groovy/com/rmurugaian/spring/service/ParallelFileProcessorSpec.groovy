@@ -0,0 +1,105 @@
+package com.rmurugaian.spring.service
+
+import org.springframework.beans.factory.ObjectProvider
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.Supplier
+
+class ParallelFileProcessorSpec extends Specification {
+
+    File file = Files.createTempFile('update', '.dat').toFile()
+
+    List<String> lines = (1..5000).collect { "record-$it".toString() }
+
+    def cleanup() {
+        file.delete()
+    }
+
+    def "hands records to the handler in file order across chunks, on the calling thread"() {
+        given:
+        file.text = lines.join('\n') + '\n'
+        def handler = new RecordingHandler()
+        def processor = new ParallelFileProcessor(provider(handler), 64, 1000, 4)
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        handler.records == lines
+        handler.threads == [Thread.currentThread()] as Set
+        handler.flushes == 1
+
+        cleanup:
+        processor.destroy()
+    }
+
+    def "hands over nothing from a failing chunk or the chunks after it"() {
+        given:
+        def failing = lines.withIndex().collect { line, i -> i == 2500 ? 'x' * 100 : line }
+        file.text = failing.join('\n') + '\n'
+        def handler = new RecordingHandler()
+        def processor = new ParallelFileProcessor(provider(handler), 64, 1000, 4)
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        thrown(UncheckedIOException)
+        handler.records.size() < 2500
+        handler.records == lines.subList(0, handler.records.size())
+        handler.flushes == 0
+
+        cleanup:
+        processor.destroy()
+    }
+
+    def "fails the file when the handler cannot flush"() {
+        given:
+        file.text = lines.join('\n') + '\n'
+        def processor = new ParallelFileProcessor(provider(new RecordHandler() {
+            @Override
+            void handle(CharSequence record) {
+            }
+
+            @Override
+            void flush() throws IOException {
+                throw new IOException('sink down')
+            }
+        }), 64, 1000, 4)
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == 'sink down'
+
+        cleanup:
+        processor.destroy()
+    }
+
+    private ObjectProvider<RecordHandler> provider(RecordHandler handler) {
+        Stub(ObjectProvider) {
+            getIfAvailable(_ as Supplier) >> handler
+        }
+    }
+
+    static class RecordingHandler implements RecordHandler {
+
+        List<String> records = []
+        Set<Thread> threads = [] as Set
+        int flushes
+
+        @Override
+        void handle(CharSequence record) {
+            records << record.toString()
+            threads << Thread.currentThread()
+        }
+
+        @Override
+        void flush() {
+            flushes++
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.rmurugaian.spring.service
+
+import com.rmurugaian.spring.sftp.LocalDirQuota
+import org.springframework.integration.file.filters.FileSystemPersistentAcceptOnceFileListFilter
+import org.springframework.integration.metadata.SimpleMetadataStore
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class QuarantiningFileProcessorSpec extends Specification {
+
+    def delegate = Mock(FileProcessor)
+
+    def localFilter = new FileSystemPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), 'test')
+
+    File localDirectory = Files.createTempDirectory('incoming').toFile()
+
+    File failedDirectory = new File(localDirectory.path + '.failed')
+
+    File file = new File(localDirectory, 'update.txt')
+
+    def setup() {
+        file.text = 'record'
+        localFilter.filterFiles([file] as File[])
+    }
+
+    def cleanup() {
+        localDirectory.deleteDir()
+        failedDirectory.deleteDir()
+    }
+
+    def "moves a file whose processing failed out of the local directory and its quota"() {
+        given:
+        def processor = new QuarantiningFileProcessor(delegate, failedDirectory, localFilter)
+        failedDirectory.mkdirs()
+        new File(failedDirectory, 'update.txt').text = 'failed before'
+        def quota = new LocalDirQuota(0, 1)
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        1 * delegate.handleUpdate(file) >> { throw new IllegalStateException('unparseable') }
+        def e = thrown(IllegalStateException)
+        e.message == 'unparseable'
+        !file.exists()
+        new File(failedDirectory, 'update.txt').text == 'record'
+        quota.fetchLimit(localDirectory, 10) == 1
+
+        when: 'the file is downloaded again'
+        file.text = 'record'
+
+        then:
+        localFilter.filterFiles([file] as File[]) == [file]
+    }
+
+    def "leaves a processed file where it is"() {
+        given:
+        def processor = new QuarantiningFileProcessor(delegate, failedDirectory, localFilter)
+
+        when:
+        processor.handleUpdate(file)
+
+        then:
+        1 * delegate.handleUpdate(file)
+        file.exists()
+        !failedDirectory.exists()
+    }
+}
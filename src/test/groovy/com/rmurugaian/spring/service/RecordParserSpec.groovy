@@ -0,0 +1,119 @@
+package com.rmurugaian.spring.service
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.charset.StandardCharsets
+
+import static com.rmurugaian.spring.service.RecordSchema.FieldType.DOUBLE
+import static com.rmurugaian.spring.service.RecordSchema.FieldType.INT
+import static com.rmurugaian.spring.service.RecordSchema.FieldType.LONG
+import static com.rmurugaian.spring.service.RecordSchema.FieldType.TEXT
+
+class RecordParserSpec extends Specification {
+
+    def delimited = RecordSchema.delimited('|' as char)
+        .field('id', LONG)
+        .field('name', TEXT)
+        .field('amount', DOUBLE)
+        .build()
+
+    def "parses delimited lines read from a channel"() {
+        given:
+        def reader = new LineRecordReader(32, StandardCharsets.UTF_8)
+        def parser = new RecordParser(delimited, StandardCharsets.UTF_8)
+        def records = []
+
+        when:
+        def count = reader.read(channelOf('1|source1|10.5\r\n-2|wörld|-0.25\n3|source3|7'), parser, {
+            records << [it.getLong(0), it.getText(1).toString(), it.getDouble(2)]
+        } as ParsedRecordHandler)
+
+        then:
+        count == 3
+        records == [[1L, 'source1', 10.5d], [-2L, 'wörld', -0.25d], [3L, 'source3', 7d]]
+    }
+
+    def "parses fixed-width lines and trims their padding"() {
+        given:
+        def schema = RecordSchema.fixedWidth()
+            .field('code', TEXT, 6)
+            .skip(1)
+            .field('quantity', INT, 5)
+            .build()
+        def parser = new RecordParser(schema, StandardCharsets.UTF_8)
+        def records = []
+
+        when:
+        new LineRecordReader(16, StandardCharsets.UTF_8).read(ByteBuffer.wrap('AB12  -  42\nXYZ\n'.bytes), parser, {
+            records << [it.getText(schema.indexOf('code')).toString(), it.isEmpty(1) ? null : it.getInt(1)]
+        } as ParsedRecordHandler)
+
+        then:
+        records == [['AB12', 42], ['XYZ', null]]
+    }
+
+    def "leaves fields missing from a short line empty and ignores extra ones"() {
+        when:
+        def record = parse(delimited, line)
+
+        then:
+        (0..2).collect { record.getText(it).toString() } == expected
+
+        where:
+        line                || expected
+        '7'                 || ['7', '', '']
+        '7||'               || ['7', '', '']
+        '7|a|1.5|extra|foo' || ['7', 'a', '1.5']
+    }
+
+    @Unroll
+    def "reads '#text' as the number #expected"() {
+        expect:
+        parse(RecordSchema.delimited(',' as char).field('value', DOUBLE).build(), text).getDouble(0) == expected
+
+        where:
+        text                    || expected
+        '0'                     || 0d
+        '+3.'                   || 3d
+        '-.5'                   || -0.5d
+        '123456.789'            || 123456.789d
+        '0.1'                   || 0.1d
+        '1.5E3'                 || 1500d
+        '12345678901234567.891' || 12345678901234567.891d
+    }
+
+    @Unroll
+    def "rejects '#text' as a long"() {
+        when:
+        parse(RecordSchema.delimited(',' as char).field('value', LONG).build(), text).getLong(0)
+
+        then:
+        def e = thrown(NumberFormatException)
+        e.message.startsWith('Field value is not a valid long')
+
+        where:
+        text << ['', '-', '12a', '9223372036854775808', '1.0']
+    }
+
+    def "reads the extremes of long and int"() {
+        given:
+        def record = parse(RecordSchema.delimited(',' as char).field('min', LONG).field('max', INT).build(),
+            '-9223372036854775808,2147483647')
+
+        expect:
+        record.getLong(0) == Long.MIN_VALUE
+        record.getInt(1) == Integer.MAX_VALUE
+    }
+
+    private static ParsedRecord parse(RecordSchema schema, String line) {
+        def bytes = line.getBytes(StandardCharsets.UTF_8)
+        new RecordParser(schema, StandardCharsets.UTF_8).parse(ByteBuffer.wrap(bytes), 0, bytes.length)
+    }
+
+    private static channelOf(String input) {
+        Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))
+    }
+}
@@ -0,0 +1,52 @@
+package com.rmurugaian.spring.sftp
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.messaging.support.GenericMessage
+import org.springframework.scheduling.support.SimpleTriggerContext
+import spock.lang.Specification
+
+class AdaptivePollingTriggerSpec extends Specification {
+
+    def trigger = new AdaptivePollingTrigger('test', 100, 1600)
+    def context = new SimpleTriggerContext()
+
+    def setup() {
+        trigger.jitter = 0
+        context.update(new Date(0), new Date(0), new Date(0))
+    }
+
+    def "backs off while polls come back empty"() {
+        expect:
+        (1..6).collect { poll(false) } == [200, 400, 800, 1600, 1600, 1600]
+        trigger.hitRatio == 0
+    }
+
+    def "tightens the interval while files keep arriving"() {
+        given:
+        trigger.initialInterval = 1600
+
+        expect:
+        (1..6).collect { poll(true) } == [800, 400, 200, 100, 100, 100]
+        trigger.hitRatio > 0
+    }
+
+    def "publishes the interval and poll counts"() {
+        given:
+        def registry = new SimpleMeterRegistry()
+        trigger.bindTo(registry)
+
+        when:
+        poll(true)
+        poll(false)
+
+        then:
+        registry.get('sftp.poll.interval').gauge().value() == 200
+        registry.get('sftp.poll.count').tag('outcome', 'hit').functionCounter().count() == 1
+        registry.get('sftp.poll.count').tag('outcome', 'empty').functionCounter().count() == 1
+    }
+
+    private long poll(boolean hit) {
+        trigger.afterReceive(hit ? new GenericMessage<>('file') : null, null)
+        trigger.nextExecutionTime(context).time
+    }
+}
@@ -0,0 +1,83 @@
+package com.rmurugaian.spring.sftp
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class DatePartitionedRemoteDirectoriesSpec extends Specification {
+
+    def "lists today's partition and the lookback days before it, oldest first"() {
+        given:
+        def directories = new DatePartitionedRemoteDirectories('/incoming', 'yyyy/MM/dd', 2,
+            Clock.fixed(Instant.parse('2019-10-17T12:00:00Z'), ZoneOffset.UTC))
+
+        expect:
+        directories.get() == ['/incoming/2019/10/15', '/incoming/2019/10/16', '/incoming/2019/10/17']
+    }
+
+    def "rolls over to the next partition at midnight of the clock's zone"() {
+        given:
+        def clock = new MutableClock(Instant.parse('2019-10-17T21:59:59Z'), ZoneId.of('Europe/Berlin'))
+        def directories = new DatePartitionedRemoteDirectories('/incoming/', 'yyyy-MM-dd', 1, clock)
+
+        when:
+        def beforeMidnight = directories.get()
+        clock.advance(Duration.ofSeconds(2))
+        def afterMidnight = directories.get()
+
+        then:
+        beforeMidnight == ['/incoming/2019-10-16', '/incoming/2019-10-17']
+        afterMidnight == ['/incoming/2019-10-17', '/incoming/2019-10-18']
+    }
+
+    @Unroll
+    def "formats the partitions with '#pattern'"() {
+        given:
+        def directories = new DatePartitionedRemoteDirectories('/incoming', pattern, lookbackDays,
+            Clock.fixed(Instant.parse('2020-01-01T00:30:00Z'), ZoneOffset.UTC))
+
+        expect:
+        directories.get() == expected
+
+        where:
+        pattern      | lookbackDays || expected
+        'yyyy/MM/dd' | 0            || ['/incoming/2020/01/01']
+        'yyyyMMdd'   | 1            || ['/incoming/20191231', '/incoming/20200101']
+        "'day='D"    | 1            || ['/incoming/day=365', '/incoming/day=1']
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant
+        private final ZoneId zone
+
+        MutableClock(Instant instant, ZoneId zone) {
+            this.instant = instant
+            this.zone = zone
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration)
+        }
+
+        @Override
+        ZoneId getZone() {
+            zone
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            new MutableClock(instant, zone)
+        }
+
+        @Override
+        Instant instant() {
+            instant
+        }
+    }
+}
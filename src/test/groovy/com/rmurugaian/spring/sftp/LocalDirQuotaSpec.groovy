@@ -0,0 +1,62 @@
+package com.rmurugaian.spring.sftp
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.file.Files
+
+class LocalDirQuotaSpec extends Specification {
+
+    File localDirectory = Files.createTempDirectory('local-dir-quota').toFile()
+
+    def cleanup() {
+        localDirectory.deleteDir()
+    }
+
+    @Unroll
+    def "allows #expected more files with #files files of #size bytes under maxBytes=#maxBytes, maxFiles=#maxFiles"() {
+        given:
+        (0..<files).each { new File(localDirectory, "update${it}.txt").bytes = new byte[size] }
+        def quota = new LocalDirQuota(maxBytes, maxFiles)
+
+        expect:
+        quota.fetchLimit(localDirectory, maxFetchSize) == expected
+
+        where:
+        files | size | maxBytes | maxFiles | maxFetchSize      || expected
+        2     | 10   | 0        | 0        | Integer.MIN_VALUE || Integer.MIN_VALUE
+        2     | 10   | 30       | 0        | 5                 || 5
+        3     | 10   | 30       | 0        | 5                 || 0
+        2     | 10   | 0        | 5        | Integer.MIN_VALUE || 3
+        2     | 10   | 0        | 5        | 2                 || 2
+        5     | 10   | 0        | 5        | 2                 || 0
+    }
+
+    def "publishes the backlog measured at the last poll"() {
+        given:
+        new File(localDirectory, 'update1.txt').bytes = new byte[100]
+        new File(localDirectory, 'update2.txt.writing').bytes = new byte[50]
+        def quota = new LocalDirQuota(120, 0)
+        def registry = new SimpleMeterRegistry()
+        quota.bindTo(registry)
+
+        when:
+        quota.fetchLimit(localDirectory, 10)
+        quota.fetchLimit(localDirectory, 10)
+
+        then:
+        registry.get('sftp.local.backlog.bytes').gauge().value() == 150
+        registry.get('sftp.local.backlog.files').gauge().value() == 2
+        registry.get('sftp.local.quota.paused').functionCounter().count() == 2
+    }
+
+    def "treats a directory that does not exist yet as empty"() {
+        given:
+        def quota = new LocalDirQuota(1, 1)
+
+        expect:
+        quota.fetchLimit(new File(localDirectory, 'missing'), 10) == 1
+        quota.files == 0
+    }
+}
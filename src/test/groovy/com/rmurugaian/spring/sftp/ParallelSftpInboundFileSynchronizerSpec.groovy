@@ -0,0 +1,299 @@
+package com.rmurugaian.spring.sftp
+
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import com.rmurugaian.spring.cluster.ClusterMembership
+import com.rmurugaian.spring.metadata.InMemoryMetadataStore
+import com.rmurugaian.spring.metadata.SharedDirectoryMetadataStore
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.integration.file.remote.session.CachingSessionFactory
+import org.springframework.integration.sftp.filters.SftpRegexPatternFileListFilter
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ParallelSftpInboundFileSynchronizerSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    DefaultSftpSessionFactory sessionFactory
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.getDir("/incoming")
+        sessionFactory = new DefaultSftpSessionFactory(host: 'localhost', port: server.port, user: 'b2s',
+            password: 'b2s', allowUnknownKeys: true)
+    }
+
+    def "downloads every matching file and deletes it remotely"() {
+        given:
+        (1..12).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        fileSystemFactory.createFile("/incoming/ignored.dat", 'x'.bytes)
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 4)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.filter = new SftpRegexPatternFileListFilter('^.*\\.txt$')
+        synchronizer.deleteRemoteFiles = true
+        synchronizer.preserveTimestamp = true
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        localDirectory.list().sort() == (1..12).collect { "update${it}.txt" }.sort()
+        new File(localDirectory, 'update7.txt').text == 'record-7'
+        (1..12).every { !fileSystemFactory.fileExists("/incoming/update${it}.txt") }
+        fileSystemFactory.fileExists('/incoming/ignored.dat')
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "honours maxFetchSize"() {
+        given:
+        (1..5).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory, 3)
+
+        then:
+        localDirectory.list().length == 3
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "stops downloading while the local directory is over its quota"() {
+        given:
+        (1..5).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        new File(localDirectory, 'pending.txt').text = 'not processed yet'
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.localDirQuota = new LocalDirQuota(0, 3)
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then: 'only the two files left under the quota are fetched'
+        localDirectory.list().length == 3
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        localDirectory.list().length == 3
+
+        when: 'processing catches up'
+        new File(localDirectory, 'pending.txt').delete()
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        localDirectory.list().length == 3
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "downloads through the resumable downloader"() {
+        given:
+        (1..3).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.deleteRemoteFiles = true
+        synchronizer.preserveTimestamp = true
+        synchronizer.resumableDownloader = new ResumableSftpDownloader(sessionFactory, 3, 10, 2.0, 100)
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        localDirectory.list().sort() == (1..3).collect { "update${it}.txt" }
+        new File(localDirectory, 'update2.txt').text == 'record-2'
+        (1..3).every { !fileSystemFactory.fileExists("/incoming/update${it}.txt") }
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "with awaitProcessing only deletes and commits a file once it is processed"() {
+        given:
+        (1..2).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        def filter = new SftpChainFileListFilter()
+        filter.addFilter(new SftpRemoteFileIdentityFilter(new InMemoryMetadataStore(), 'test', '/incoming'))
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.filter = filter
+        synchronizer.deleteRemoteFiles = true
+        synchronizer.awaitProcessing = true
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        localDirectory.list().sort() == ['update1.txt', 'update2.txt']
+        fileSystemFactory.fileExists('/incoming/update1.txt')
+        fileSystemFactory.fileExists('/incoming/update2.txt')
+
+        when:
+        synchronizer.processed(new File(localDirectory, 'update1.txt'))
+        synchronizer.failed(new File(localDirectory, 'update2.txt'))
+        localDirectory.listFiles()*.delete()
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        !fileSystemFactory.fileExists('/incoming/update1.txt')
+        fileSystemFactory.fileExists('/incoming/update2.txt')
+        localDirectory.list() as List == ['update2.txt']
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "with awaitProcessing fetches a file kept out by an existing local file once that is gone"() {
+        given:
+        (1..2).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        new File(localDirectory, 'update1.txt').text = 'failed earlier'
+        def filter = new SftpChainFileListFilter()
+        filter.addFilter(new SftpRemoteFileIdentityFilter(new InMemoryMetadataStore(), 'test', '/incoming'))
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.filter = filter
+        synchronizer.deleteRemoteFiles = true
+        synchronizer.awaitProcessing = true
+        if (resumable) {
+            synchronizer.resumableDownloader = new ResumableSftpDownloader(sessionFactory, 3, 10, 2.0, 100)
+        }
+        synchronizer.afterPropertiesSet()
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        new File(localDirectory, 'update1.txt').text == 'failed earlier'
+        new File(localDirectory, 'update2.txt').text == 'record-2'
+
+        when:
+        new File(localDirectory, 'update1.txt').delete()
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+        synchronizer.processed(new File(localDirectory, 'update1.txt'))
+
+        then:
+        new File(localDirectory, 'update1.txt').text == 'record-1'
+        !fileSystemFactory.fileExists('/incoming/update1.txt')
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+
+        where:
+        resumable << [false, true]
+    }
+
+    def "instances sharing claims download every file exactly once"() {
+        given:
+        (1..40).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def shared = Files.createTempDirectory('shared')
+        def localDirectories = (0..<2).collect { Files.createTempDirectory('sftp').toFile() }
+        def memberships = ['node-a', 'node-b'].collect {
+            new ClusterMembership(shared.resolve('members'), it, 1000, 5000)
+        }
+        Files.createDirectories(shared.resolve('members'))
+        memberships*.heartbeat()
+        memberships*.heartbeat()
+
+        def synchronizers = memberships.collect { membership ->
+            def claims = new SftpFileClaimFilter(new SharedDirectoryMetadataStore(shared.resolve('claims')),
+                'sftpMessageSource', '/incoming', partitioned ? membership : null, 60000)
+            def filter = new SftpChainFileListFilter()
+            filter.addFilter(claims)
+            def synchronizer = new ParallelSftpInboundFileSynchronizer(new CachingSessionFactory(sessionFactory, 4), 4)
+            synchronizer.remoteDirectory = '/incoming'
+            synchronizer.filter = filter
+            synchronizer.awaitProcessing = true
+            synchronizer.deleteRemoteFiles = false
+            synchronizer.afterPropertiesSet()
+            synchronizer
+        }
+
+        when:
+        2.times { (0..<2).each { synchronizers[it].synchronizeToLocalDirectory(localDirectories[it]) } }
+        def downloaded = localDirectories.collect { it.list() as List }
+
+        then:
+        (downloaded[0] + downloaded[1]).sort() == (1..40).collect { "update${it}.txt" }.sort()
+        downloaded[1].empty == !partitioned
+
+        cleanup:
+        synchronizers*.destroy()
+        localDirectories*.deleteDir()
+        shared.toFile().deleteDir()
+
+        where:
+        partitioned << [true, false]
+    }
+
+    def "publishes poll, listing and download meters"() {
+        given:
+        (1..3).each { fileSystemFactory.createFile("/incoming/update${it}.txt", 'record'.bytes) }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        def registry = new SimpleMeterRegistry()
+
+        def synchronizer = new ParallelSftpInboundFileSynchronizer(sessionFactory, 2)
+        synchronizer.remoteDirectory = '/incoming'
+        synchronizer.afterPropertiesSet()
+        synchronizer.bindTo(registry)
+
+        when:
+        synchronizer.synchronizeToLocalDirectory(localDirectory)
+
+        then:
+        registry.get('sftp.sync').tag('outcome', 'success').timer().count() == 1
+        registry.get('sftp.sync.listed').summary().totalAmount() == 3
+        registry.get('sftp.download').tag('outcome', 'success').timer().count() == 3
+        registry.get('sftp.download.bytes').counter().count() == 18
+
+        cleanup:
+        synchronizer?.destroy()
+        localDirectory?.deleteDir()
+    }
+}
@@ -0,0 +1,42 @@
+package com.rmurugaian.spring.sftp
+
+import com.rmurugaian.spring.cluster.ClusterMembership
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class PartitionedRemoteDirectoriesSpec extends Specification {
+
+    def members = Files.createTempDirectory('members')
+
+    def directories = (1..20).collect { "/incoming/2019/10/${it}".toString() }
+
+    def cleanup() {
+        members.toFile().deleteDir()
+    }
+
+    def "splits the directories between the members, each listing only the ones it owns"() {
+        given:
+        def memberships = ['node-a', 'node-b'].collect { new ClusterMembership(members, it, 1000, 5000) }
+        memberships*.heartbeat()
+        memberships*.heartbeat()
+
+        when:
+        def listed = memberships.collect { new PartitionedRemoteDirectories({ directories }, it).get() }
+
+        then:
+        listed.every { !it.isEmpty() }
+        (listed[0] + listed[1]).sort() == directories.sort(false)
+        listed[0].every { memberships[0].owns(it) }
+        listed[0] == directories.findAll { memberships[0].owns(it) }
+    }
+
+    def "a single member lists every directory"() {
+        given:
+        def membership = new ClusterMembership(members, 'node-a', 1000, 5000)
+        membership.heartbeat()
+
+        expect:
+        new PartitionedRemoteDirectories({ directories }, membership).get() == directories
+    }
+}
@@ -0,0 +1,79 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.SftpException
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import spock.lang.Shared
+import spock.lang.Specification
+
+class PipelinedSftpSessionFactorySpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    PipelinedSftpSessionFactory sessionFactory
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        sessionFactory = new PipelinedSftpSessionFactory(new DefaultSftpSessionFactory(host: 'localhost',
+            port: server.port, user: 'b2s', password: 'b2s', allowUnknownKeys: true), 48, 65536)
+    }
+
+    def "reads a file larger than the request window with the configured bulk requests"() {
+        given:
+        def content = new byte[3 * 1024 * 1024 + 17]
+        new Random(7).nextBytes(content)
+        fileSystemFactory.createFile('/incoming/update1.dat', content)
+        def out = new ByteArrayOutputStream()
+
+        when:
+        def session = sessionFactory.session
+        session.read('/incoming/update1.dat', out)
+
+        then:
+        ((ChannelSftp) session.clientInstance).bulkRequests == 48
+        out.toByteArray() == content
+
+        cleanup:
+        session?.close()
+    }
+
+    def "reports a missing file as a status error and keeps the session usable"() {
+        given:
+        fileSystemFactory.createFile('/incoming/update1.txt', 'abc'.bytes)
+        def session = sessionFactory.session
+
+        when:
+        session.read('/incoming/missing.txt', new ByteArrayOutputStream())
+
+        then:
+        def e = thrown(IOException)
+        e.cause instanceof SftpException
+
+        when:
+        def out = new ByteArrayOutputStream()
+        session.read('/incoming/update1.txt', out)
+
+        then:
+        out.toString() == 'abc'
+
+        cleanup:
+        session.close()
+    }
+}
@@ -0,0 +1,87 @@
+package com.rmurugaian.spring.sftp
+
+import org.springframework.integration.file.remote.session.Session
+import org.springframework.integration.file.remote.session.SessionFactory
+import spock.lang.Specification
+
+import java.time.Duration
+
+class PooledSftpSessionFactorySpec extends Specification {
+
+    SessionFactory target = Mock()
+
+    def "reuses a returned session"() {
+        given:
+        def session = openSession()
+        def pool = new PooledSftpSessionFactory(target, 2)
+
+        when:
+        pool.session.close()
+        pool.session.close()
+
+        then:
+        1 * target.getSession() >> session
+        pool.idleCount == 1
+        pool.activeCount == 0
+    }
+
+    def "does not return a session that failed an operation"() {
+        given:
+        def session = openSession()
+        session.list(_) >> { throw new IOException('broken pipe') }
+        def pool = new PooledSftpSessionFactory(target, 1)
+        target.getSession() >> session
+
+        when:
+        def borrowed = pool.session
+        borrowed.list('/incoming')
+
+        then:
+        thrown(IOException)
+
+        when:
+        borrowed.close()
+
+        then:
+        pool.idleCount == 0
+        1 * session.close()
+    }
+
+    def "times out when every session is borrowed"() {
+        given:
+        target.getSession() >> openSession()
+        def pool = new PooledSftpSessionFactory(target, 1)
+        pool.maxWait = Duration.ofMillis(10)
+        pool.session
+
+        when:
+        pool.session
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "evicts sessions idle for too long"() {
+        given:
+        def session = openSession()
+        target.getSession() >> session
+        def pool = new PooledSftpSessionFactory(target, 1)
+        pool.session.close()
+        pool.maxIdleTime = Duration.ZERO
+        sleep(5)
+
+        when:
+        pool.evictExpired()
+
+        then:
+        pool.idleCount == 0
+        1 * session.close()
+    }
+
+    private Session openSession() {
+        Mock(Session) {
+            isOpen() >> true
+            test() >> true
+        }
+    }
+}
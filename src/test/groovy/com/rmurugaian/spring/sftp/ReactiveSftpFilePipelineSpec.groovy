@@ -0,0 +1,203 @@
+package com.rmurugaian.spring.sftp
+
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import com.rmurugaian.spring.service.FileProcessor
+import com.rmurugaian.spring.service.QuarantiningFileProcessor
+import org.springframework.integration.file.filters.AcceptOnceFileListFilter
+import org.springframework.integration.file.remote.session.CachingSessionFactory
+import org.springframework.integration.metadata.SimpleMetadataStore
+import org.springframework.integration.sftp.filters.SftpPersistentAcceptOnceFileListFilter
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import org.springframework.messaging.support.GenericMessage
+import reactor.core.publisher.Flux
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.IntSupplier
+
+class ReactiveSftpFilePipelineSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    CachingSessionFactory sessionFactory
+
+    File localDirectory = Files.createTempDirectory('sftp').toFile()
+
+    List<String> processed = new CopyOnWriteArrayList<>()
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        (1..3).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        sessionFactory = new CachingSessionFactory(new DefaultSftpSessionFactory(host: 'localhost', port: server.port,
+            user: 'b2s', password: 'b2s', allowUnknownKeys: true), 4)
+    }
+
+    def cleanup() {
+        sessionFactory.destroy()
+        localDirectory.deleteDir()
+    }
+
+    def "downloads go on while processing is held up, and listing waits for room in the pipeline"() {
+        given:
+        def release = new CountDownLatch(1)
+        def filter = acceptOnceFilter()
+        def pipeline = pipeline(filter, { File file -> release.await(); processed << file.name } as FileProcessor, 3)
+        def lister = lister(filter, pipeline)
+
+        when:
+        def done = run(pipeline, pipeline.admit(lister.receive().payload))
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            assert localDirectory.list().sort() == ['update1.txt', 'update2.txt', 'update3.txt']
+        }
+        processed.isEmpty()
+        pipeline.room() == 0
+        lister.receive() == null
+
+        when:
+        release.countDown()
+        done.await(10, TimeUnit.SECONDS)
+
+        then:
+        processed.sort() == ['update1.txt', 'update2.txt', 'update3.txt']
+        pipeline.room() == 3
+
+        cleanup:
+        pipeline.destroy()
+    }
+
+    def "files over the room left are listed again later, as is a file that failed to download"() {
+        given:
+        def filter = acceptOnceFilter()
+        def pipeline = pipeline(filter, { File file -> processed << file.name } as FileProcessor, 2)
+        def lister = lister(filter, pipeline)
+
+        when:
+        def listed = pipeline.admit(lister.receive().payload)
+        fileSystemFactory.removeFile('/incoming/update1.txt')
+        run(pipeline, listed).await(10, TimeUnit.SECONDS)
+
+        then:
+        listed*.filename == ['update1.txt', 'update2.txt']
+        processed == ['update2.txt']
+        pipeline.room() == 2
+
+        when:
+        fileSystemFactory.createFile('/incoming/update1.txt', 'record-1'.bytes)
+        def relisted = lister.receive().payload
+
+        then:
+        relisted*.filename.sort() == ['update1.txt', 'update3.txt']
+
+        cleanup:
+        pipeline.destroy()
+    }
+
+    def "only a processed file is deleted from the server, a failed one is fetched and processed again"() {
+        given:
+        def attempts = new AtomicInteger()
+        def failedDirectory = new File(localDirectory.path + '.failed')
+        def filter = acceptOnceFilter()
+        def pipeline = pipeline(filter, new QuarantiningFileProcessor({ File file ->
+            if (file.name == 'update2.txt' && attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException('unparseable')
+            }
+            processed << file.name
+        } as FileProcessor, failedDirectory, new AcceptOnceFileListFilter<File>()), 3)
+        pipeline.deleteRemoteFiles = true
+        def lister = lister(filter, pipeline)
+
+        when:
+        run(pipeline, pipeline.admit(lister.receive().payload)).await(10, TimeUnit.SECONDS)
+
+        then:
+        processed.sort() == ['update1.txt', 'update3.txt']
+        !fileSystemFactory.fileExists('/incoming/update1.txt')
+        fileSystemFactory.fileExists('/incoming/update2.txt')
+        !fileSystemFactory.fileExists('/incoming/update3.txt')
+        new File(failedDirectory, 'update2.txt').text == 'record-2'
+
+        when:
+        def relisted = lister.receive().payload
+        run(pipeline, pipeline.admit(relisted)).await(10, TimeUnit.SECONDS)
+
+        then:
+        relisted*.filename == ['update2.txt']
+        attempts.get() == 2
+        processed.sort() == ['update1.txt', 'update2.txt', 'update3.txt']
+        !fileSystemFactory.fileExists('/incoming/update2.txt')
+
+        cleanup:
+        pipeline.destroy()
+        failedDirectory.deleteDir()
+    }
+
+    def "drops a file that clashes with an existing local file, without listing it again"() {
+        given:
+        def filter = acceptOnceFilter()
+        def pipeline = pipeline(filter, { File file -> processed << file.name } as FileProcessor, 3)
+        def lister = lister(filter, pipeline)
+        localDirectory.mkdirs()
+        new File(localDirectory, 'update1.txt').text = 'still here'
+
+        when:
+        run(pipeline, pipeline.admit(lister.receive().payload)).await(10, TimeUnit.SECONDS)
+
+        then:
+        processed.sort() == ['update2.txt', 'update3.txt']
+        new File(localDirectory, 'update1.txt').text == 'still here'
+        pipeline.room() == 3
+        lister.receive() == null
+
+        cleanup:
+        pipeline.destroy()
+    }
+
+    private SftpPersistentAcceptOnceFileListFilter acceptOnceFilter() {
+        new SftpPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), 'listed')
+    }
+
+    private ReactiveSftpFilePipeline pipeline(filter, FileProcessor processor, int capacity) {
+        def pipeline = new ReactiveSftpFilePipeline(sessionFactory,
+            new ResumableSftpDownloader(sessionFactory, 1, 10, 2.0, 100), localDirectory, processor, 2, 1, capacity)
+        pipeline.filter = filter
+        pipeline
+    }
+
+    private SftpListingMessageSource lister(filter, ReactiveSftpFilePipeline pipeline) {
+        def lister = new SftpListingMessageSource(sessionFactory, { ['/incoming/'] }, filter)
+        lister.fetchLimit = { pipeline.room() } as IntSupplier
+        lister
+    }
+
+    private static CountDownLatch run(ReactiveSftpFilePipeline pipeline, List files) {
+        def done = new CountDownLatch(1)
+        pipeline.process(pipeline.fetch(Flux.fromIterable(files).map { new GenericMessage(it) }))
+            .doFinally { done.countDown() }
+            .subscribe()
+        done
+    }
+}
@@ -0,0 +1,88 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import com.rmurugaian.spring.service.FileProcessor
+import org.springframework.integration.IntegrationMessageHeaderAccessor
+import org.springframework.integration.file.FileHeaders
+import org.springframework.integration.file.filters.ResettableFileListFilter
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import org.springframework.integration.sftp.session.SftpFileInfo
+import org.springframework.integration.support.MessageBuilder
+import org.springframework.messaging.MessagingException
+import spock.lang.Shared
+import spock.lang.Specification
+
+class RemoteFileStreamHandlerSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    DefaultSftpSessionFactory sessionFactory
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.createFile('/incoming/update1.txt', "a\nb\nc\n".bytes)
+        sessionFactory = new DefaultSftpSessionFactory(host: 'localhost', port: server.port, user: 'b2s',
+            password: 'b2s', allowUnknownKeys: true)
+    }
+
+    def "processes the remote stream and removes the remote file"() {
+        given:
+        def received = []
+        def processor = Mock(FileProcessor) {
+            handleUpdateStream(_, _) >> { String name, InputStream stream -> received << name << stream.text }
+        }
+        def handler = new RemoteFileStreamHandler(processor, null, true)
+
+        when:
+        handler.handleMessage(streamedFile())
+
+        then:
+        received == ['update1.txt', "a\nb\nc\n"]
+        !fileSystemFactory.fileExists('/incoming/update1.txt')
+    }
+
+    def "keeps the remote file and resets the filter when processing fails"() {
+        given:
+        def processor = Mock(FileProcessor) {
+            handleUpdateStream(_, _) >> { throw new IOException('boom') }
+        }
+        def filter = Mock(ResettableFileListFilter)
+        def handler = new RemoteFileStreamHandler(processor, filter, true)
+
+        when:
+        handler.handleMessage(streamedFile())
+
+        then:
+        thrown(MessagingException)
+        1 * filter.remove({ it.filename == 'update1.txt' })
+        fileSystemFactory.fileExists('/incoming/update1.txt')
+    }
+
+    private streamedFile() {
+        def session = sessionFactory.session
+        ChannelSftp.LsEntry entry = session.list('/incoming').find { it.filename == 'update1.txt' }
+        MessageBuilder.withPayload(session.readRaw('/incoming/update1.txt'))
+            .setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, session)
+            .setHeader(FileHeaders.REMOTE_DIRECTORY, '/incoming')
+            .setHeader(FileHeaders.REMOTE_FILE, 'update1.txt')
+            .setHeader(FileHeaders.REMOTE_FILE_INFO, new SftpFileInfo(entry))
+            .build()
+    }
+}
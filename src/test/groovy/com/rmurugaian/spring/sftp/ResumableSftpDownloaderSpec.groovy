@@ -0,0 +1,118 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import org.springframework.integration.file.remote.session.SessionFactory
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ResumableSftpDownloaderSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    DefaultSftpSessionFactory sessionFactory
+
+    File localFile
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.createFile('/incoming/update1.txt', 'abcdefghij'.bytes)
+        sessionFactory = new DefaultSftpSessionFactory(host: 'localhost', port: server.port, user: 'b2s',
+            password: 'b2s', allowUnknownKeys: true)
+        localFile = new File(Files.createTempDirectory('resumable').toFile(), 'update1.txt')
+    }
+
+    def "continues a partial download from the checkpointed offset"() {
+        given:
+        def entry = remoteEntry()
+        partialFile().text = 'ABCD'
+        checkpointFile().text = "size=10\nmodified=${entry.attrs.MTime}\noffset=4\n"
+
+        when:
+        downloader(sessionFactory).download('/incoming/update1.txt', entry, localFile)
+
+        then:
+        localFile.text == 'ABCDefghij'
+        !partialFile().exists()
+        !checkpointFile().exists()
+    }
+
+    def "starts over when the checkpoint belongs to another version of the remote file"() {
+        given:
+        partialFile().text = 'ABCD'
+        checkpointFile().text = "size=99\nmodified=0\noffset=4\n"
+
+        when:
+        downloader(sessionFactory).download('/incoming/update1.txt', remoteEntry(), localFile)
+
+        then:
+        localFile.text == 'abcdefghij'
+    }
+
+    def "retries when a session cannot be opened"() {
+        given:
+        def flaky = Mock(SessionFactory)
+        flaky.getSession() >> { throw new IllegalStateException('connection refused') } >> { sessionFactory.session }
+
+        when:
+        downloader(flaky).download('/incoming/update1.txt', remoteEntry(), localFile)
+
+        then:
+        localFile.text == 'abcdefghij'
+    }
+
+    def "does not retry a remote file that is gone"() {
+        given:
+        def entry = remoteEntry()
+        fileSystemFactory.removeFile('/incoming/update1.txt')
+        def counting = Mock(SessionFactory)
+
+        when:
+        downloader(counting).download('/incoming/update1.txt', entry, localFile)
+
+        then:
+        thrown(FileNotFoundException)
+        1 * counting.getSession() >> { sessionFactory.session }
+        !localFile.exists()
+    }
+
+    private ResumableSftpDownloader downloader(SessionFactory factory) {
+        new ResumableSftpDownloader(factory, 3, 10, 2.0, 100)
+    }
+
+    private ChannelSftp.LsEntry remoteEntry() {
+        def session = sessionFactory.session
+        try {
+            session.list('/incoming').find { it.filename == 'update1.txt' }
+        } finally {
+            session.close()
+        }
+    }
+
+    private File partialFile() {
+        new File(localFile.path + '.writing')
+    }
+
+    private File checkpointFile() {
+        new File(localFile.path + '.checkpoint.writing')
+    }
+}
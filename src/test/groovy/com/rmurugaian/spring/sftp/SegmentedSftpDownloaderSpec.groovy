@@ -0,0 +1,111 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import org.springframework.integration.file.remote.session.SessionFactory
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicInteger
+
+class SegmentedSftpDownloaderSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    DefaultSftpSessionFactory sessionFactory
+
+    byte[] contents = new byte[200_003]
+
+    File localFile
+
+    SegmentedSftpDownloader downloader
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        new Random(42).nextBytes(contents)
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.createFile('/incoming/large.bin', contents)
+        fileSystemFactory.createFile('/incoming/small.txt', 'abc'.bytes)
+        sessionFactory = new DefaultSftpSessionFactory(host: 'localhost', port: server.port, user: 'b2s',
+            password: 'b2s', allowUnknownKeys: true)
+        localFile = new File(Files.createTempDirectory('segmented').toFile(), 'large.bin')
+    }
+
+    def cleanup() {
+        downloader?.destroy()
+    }
+
+    def "assembles a large file from parallel ranges"() {
+        given:
+        downloader = new SegmentedSftpDownloader(sessionFactory, 3, 10, 2.0, 100, 4, 1000, 4)
+
+        when:
+        downloader.download('/incoming/large.bin', remoteEntry('large.bin'), localFile)
+
+        then:
+        localFile.bytes == contents
+        !new File(localFile.path + '.writing').exists()
+    }
+
+    def "retries a range on a fresh session"() {
+        given:
+        def sessions = new AtomicInteger()
+        def flaky = Mock(SessionFactory) {
+            getSession() >> {
+                if (sessions.incrementAndGet() == 2) {
+                    throw new IllegalStateException('connection reset')
+                }
+                sessionFactory.session
+            }
+        }
+        downloader = new SegmentedSftpDownloader(flaky, 3, 10, 2.0, 100, 4, 1000, 4)
+
+        when:
+        downloader.download('/incoming/large.bin', remoteEntry('large.bin'), localFile)
+
+        then:
+        localFile.bytes == contents
+        // Four ranges, the retried one and the verification; a slow embedded server may add retries.
+        sessions.get() >= 6
+    }
+
+    def "downloads files below the threshold as one stream"() {
+        given:
+        def small = new File(localFile.parentFile, 'small.txt')
+        def counting = Mock(SessionFactory)
+        downloader = new SegmentedSftpDownloader(counting, 3, 10, 2.0, 100, 4, 1000, 4)
+
+        when:
+        downloader.download('/incoming/small.txt', remoteEntry('small.txt'), small)
+
+        then:
+        1 * counting.getSession() >> { sessionFactory.session }
+        small.text == 'abc'
+    }
+
+    private ChannelSftp.LsEntry remoteEntry(String name) {
+        def session = sessionFactory.session
+        try {
+            session.list('/incoming').find { it.filename == name }
+        } finally {
+            session.close()
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.rmurugaian.spring.sftp
+
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.core.io.InputStreamSource
+import org.springframework.integration.file.remote.session.CachingSessionFactory
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import org.springframework.integration.sftp.session.SftpRemoteFileTemplate
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class SftpBatchUploaderSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    CachingSessionFactory sessionFactory
+
+    SftpBatchUploader uploader
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.getDir("/outgoing")
+        sessionFactory = new CachingSessionFactory(new DefaultSftpSessionFactory(host: 'localhost', port: server.port,
+            user: 'b2s', password: 'b2s', allowUnknownKeys: true), 4)
+        def template = new SftpRemoteFileTemplate(sessionFactory)
+        template.temporaryFileSuffix = '.writing'
+        template.useTemporaryFileName = true
+        uploader = new SftpBatchUploader(template, '/outgoing', 4)
+    }
+
+    def cleanup() {
+        uploader.destroy()
+        sessionFactory.destroy()
+    }
+
+    def "uploads files and streams in parallel and renames them once complete"() {
+        given:
+        def localDirectory = Files.createTempDirectory('responses').toFile()
+        def files = (1..20).collect { new File(localDirectory, "response${it}.txt") << "response-$it" }
+        def registry = new SimpleMeterRegistry()
+        uploader.bindTo(registry)
+
+        when:
+        def fileReport = uploader.uploadFiles(files)
+        def streamReport = uploader.upload([
+            SftpBatchUploader.Upload.of('ack.txt', new ByteArrayInputStream('ack'.bytes)),
+            SftpBatchUploader.Upload.of('rendered.txt', { new ByteArrayInputStream('rendered'.bytes) } as InputStreamSource)
+        ])
+
+        then:
+        fileReport.uploaded == 20
+        fileReport.bytes == files.sum { it.length() }
+        fileReport.failures.isEmpty()
+        fileReport.bytesPerSecond > 0
+        streamReport.uploaded == 2
+        streamReport.bytes == 11
+
+        and:
+        (1..20).every { new String(fileSystemFactory.getFile("/outgoing/response${it}.txt")) == "response-$it" }
+        new String(fileSystemFactory.getFile('/outgoing/rendered.txt')) == 'rendered'
+        fileSystemFactory.getDir('/outgoing').keySet().every { !it.endsWith('.writing') }
+
+        and:
+        registry.get('sftp.upload').tag('outcome', 'success').timer().count() == 22
+        registry.get('sftp.upload.batch').tag('outcome', 'success').timer().count() == 2
+        registry.get('sftp.upload.bytes').counter().count() == fileReport.bytes + 11
+
+        cleanup:
+        localDirectory?.deleteDir()
+    }
+
+    def "reports failed uploads without stopping the batch"() {
+        when:
+        def report = uploader.upload([
+            SftpBatchUploader.Upload.of('good.txt', new ByteArrayInputStream('good'.bytes)),
+            SftpBatchUploader.Upload.of('bad.txt', { throw new IOException('render failed') } as InputStreamSource)
+        ])
+
+        then:
+        report.uploaded == 1
+        report.failures.keySet() == ['bad.txt'] as Set
+        fileSystemFactory.fileExists('/outgoing/good.txt')
+        !fileSystemFactory.fileExists('/outgoing/bad.txt')
+        !fileSystemFactory.fileExists('/outgoing/bad.txt.writing')
+    }
+}
@@ -0,0 +1,136 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.SftpATTRS
+import com.rmurugaian.spring.cluster.ClusterMembership
+import com.rmurugaian.spring.metadata.InMemoryMetadataStore
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class SftpFileClaimFilterSpec extends Specification {
+
+    def store = new InMemoryMetadataStore()
+    def channel = new ChannelSftp()
+    def members = Files.createTempDirectory('members')
+
+    def cleanup() {
+        members.toFile().deleteDir()
+    }
+
+    def "claims a file once, keyed by its listing directory, and marks it done on commit"() {
+        given:
+        def filter = claims('node-a')
+        def today = entry('update.txt')
+        def yesterday = entry('update.txt')
+        def directories = [(today): '/incoming/2019-10-18', (yesterday): '/incoming/2019-10-17']
+
+        when:
+        def accepted = filter.filterFiles([today, yesterday] as ChannelSftp.LsEntry[], directories.&get)
+
+        then:
+        accepted == [today, yesterday]
+        store.get('test/incoming/2019-10-18/update.txt|6|100').startsWith('claimed|node-a|')
+        store.get('test/incoming/2019-10-17/update.txt|6|100').startsWith('claimed|node-a|')
+        claims('node-b').filterFiles([entry('update.txt')] as ChannelSftp.LsEntry[], { '/incoming/2019-10-18' })
+            .isEmpty()
+
+        when:
+        filter.commit(today)
+
+        then:
+        store.get('test/incoming/2019-10-18/update.txt|6|100').startsWith('done|node-a|')
+    }
+
+    def "takes over a claim left open for longer than the claim timeout, but not a done one"() {
+        given:
+        def old = System.currentTimeMillis() - 120000
+        store.put('test/incoming/open.txt|6|100', "claimed|node-a|$old")
+        store.put('test/incoming/fresh.txt|6|100', "claimed|node-a|${System.currentTimeMillis()}")
+        store.put('test/incoming/done.txt|6|100', "done|node-a|$old")
+
+        when:
+        def accepted = claims('node-b').filterFiles(
+            [entry('open.txt'), entry('fresh.txt'), entry('done.txt')] as ChannelSftp.LsEntry[])
+
+        then:
+        accepted*.filename == ['open.txt']
+        store.get('test/incoming/open.txt|6|100').startsWith('claimed|node-b|')
+    }
+
+    def "remove and rollback release only this instance's claims"() {
+        given:
+        def filter = claims('node-a')
+        def files = [entry('a.txt'), entry('b.txt'), entry('c.txt')]
+        filter.filterFiles(files as ChannelSftp.LsEntry[])
+        def old = System.currentTimeMillis() - 120000
+        store.put('test/incoming/c.txt|6|100', "claimed|node-b|$old")
+        store.put('test/incoming/d.txt|6|100', "claimed|node-b|$old")
+
+        when:
+        filter.rollback(files[1], files)
+        def removed = filter.remove(entry('d.txt'))
+
+        then:
+        !removed
+        store.get('test/incoming/a.txt|6|100').startsWith('claimed|node-a|')
+        store.get('test/incoming/b.txt|6|100') == null
+        store.get('test/incoming/c.txt|6|100').startsWith('claimed|node-b|')
+        store.get('test/incoming/d.txt|6|100').startsWith('claimed|node-b|')
+    }
+
+    def "with a membership only claims the file names this instance owns"() {
+        given:
+        def memberships = ['node-a', 'node-b'].collect { new ClusterMembership(members, it, 1000, 5000) }
+        memberships*.heartbeat()
+        memberships*.heartbeat()
+        def filters = memberships.collect {
+            new SftpFileClaimFilter(store, 'test', '/incoming', it, 60000)
+        }
+        def names = (1..20).collect { "update${it}.txt".toString() }
+
+        when:
+        def accepted = filters.collect { filter ->
+            filter.filterFiles(names.collect { entry(it) } as ChannelSftp.LsEntry[])*.filename
+        }
+
+        then:
+        accepted.every { !it.isEmpty() }
+        (accepted[0] + accepted[1]).sort() == names.sort()
+        accepted[0].every { memberships[0].owns(it) }
+    }
+
+    def "prunes claims done before the retention"() {
+        given:
+        def filter = claims('node-a')
+        filter.retention = 60000
+        def old = System.currentTimeMillis() - 120000
+        store.put('test/incoming/done.txt|6|100', "done|node-b|$old")
+        store.put('test/incoming/recent.txt|6|100', "done|node-b|${System.currentTimeMillis()}")
+        store.put('test/incoming/open.txt|6|100', "claimed|node-b|$old")
+
+        when:
+        filter.filterFiles([entry('update.txt')] as ChannelSftp.LsEntry[])
+
+        then:
+        store.get('test/incoming/done.txt|6|100') == null
+        store.get('test/incoming/recent.txt|6|100')
+        store.get('test/incoming/open.txt|6|100')
+    }
+
+    /**
+     * A filter of the only member of its own cluster, which owns every file.
+     */
+    private SftpFileClaimFilter claims(String nodeId) {
+        def membership = new ClusterMembership(Files.createDirectories(members.resolve(nodeId)), nodeId, 1000, 5000)
+        membership.heartbeat()
+        new SftpFileClaimFilter(store, 'test', '/incoming', membership, 60000)
+    }
+
+    private ChannelSftp.LsEntry entry(String name) {
+        def attrs = new SftpATTRS()
+        attrs.setACMODTIME(100, 100)
+        attrs.setSIZE(6)
+        new ChannelSftp.LsEntry(channel, name, name, attrs)
+    }
+}
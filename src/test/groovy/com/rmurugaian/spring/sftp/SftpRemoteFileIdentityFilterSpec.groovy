@@ -0,0 +1,111 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.SftpATTRS
+import com.rmurugaian.spring.metadata.AppendOnlyFileMetadataStore
+import com.rmurugaian.spring.metadata.InMemoryMetadataStore
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class SftpRemoteFileIdentityFilterSpec extends Specification {
+
+    def store = new InMemoryMetadataStore()
+    def filter = new SftpRemoteFileIdentityFilter(store, 'test', '/incoming')
+    def channel = new ChannelSftp()
+
+    def "keys files by their listing directory"() {
+        given:
+        def today = entry('update.txt', 100)
+        def yesterday = entry('update.txt', 100)
+        def directories = [(today): '/incoming/2019-10-18', (yesterday): '/incoming/2019-10-17']
+
+        when:
+        def accepted = filter.filterFiles([today, yesterday] as ChannelSftp.LsEntry[], directories.&get)
+        filter.commit(today)
+        filter.commit(yesterday)
+
+        then:
+        accepted == [today, yesterday]
+        store.get('test/incoming/2019-10-18/update.txt|6|100000')
+        store.get('test/incoming/2019-10-17/update.txt|6|100000')
+    }
+
+    def "holds an accepted file until it is committed"() {
+        given:
+        def file = entry('update.txt', 100)
+
+        expect:
+        filter.filterFiles([file] as ChannelSftp.LsEntry[]) == [file]
+        filter.filterFiles([entry('update.txt', 100)] as ChannelSftp.LsEntry[]).isEmpty()
+        store.get('test/incoming/update.txt|6|100000') == null
+
+        when:
+        filter.commit(file)
+
+        then:
+        store.get('test/incoming/update.txt|6|100000').startsWith('committed|')
+        filter.filterFiles([entry('update.txt', 100)] as ChannelSftp.LsEntry[]).isEmpty()
+        filter.filterFiles([entry('update.txt', 200)] as ChannelSftp.LsEntry[]).size() == 1
+    }
+
+    def "after a restart accepts the files that were not committed"() {
+        given:
+        def log = Files.createTempFile('metadata', '.log').toFile()
+        def before = new SftpRemoteFileIdentityFilter(new AppendOnlyFileMetadataStore(log), 'test', '/incoming')
+        before.flushOnUpdate = true
+        def processed = entry('processed.txt', 100)
+        def listed = entry('listed.txt', 100)
+        before.filterFiles([processed, listed] as ChannelSftp.LsEntry[])
+        before.commit(processed)
+
+        when:
+        def after = new SftpRemoteFileIdentityFilter(new AppendOnlyFileMetadataStore(log), 'test', '/incoming')
+
+        then:
+        after.filterFiles([entry('processed.txt', 100), entry('listed.txt', 100)] as ChannelSftp.LsEntry[])*.filename ==
+            ['listed.txt']
+
+        cleanup:
+        before.close()
+        log.delete()
+    }
+
+    def "rolled back and removed files are accepted again"() {
+        given:
+        def files = [entry('a.txt', 100), entry('b.txt', 100), entry('c.txt', 100)]
+        filter.filterFiles(files as ChannelSftp.LsEntry[])
+        filter.commit(files[0])
+
+        when:
+        filter.rollback(files[1], files)
+        filter.remove(files[0])
+
+        then:
+        filter.filterFiles([entry('a.txt', 100), entry('b.txt', 100), entry('c.txt', 100)] as ChannelSftp.LsEntry[])
+            .size() == 3
+    }
+
+    def "prunes entries committed before the retention"() {
+        given:
+        filter.retention = 60000
+        store.put('test/incoming/old.txt|6|100000', "committed|${System.currentTimeMillis() - 120000}")
+        store.put('test/incoming/new.txt|6|100000', "committed|${System.currentTimeMillis()}")
+        store.put('testwatermark', '100000')
+
+        when:
+        filter.filterFiles([entry('update.txt', 100)] as ChannelSftp.LsEntry[])
+
+        then:
+        store.get('test/incoming/old.txt|6|100000') == null
+        store.get('test/incoming/new.txt|6|100000')
+        store.get('testwatermark') == '100000'
+    }
+
+    private ChannelSftp.LsEntry entry(String name, int mtime) {
+        def attrs = new SftpATTRS()
+        attrs.setACMODTIME(mtime, mtime)
+        attrs.setSIZE(6)
+        new ChannelSftp.LsEntry(channel, name, name, attrs)
+    }
+}
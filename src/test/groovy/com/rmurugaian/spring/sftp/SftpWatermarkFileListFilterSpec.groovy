@@ -0,0 +1,53 @@
+package com.rmurugaian.spring.sftp
+
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.SftpATTRS
+import org.springframework.integration.metadata.SimpleMetadataStore
+import spock.lang.Specification
+
+class SftpWatermarkFileListFilterSpec extends Specification {
+
+    def store = new SimpleMetadataStore()
+    def filter = new SftpWatermarkFileListFilter(store, 'test', 5000)
+    def channel = new ChannelSftp()
+
+    def "skips entries older than the watermark minus the lookback"() {
+        given:
+        filter.filterFiles(entries(100, 200))
+
+        expect:
+        filter.filterFiles(entries(100, 196, 200, 300))*.filename == ['196', '200', '300']
+        filter.watermark == 295000
+    }
+
+    def "moves the watermark back when a file is removed"() {
+        given:
+        def old = entry(100)
+        filter.filterFiles([old, entry(500)] as ChannelSftp.LsEntry[])
+
+        when:
+        filter.remove(old)
+
+        then:
+        filter.filterFiles([old] as ChannelSftp.LsEntry[]) == [old]
+    }
+
+    def "keeps the watermark in the metadata store"() {
+        when:
+        filter.filterFiles(entries(100))
+
+        then:
+        new SftpWatermarkFileListFilter(store, 'test', 5000).watermark == 95000
+    }
+
+    private ChannelSftp.LsEntry[] entries(int... mtimes) {
+        mtimes.collect { entry(it) } as ChannelSftp.LsEntry[]
+    }
+
+    private ChannelSftp.LsEntry entry(int mtime) {
+        def attrs = new SftpATTRS()
+        attrs.setACMODTIME(mtime, mtime)
+        def name = String.valueOf(mtime)
+        new ChannelSftp.LsEntry(channel, name, name, attrs)
+    }
+}
@@ -0,0 +1,209 @@
+package com.rmurugaian.spring.sftp
+
+import com.rmurugaian.spring.EmbeddedSftpServer
+import com.rmurugaian.spring.InMemoryFileSystemViewFactory
+import com.rmurugaian.spring.cluster.SharedWorkQueue
+import org.springframework.beans.factory.support.DefaultListableBeanFactory
+import org.springframework.integration.file.FileHeaders
+import org.springframework.integration.file.remote.session.CachingSessionFactory
+import org.springframework.integration.metadata.SimpleMetadataStore
+import org.springframework.integration.sftp.filters.SftpPersistentAcceptOnceFileListFilter
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory
+import org.springframework.messaging.MessagingException
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class SftpWorkQueueMessageSourceSpec extends Specification {
+
+    @Shared
+    EmbeddedSftpServer server
+
+    @Shared
+    InMemoryFileSystemViewFactory fileSystemFactory
+
+    CachingSessionFactory sessionFactory
+
+    Path shared = Files.createTempDirectory('shared')
+
+    def setupSpec() {
+        server = new EmbeddedSftpServer(0)
+        fileSystemFactory = (InMemoryFileSystemViewFactory) server.fileSystemFactory
+        fileSystemFactory.setUserDir("b2s", "/")
+        server.start()
+    }
+
+    def cleanupSpec() {
+        server.stop()
+    }
+
+    def setup() {
+        fileSystemFactory.resetFileSystem()
+        fileSystemFactory.getDir("/incoming")
+        sessionFactory = new CachingSessionFactory(new DefaultSftpSessionFactory(host: 'localhost', port: server.port,
+            user: 'b2s', password: 'b2s', allowUnknownKeys: true), 4)
+    }
+
+    def cleanup() {
+        sessionFactory.destroy()
+        shared.toFile().deleteDir()
+    }
+
+    def "files listed once are downloaded by whichever instance takes them"() {
+        given:
+        (1..10).each { fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes) }
+        def lister = new SftpListingMessageSource(sessionFactory, { ['/incoming/', '/incoming/2019'] },
+            new SftpPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), 'listed'))
+        def queue = new SharedWorkQueue(shared, 60000)
+        def localDirectories = (0..<2).collect { Files.createTempDirectory('sftp').toFile() }
+        def consumers = localDirectories.collect { localDirectory ->
+            def source = source(new SharedWorkQueue(shared, 60000), localDirectory, 1)
+            source.deleteRemoteFiles = true
+            source.preserveTimestamp = true
+            source
+        }
+
+        when: 'the leader lists the directory twice'
+        def listed = lister.receive().payload
+        def relisted = lister.receive()
+        listed.each { queue.offer(SftpWorkQueueMessageSource.assignment(it)) }
+
+        then:
+        listed*.filename.sort() == (1..10).collect { "update${it}.txt" }.sort()
+        relisted == null
+
+        when:
+        def messages = []
+        5.times { consumers.each { messages << it.receive() } }
+
+        then:
+        messages.every { it != null }
+        messages.collect { it.headers[FileHeaders.REMOTE_FILE] }.sort() == listed*.filename.sort()
+        messages.every { it.payload.text == 'record-' + (it.payload.name - 'update' - '.txt') }
+        messages.every { it.headers[FileHeaders.REMOTE_DIRECTORY] == '/incoming/' }
+        localDirectories.every { it.list().length == 5 }
+        consumers.every { it.receive() == null }
+
+        when: 'the files are processed'
+        [consumers, messages.collate(2).transpose()].transpose().each { consumer, received ->
+            received.each { consumer.processed(it.payload) }
+        }
+
+        then: 'only then are they deleted and done'
+        (1..10).every { !fileSystemFactory.fileExists("/incoming/update${it}.txt") }
+        shared.resolve('taken').toFile().list().length == 0
+        shared.resolve('pending').toFile().list().length == 0
+
+        cleanup:
+        consumers*.destroy()
+        localDirectories*.deleteDir()
+    }
+
+    def "a file stays queued until processed, and goes back to the queue when processing fails"() {
+        given:
+        fileSystemFactory.createFile('/incoming/update1.txt', 'record-1'.bytes)
+        def queue = new SharedWorkQueue(shared, 60000)
+        queue.offer('1571300000000|/incoming/update1.txt')
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        def source = source(queue, localDirectory, 1)
+        source.deleteRemoteFiles = true
+
+        when:
+        def message = source.receive()
+
+        then:
+        message.payload.text == 'record-1'
+        fileSystemFactory.fileExists('/incoming/update1.txt')
+        shared.resolve('taken').toFile().list().length == 1
+
+        when: 'processing fails and the local copy is kept'
+        source.failed(message.payload)
+        source.receive()
+
+        then: 'the file is taken again, but not overwritten'
+        def clash = thrown(MessagingException)
+        clash.message.contains('clashes with the local file')
+        message.payload.text == 'record-1'
+        shared.resolve('taken').toFile().list().length == 0
+        shared.resolve('pending').toFile().list().length == 1
+
+        when: 'the local copy is gone'
+        message.payload.delete()
+        def retried = source.receive()
+        source.processed(retried.payload)
+
+        then:
+        retried.payload.text == 'record-1'
+        !fileSystemFactory.fileExists('/incoming/update1.txt')
+        shared.resolve('pending').toFile().list().length == 0
+
+        cleanup:
+        source.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "downloads up to maxConcurrentDownloads files at once and emits them one per receive"() {
+        given:
+        def queue = new SharedWorkQueue(shared, 60000)
+        (1..3).each {
+            fileSystemFactory.createFile("/incoming/update${it}.txt", "record-$it".bytes)
+            queue.offer("1571300000000|/incoming/update${it}.txt")
+        }
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        def source = source(queue, localDirectory, 3)
+
+        when:
+        def first = source.receive()
+
+        then:
+        localDirectory.list().sort() == ['update1.txt', 'update2.txt', 'update3.txt']
+        shared.resolve('pending').toFile().list().length == 0
+
+        when:
+        def rest = [source.receive(), source.receive()]
+
+        then:
+        ([first] + rest)*.payload*.name.sort() == ['update1.txt', 'update2.txt', 'update3.txt']
+        source.receive() == null
+
+        cleanup:
+        source.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    def "a failed download goes back to the queue"() {
+        given:
+        def queue = new SharedWorkQueue(shared, 60000)
+        queue.offer('1571300000000|/incoming/missing.txt')
+        def localDirectory = Files.createTempDirectory('sftp').toFile()
+        def source = source(queue, localDirectory, 1)
+
+        when:
+        source.receive()
+
+        then:
+        thrown(Exception)
+        localDirectory.list().length == 0
+
+        when:
+        fileSystemFactory.createFile('/incoming/missing.txt', 'late'.bytes)
+        def message = source.receive()
+
+        then:
+        message.payload.text == 'late'
+
+        cleanup:
+        source.destroy()
+        localDirectory?.deleteDir()
+    }
+
+    private SftpWorkQueueMessageSource source(SharedWorkQueue queue, File localDirectory, int concurrency) {
+        def source = new SftpWorkQueueMessageSource(queue, sessionFactory,
+            new ResumableSftpDownloader(sessionFactory, 1, 10, 2.0, 100), localDirectory, concurrency)
+        source.beanFactory = new DefaultListableBeanFactory()
+        source.afterPropertiesSet()
+        source
+    }
+}
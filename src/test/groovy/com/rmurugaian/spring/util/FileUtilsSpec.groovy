@@ -0,0 +1,51 @@
+package com.rmurugaian.spring.util
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class FileUtilsSpec extends Specification {
+
+    Path localDir = Files.createTempDirectory('incoming')
+
+    def cleanup() {
+        localDir.toFile().deleteDir()
+    }
+
+    def "clears the directory"() {
+        given:
+        createFile('update1.txt')
+        createFile('nested/update2.txt')
+
+        when:
+        FileUtils.clearLocalDir(localDir.toString())
+
+        then:
+        !Files.exists(localDir)
+    }
+
+    def "keeps the files with the given suffix and the directories holding them"() {
+        given:
+        createFile('update1.txt')
+        createFile('update2.txt.writing')
+        createFile('update2.txt.checkpoint.writing')
+        createFile('done/update3.txt')
+        createFile('partial/update4.txt')
+        createFile('partial/update5.txt.writing')
+
+        when:
+        FileUtils.clearLocalDir(localDir.toString(), '.writing')
+
+        then:
+        Files.walk(localDir).findAll { Files.isRegularFile(it) }.collect { localDir.relativize(it).toString() }
+            .sort() == ['partial/update5.txt.writing', 'update2.txt.checkpoint.writing', 'update2.txt.writing']
+        !Files.exists(localDir.resolve('done'))
+    }
+
+    private void createFile(String name) {
+        def file = localDir.resolve(name)
+        Files.createDirectories(file.parent)
+        file.text = 'record\n'
+    }
+}
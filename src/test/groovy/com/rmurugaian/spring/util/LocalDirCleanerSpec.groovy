@@ -0,0 +1,116 @@
+package com.rmurugaian.spring.util
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.concurrent.TimeUnit
+
+class LocalDirCleanerSpec extends Specification {
+
+    Path root = Files.createTempDirectory('local-dir-cleaner')
+
+    Path localDir = root.resolve('incoming')
+
+    LocalDirCleaner cleaner
+
+    def cleanup() {
+        cleaner?.destroy()
+        root.toFile().deleteDir()
+    }
+
+    def "moves the directory aside at once and deletes it in the background"() {
+        given:
+        (0..<2500).each { createFile("dir${it % 3}/update${it}.txt", it) }
+        cleaner = new LocalDirCleaner(4, 0)
+
+        when:
+        def deletion = cleaner.clear(localDir.toString())
+
+        then:
+        !Files.exists(localDir)
+
+        when:
+        deletion.get(30, TimeUnit.SECONDS)
+
+        then:
+        root.toFile().list() as List == []
+    }
+
+    def "keeps the newest files of the old directory until the next start"() {
+        given:
+        (0..<5).each { createFile("nested/update${it}.txt", it) }
+        createFile('update9.txt', 9)
+        cleaner = new LocalDirCleaner(2, 2)
+
+        when:
+        cleaner.clear(localDir.toString()).get(30, TimeUnit.SECONDS)
+
+        then:
+        def aside = Files.list(root).collect { it.fileName.toString() }
+        aside.size() == 1
+        aside[0] ==~ /incoming\.\d+\.old/
+        remaining(root.resolve(aside[0])) == ['nested/update4.txt', 'update9.txt']
+
+        when: 'the next start sets the new directory aside and removes the earlier one'
+        createFile('update10.txt', 10)
+        cleaner.clear(localDir.toString()).get(30, TimeUnit.SECONDS)
+
+        then:
+        def next = Files.list(root).collect { it.fileName.toString() }
+        next.size() == 1
+        next[0] != aside[0]
+        remaining(root.resolve(next[0])) == ['update10.txt']
+    }
+
+    def "keeps partial downloads in place and clears the rest"() {
+        given:
+        createFile('update1.txt', 1)
+        createFile('update2.txt.writing', 2)
+        createFile('update2.txt.checkpoint.writing', 2)
+        createFile('2019-10-18/update3.txt.writing', 3)
+        cleaner = new LocalDirCleaner(2, 1)
+
+        when:
+        def deletion = cleaner.clear(localDir.toString(), '.writing')
+
+        then: 'the partial files are back before polling starts'
+        remaining(localDir) == ['2019-10-18/update3.txt.writing', 'update2.txt.checkpoint.writing',
+                                'update2.txt.writing']
+
+        when:
+        deletion.get(30, TimeUnit.SECONDS)
+
+        then:
+        def aside = Files.list(root).findAll { it != localDir }
+        aside.size() == 1
+        remaining(aside[0]) == ['update1.txt']
+    }
+
+    def "only deletes leftovers when the directory does not exist"() {
+        given:
+        Files.createDirectories(root.resolve('incoming.123.old/dir'))
+        Files.createDirectories(root.resolve('incoming.backup'))
+        cleaner = new LocalDirCleaner(1, 0)
+
+        when:
+        cleaner.clear(localDir.toString()).get(30, TimeUnit.SECONDS)
+
+        then:
+        root.toFile().list() as List == ['incoming.backup']
+    }
+
+    private void createFile(String name, int minute) {
+        def file = localDir.resolve(name)
+        Files.createDirectories(file.parent)
+        Files.write(file, "record ${minute}\n".bytes)
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_571_300_000_000L + minute * 60_000L))
+    }
+
+    private static List<String> remaining(Path directory) {
+        Files.walk(directory).findAll { Files.isRegularFile(it) }
+            .collect { directory.relativize(it).toString() }
+            .sort()
+    }
+}